@@ -0,0 +1,232 @@
+import benchmarks.Workload;
+
+/**
+ * Creates the {@link Workload} for each benchmarked operation.
+ */
+public final class BenchmarkWorkloads {
+    private BenchmarkWorkloads() {
+    }
+
+    /**
+     * Creates a workload over a generated shape.
+     *
+     * @param operation The name of the operation to run.
+     * @param shape The name of the generated shape.
+     * @param size The number of cells along each side of the grid.
+     * @return The new {@link Workload}.
+     */
+    public static Workload create(String operation, String shape, int size) {
+        ShapeGenerator.Shape generated = ShapeGenerator.generate(shape, size);
+        return switch (operation) {
+            case "recursive" -> new MutatingWorkload(generated) {
+                @Override
+                public long run() {
+                    return new RecursiveBaseline(model).run();
+                }
+            };
+            case "scanline" -> new MutatingWorkload(generated) {
+                @Override
+                public long run() {
+                    AreaEstimator estimator = new AreaEstimator(model);
+                    estimator.runAlgorithm();
+                    return estimator.getTotalCountedCells();
+                }
+            };
+            case "corners" -> new MutatingWorkload(generated) {
+                private AreaEstimator estimator;
+                private int[] boundaryCells;
+
+                @Override
+                public void reset() {
+                    super.reset();
+                    // Only the corner check is measured, so fill beforehand
+                    ScanlineFill fill = new ScanlineFill(model);
+                    fill.fill(model.getStartPoint());
+                    boundaryCells = fill.getBoundaryCells();
+                    estimator = new AreaEstimator(model);
+                }
+
+                @Override
+                public long run() {
+                    estimator.checkForCorners(boundaryCells);
+                    return estimator.getTotalCountedCells();
+                }
+            };
+            case "parallel" -> engine(generated, new ParallelFill());
+            case "bitboard" -> engine(generated, new BitboardFill());
+            case "streaming" -> engine(generated, StreamingAreaEstimator::estimateArea);
+            // Stops at a 95% confidence interval of half a percent of the grid either side
+            case "montecarlo" -> engine(generated, model -> Math.round(new MonteCarloEstimator()
+                    .estimate(model, 0.95, 0.005 * model.size(), Long.MAX_VALUE).area));
+            // Measures every region at once, so the result is the total area of all of them
+            case "regions" -> engine(generated, model -> new RegionLabeller(model).getRegions().stream()
+                    .mapToLong(RegionLabeller.Region::getArea).sum());
+            case "quadtree" -> quadtree(QuadtreeGrid.of(generated.toModel()));
+            case "padded" -> padded(PaddedGrid.of(generated.toModel()));
+            case "runlength" -> runLength(RunLengthGrid.of(generated.toModel()));
+            case "neighbours-grid" -> neighboursOfGrid(size);
+            case "neighbours-model" -> neighboursOfModel(generated.toModel());
+            case "neighbours-quadtree" -> neighboursOfQuadtree(QuadtreeGrid.of(generated.toModel()));
+            case "neighbours-padded" -> neighboursOfPadded(PaddedGrid.of(generated.toModel()), Connectivity.VON_NEUMANN);
+            case "neighbours-padded-moore" -> neighboursOfPadded(PaddedGrid.of(generated.toModel()), Connectivity.MOORE);
+            default -> throw new IllegalArgumentException("Unknown operation: " + operation);
+        };
+    }
+
+    /**
+     * Runs an {@link AreaEngine}, which leaves the grid unchanged.
+     */
+    private static Workload engine(ShapeGenerator.Shape shape, AreaEngine engine) {
+        GridModel model = shape.toModel();
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                return engine.estimateArea(model);
+            }
+        };
+    }
+
+    /**
+     * Runs the fill of a {@link QuadtreeGrid} built beforehand, which leaves the grid unchanged.
+     */
+    private static Workload quadtree(QuadtreeGrid grid) {
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                return grid.estimateArea();
+            }
+        };
+    }
+
+    /**
+     * Runs the fill of a {@link PaddedGrid} built beforehand, which leaves the grid unchanged.
+     */
+    private static Workload padded(PaddedGrid grid) {
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                return grid.estimateArea();
+            }
+        };
+    }
+
+    /**
+     * Runs the fill of a {@link RunLengthGrid} encoded beforehand, which leaves the grid unchanged.
+     */
+    private static Workload runLength(RunLengthGrid grid) {
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                return grid.estimateArea();
+            }
+        };
+    }
+
+    private static Workload neighboursOfGrid(int size) {
+        Grid grid = new Grid(size);
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                long total = 0;
+                for (int id = 0; id < size * size; id++) {
+                    total += grid.getNeighbouringCells(id).size();
+                }
+                return total;
+            }
+        };
+    }
+
+    private static Workload neighboursOfModel(GridModel model) {
+        int[] neighbours = new int[4];
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                long total = 0;
+                for (int id = 0; id < model.size(); id++) {
+                    total += model.getNeighbours(id, neighbours);
+                }
+                return total;
+            }
+        };
+    }
+
+    private static Workload neighboursOfQuadtree(QuadtreeGrid grid) {
+        int[] neighbours = new int[4];
+        int size = grid.getWidth() * grid.getHeight();
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                long total = 0;
+                for (int id = 0; id < size; id++) {
+                    total += grid.getNeighbours(id, neighbours);
+                }
+                return total;
+            }
+        };
+    }
+
+    private static Workload neighboursOfPadded(PaddedGrid grid, Connectivity connectivity) {
+        int[] neighbours = new int[connectivity.size()];
+        return new Workload() {
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public long run() {
+                long total = 0;
+                for (int y = 0; y < grid.getHeight(); y++) {
+                    for (int index = grid.index(0, y); index <= grid.index(grid.getWidth() - 1, y); index++) {
+                        total += grid.getNeighbours(index, connectivity, neighbours);
+                    }
+                }
+                return total;
+            }
+        };
+    }
+
+    /**
+     * A workload that changes the grid, so it is rebuilt from the shape before every run.
+     */
+    private abstract static class MutatingWorkload implements Workload {
+        private final ShapeGenerator.Shape shape;
+        protected GridModel model;
+
+        MutatingWorkload(ShapeGenerator.Shape shape) {
+            this.shape = shape;
+        }
+
+        @Override
+        public void reset() {
+            model = shape.toModel();
+        }
+    }
+}
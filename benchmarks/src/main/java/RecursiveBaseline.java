@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+
+/**
+ * Frozen copy of the original recursive {@link AreaEstimator} algorithm, used as the benchmark baseline.
+ * <p>
+ * Recurses once per cell and allocates a neighbour list per call, exactly as the Swing-era
+ * {@code checkCell} and {@code Grid.getNeighbouringCells} did.
+ */
+final class RecursiveBaseline {
+    private final GridModel model;
+    private final int numberOfCells;
+    private int totalCountedCells;
+
+    RecursiveBaseline(GridModel model) {
+        this.model = model;
+        this.numberOfCells = model.getWidth();
+    }
+
+    long run() {
+        totalCountedCells = 1;
+        for (int neighbour : getNeighbouringCells(model.getStartPoint())) {
+            checkCell(neighbour);
+        }
+        for (int id = 0; id < model.size(); id++) {
+            if (model.getState(id) != CellStates.PAINTED || model.hasBeenCounted(id)) {
+                continue;
+            }
+            for (int neighbour : getNeighbouringCells(id)) {
+                if (model.getState(neighbour) == CellStates.PAINTED && model.hasBeenCounted(neighbour)) {
+                    totalCountedCells++;
+                    model.setBeenCounted(id, true);
+                    break;
+                }
+            }
+        }
+        return totalCountedCells;
+    }
+
+    private void checkCell(int id) {
+        if (model.hasBeenCounted(id)) {
+            return;
+        }
+        ArrayList<Integer> neighbours = new ArrayList<>();
+        switch (model.getState(id)) {
+            case DEFAULT -> {
+                totalCountedCells++;
+                model.setState(id, CellStates.AREA);
+                model.setBeenCounted(id, true);
+                neighbours.addAll(getNeighbouringCells(id));
+            }
+            case PAINTED -> {
+                totalCountedCells++;
+                model.setBeenCounted(id, true);
+            }
+        }
+        for (int neighbour : neighbours) {
+            checkCell(neighbour);
+        }
+    }
+
+    private ArrayList<Integer> getNeighbouringCells(int id) {
+        ArrayList<Integer> neighbourhood = new ArrayList<>();
+        if (id % numberOfCells > 0) {
+            neighbourhood.add(id - 1);
+        }
+        if ((int) Math.floor((float) id / numberOfCells) > 0) {
+            neighbourhood.add(id - numberOfCells);
+        }
+        if (id % numberOfCells < numberOfCells - 1) {
+            neighbourhood.add(id + 1);
+        }
+        if ((int) Math.floor((float) id / numberOfCells) < (int) Math.floor((float) (model.size() - 1) / numberOfCells)) {
+            neighbourhood.add(id + numberOfCells);
+        }
+        return neighbourhood;
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.SplittableRandom;
+
+/**
+ * Generates the shapes used by the benchmarks, each with a start point inside it.
+ */
+final class ShapeGenerator {
+    /**
+     * A generated shape and its start point.
+     */
+    static final class Shape {
+        final PackedGrid painted;
+        final int startX;
+        final int startY;
+
+        Shape(PackedGrid painted, int startX, int startY) {
+            this.painted = painted;
+            this.startX = startX;
+            this.startY = startY;
+            painted.setPainted(startX, startY, false);
+        }
+
+        /**
+         * @return A new {@link GridModel} holding the shape, with its start point set.
+         */
+        GridModel toModel() {
+            int width = painted.getWidth();
+            GridModel model = new GridModel(width, painted.getHeight());
+            for (int y = 0; y < painted.getHeight(); y++) {
+                for (int x = 0; x < width; x++) {
+                    if (painted.isPainted(x, y)) {
+                        model.setState(model.index(x, y), CellStates.PAINTED);
+                    }
+                }
+            }
+            int startPoint = model.index(startX, startY);
+            model.setState(startPoint, CellStates.START_POINT);
+            model.setStartPoint(startPoint);
+            return model;
+        }
+    }
+
+    private ShapeGenerator() {
+    }
+
+    /**
+     * Generates a named shape.
+     *
+     * @param shape One of {@code circle}, {@code spiral}, {@code maze} or {@code blob}.
+     * @param size The number of cells along each side of the grid.
+     * @return The generated {@link Shape}.
+     */
+    static Shape generate(String shape, int size) {
+        return switch (shape) {
+            case "circle" -> circle(size);
+            case "spiral" -> spiral(size);
+            case "maze" -> maze(size);
+            case "blob" -> blob(size);
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+    }
+
+    /**
+     * A one cell thick circle outline filling most of the grid.
+     */
+    private static Shape circle(int size) {
+        PackedGrid grid = new PackedGrid(size, size);
+        double centre = (size - 1) / 2.0;
+        double radius = size * 0.45;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (Math.abs(Math.hypot(x - centre, y - centre) - radius) < 0.75) {
+                    grid.setPainted(x, y, true);
+                }
+            }
+        }
+        return new Shape(grid, size / 2, size / 2);
+    }
+
+    /**
+     * Nested square rings, each with a gap on alternating sides, forming one long winding corridor.
+     */
+    private static Shape spiral(int size) {
+        PackedGrid grid = new PackedGrid(size, size);
+        for (int ring = 0, inset = 0; inset < size / 2 - 1; ring++, inset += 3) {
+            int last = size - 1 - inset;
+            for (int i = inset; i <= last; i++) {
+                grid.setPainted(i, inset, true);
+                grid.setPainted(i, last, true);
+                grid.setPainted(inset, i, true);
+                grid.setPainted(last, i, true);
+            }
+            // Open a gap in the top or bottom wall
+            int gapY = ring % 2 == 0 ? inset : last;
+            int gapX = size / 2;
+            if (ring > 0) {
+                grid.setPainted(gapX, gapY, false);
+                grid.setPainted(gapX + 1, gapY, false);
+            }
+        }
+        int centre = size / 2;
+        grid.setPainted(centre, centre, false);
+        return new Shape(grid, centre, centre);
+    }
+
+    /**
+     * A perfect maze of one cell wide corridors, generated with an iterative depth-first search.
+     */
+    private static Shape maze(int size) {
+        PackedGrid grid = new PackedGrid(size, size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                grid.setPainted(x, y, true);
+            }
+        }
+        int rooms = Math.max(1, (size - 1) / 2);
+        boolean[] visited = new boolean[rooms * rooms];
+        int[] stack = new int[rooms * rooms];
+        int stackSize = 0;
+        SplittableRandom random = new SplittableRandom(42);
+        stack[stackSize++] = 0;
+        visited[0] = true;
+        grid.setPainted(1 % size, 1 % size, false);
+        int[] candidates = new int[4];
+        while (stackSize > 0) {
+            int room = stack[stackSize - 1];
+            int rx = room % rooms;
+            int ry = room / rooms;
+            int count = 0;
+            if (rx > 0 && !visited[room - 1]) {
+                candidates[count++] = room - 1;
+            }
+            if (rx < rooms - 1 && !visited[room + 1]) {
+                candidates[count++] = room + 1;
+            }
+            if (ry > 0 && !visited[room - rooms]) {
+                candidates[count++] = room - rooms;
+            }
+            if (ry < rooms - 1 && !visited[room + rooms]) {
+                candidates[count++] = room + rooms;
+            }
+            if (count == 0) {
+                stackSize--;
+                continue;
+            }
+            int next = candidates[random.nextInt(count)];
+            int nx = next % rooms;
+            int ny = next / rooms;
+            // Knock down the wall between the two rooms
+            grid.setPainted(rx + nx + 1, ry + ny + 1, false);
+            grid.setPainted(2 * nx + 1, 2 * ny + 1, false);
+            visited[next] = true;
+            stack[stackSize++] = next;
+        }
+        return new Shape(grid, 1 % size, 1 % size);
+    }
+
+    /**
+     * Randomly placed filled discs scattered across an open grid.
+     */
+    private static Shape blob(int size) {
+        PackedGrid grid = new PackedGrid(size, size);
+        SplittableRandom random = new SplittableRandom(42);
+        int discs = Math.max(1, size / 4);
+        int maxRadius = Math.max(1, size / 16);
+        for (int i = 0; i < discs; i++) {
+            int cx = random.nextInt(size);
+            int cy = random.nextInt(size);
+            int radius = 1 + random.nextInt(maxRadius);
+            for (int y = Math.max(0, cy - radius); y <= Math.min(size - 1, cy + radius); y++) {
+                for (int x = Math.max(0, cx - radius); x <= Math.min(size - 1, cx + radius); x++) {
+                    if ((x - cx) * (x - cx) + (y - cy) * (y - cy) <= radius * radius) {
+                        grid.setPainted(x, y, true);
+                    }
+                }
+            }
+        }
+        return new Shape(grid, size / 2, size / 2);
+    }
+}
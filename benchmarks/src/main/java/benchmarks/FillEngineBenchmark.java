@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution of every fill engine on generated shapes.
+ * <p>
+ * Sample time mode reports percentiles up to the worst case. Engines that change the grid are given a
+ * fresh copy before every invocation, outside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class FillEngineBenchmark {
+    @Param({"circle", "spiral", "maze", "blob"})
+    public String shape;
+
+    @Param({"32", "256", "2048", "8192"})
+    public int size;
+
+    /**
+     * {@code scanline} is the full {@code AreaEstimator.runAlgorithm}, and {@code corners} its
+     * {@code checkForCorners} pass on its own. {@code montecarlo} is approximate, stopping at a 95%
+     * confidence interval of half a percent of the grid. {@code quadtree} measures only the fill of a
+     * {@code QuadtreeGrid} built beforehand, {@code padded} that of a {@code PaddedGrid}, and
+     * {@code runlength} that of a {@code RunLengthGrid}.
+     * {@code regions} labels and measures every region of the grid in one run.
+     */
+    @Param({"scanline", "corners", "parallel", "bitboard", "streaming", "montecarlo", "quadtree", "padded", "runlength", "regions"})
+    public String engine;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        workload = Workloads.create(engine, shape, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        workload.reset();
+    }
+
+    @Benchmark
+    public long estimate() {
+        return workload.run();
+    }
+}
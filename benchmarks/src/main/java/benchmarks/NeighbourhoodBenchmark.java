@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking up the neighbourhood of every cell in the grid once.
+ * <p>
+ * {@code grid} uses {@code Grid.getNeighbouringCells}, which boxes every neighbour into a new list,
+ * while {@code model} uses {@code GridModel.getNeighbours} and {@code quadtree} uses
+ * {@code QuadtreeGrid.getNeighbours}. {@code padded} and {@code padded-moore} use the offset tables of
+ * {@code PaddedGrid.getNeighbours} for the von Neumann and Moore neighbourhoods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class NeighbourhoodBenchmark {
+    @Param({"32", "128", "512"})
+    public int size;
+
+    @Param({"grid", "model", "quadtree", "padded", "padded-moore"})
+    public String lookup;
+
+    private Workload workload;
+
+    @Setup
+    public void createWorkload() {
+        workload = Workloads.create("neighbours-" + lookup, "circle", size);
+    }
+
+    @Benchmark
+    public long sweep() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The original recursive fill, kept as a baseline for {@link FillEngineBenchmark}.
+ * <p>
+ * It recurses once per cell, so it is limited to sizes that fit in a large thread stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss2g"})
+public class RecursiveFillBenchmark {
+    @Param({"circle", "spiral", "maze", "blob"})
+    public String shape;
+
+    @Param({"32", "256", "1024"})
+    public int size;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        workload = Workloads.create("recursive", shape, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        workload.reset();
+    }
+
+    @Benchmark
+    public long estimate() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,22 @@
+package benchmarks;
+
+/**
+ * A single benchmarked operation over a generated shape.
+ * <p>
+ * The estimator classes live in the unnamed package, which JMH benchmark classes cannot use, so each
+ * operation is wrapped in a {@code Workload} implemented by the unnamed package's
+ * {@code BenchmarkWorkloads}.
+ */
+public interface Workload {
+    /**
+     * Restores any state the previous {@link Workload#run()} changed. Not measured.
+     */
+    void reset();
+
+    /**
+     * Runs the operation once.
+     *
+     * @return The operation's result, so it can be consumed by the benchmark.
+     */
+    long run();
+}
@@ -0,0 +1,27 @@
+package benchmarks;
+
+/**
+ * Looks up {@link Workload} implementations from the unnamed package.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload through {@code BenchmarkWorkloads.create}.
+     *
+     * @param operation The name of the operation to run.
+     * @param shape The name of the generated shape.
+     * @param size The number of cells along each side of the grid.
+     * @return The new {@link Workload}.
+     */
+    static Workload create(String operation, String shape, int size) {
+        try {
+            return (Workload) Class.forName("BenchmarkWorkloads")
+                    .getMethod("create", String.class, String.class, int.class)
+                    .invoke(null, operation, shape, size);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create workload " + operation, e);
+        }
+    }
+}
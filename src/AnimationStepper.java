@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ * Advances the area fill a bounded number of cells at a time, so it can be animated one frame at a time.
+ * <p>
+ * Cells are visited in the order the neighbour check reaches them, from a single queue that holds each
+ * cell at most once. Once the queue runs dry the fill is complete and
+ * {@link AreaEstimator#checkForCorners(int[])} can count the corner cells.
+ */
+class AnimationStepper {
+    private final GridModel model;
+    /**
+     * Cells waiting to be checked, in the order they were reached.
+     */
+    private final int[] queue;
+    private int head;
+    private int tail;
+    /**
+     * One bit per cell that has ever been queued.
+     */
+    private final long[] queued;
+    /**
+     * The number of cells counted so far, excluding the start point.
+     */
+    private int countedCells;
+    /**
+     * The boundary cells counted so far, in the order they were reached.
+     */
+    private int[] boundaryCells = new int[64];
+    private int boundaryCount;
+
+    // Counters for the fill so far
+    private long cellsVisited;
+    private long neighbourLookups;
+    private int maxQueueSize;
+
+    /**
+     * Queues the start point's neighbours ready for the first step.
+     *
+     * @param model {@link GridModel} object to fill. Its start point must be set.
+     */
+    public AnimationStepper(GridModel model) {
+        if (model.getStartPoint() < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        this.model = model;
+        this.queue = new int[model.size()];
+        this.queued = new long[(model.size() + 63) >>> 6];
+        int[] neighbours = new int[4];
+        int neighbourCount = model.getNeighbours(model.getStartPoint(), neighbours);
+        for (int i = 0; i < neighbourCount; i++) {
+            enqueue(neighbours[i]);
+        }
+    }
+
+    /**
+     * Checks up to the given number of queued cells.
+     *
+     * @param maxCells The most cells to check.
+     * @return Whether any cells are still queued.
+     */
+    public boolean advance(int maxCells) {
+        int[] neighbours = new int[4];
+        for (int checked = 0; checked < maxCells && head < tail; checked++) {
+            int id = queue[head++];
+            cellsVisited++;
+            if (model.hasBeenCounted(id)) {
+                continue;
+            }
+            // Implementation of the rule space f
+            switch (model.getState(id)) {
+                // Area cells from an earlier run are filled again
+                case DEFAULT, AREA -> {
+                    countedCells++;
+                    model.setState(id, CellStates.AREA);
+                    model.setBeenCounted(id, true);
+                    int neighbourCount = model.getNeighbours(id, neighbours);
+                    neighbourLookups += neighbourCount;
+                    for (int i = 0; i < neighbourCount; i++) {
+                        enqueue(neighbours[i]);
+                    }
+                }
+                case PAINTED -> {
+                    countedCells++;
+                    model.setBeenCounted(id, true);
+                    if (boundaryCount == boundaryCells.length) {
+                        boundaryCells = Arrays.copyOf(boundaryCells, boundaryCount * 2);
+                    }
+                    boundaryCells[boundaryCount++] = id;
+                }
+            }
+        }
+        return head < tail;
+    }
+
+    /**
+     * @return Whether every reachable cell has been checked.
+     */
+    public boolean isFinished() {
+        return head == tail;
+    }
+
+    /**
+     * @return The number of cells counted so far, excluding the start point and corner cells.
+     */
+    public int getCountedCells() {
+        return countedCells;
+    }
+
+    /**
+     * @return The number of cells taken off the queue and checked so far.
+     */
+    public long getCellsVisited() {
+        return cellsVisited;
+    }
+
+    /**
+     * @return The number of neighbouring cells looked up so far.
+     */
+    public long getNeighbourLookups() {
+        return neighbourLookups;
+    }
+
+    /**
+     * @return The most cells that have been waiting on the queue at once.
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * @return The {@link CellStates#PAINTED} cells counted as the boundary so far.
+     */
+    public int[] getBoundaryCells() {
+        return Arrays.copyOf(boundaryCells, boundaryCount);
+    }
+
+    /**
+     * @return The number of cells queued but not yet checked.
+     */
+    public int getQueuedCells() {
+        return tail - head;
+    }
+
+    private void enqueue(int id) {
+        if ((queued[id >>> 6] & (1L << id)) == 0) {
+            queued[id >>> 6] |= 1L << id;
+            queue[tail++] = id;
+            maxQueueSize = Math.max(maxQueueSize, tail - head);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of estimated areas, keyed by {@link GridHash} values.
+ * <p>
+ * An area may be cached with the {@link GridModel#getCounted()} flags of the run that found it, so a
+ * view can mark the counted cells again without re-running the estimate.
+ * <p>
+ * Once full, the least recently used result is evicted. Hits and misses are counted so the cache's
+ * effectiveness can be checked. Safe to use from several threads.
+ */
+class AreaCache {
+    /**
+     * A cached area, with the counted flags of its run if they were kept.
+     */
+    private static final class Entry {
+        final long area;
+        final long[] counted;
+
+        Entry(long area, long[] counted) {
+            this.area = area;
+            this.counted = counted;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> areas;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity The most results to keep.
+     */
+    public AreaCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        // Access order makes the eldest entry the least recently used
+        this.areas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > AreaCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up the area of a grid, counting a hit or a miss.
+     *
+     * @param hash The grid's {@link GridHash}.
+     * @return The cached area, or -1 if there is none.
+     */
+    public synchronized long get(long hash) {
+        Entry entry = areas.get(hash);
+        if (entry == null) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        return entry.area;
+    }
+
+    /**
+     * Looks up the counted flags cached with the area of a grid, without counting a hit or a miss.
+     *
+     * @param hash The grid's {@link GridHash}.
+     * @return The flags from {@link GridModel#getCounted()}, or {@code null} if there are none.
+     */
+    public synchronized long[] getCounted(long hash) {
+        Entry entry = areas.get(hash);
+        return entry == null ? null : entry.counted;
+    }
+
+    /**
+     * Caches the area of a grid, evicting the least recently used result if the cache is full.
+     *
+     * @param hash The grid's {@link GridHash}.
+     * @param area The estimated area.
+     */
+    public synchronized void put(long hash, long area) {
+        put(hash, area, null);
+    }
+
+    /**
+     * Caches the area of a grid with the counted flags of the run that found it, evicting the least
+     * recently used result if the cache is full.
+     *
+     * @param hash The grid's {@link GridHash}.
+     * @param area The estimated area.
+     * @param counted The run's {@link GridModel#getCounted()} flags, or {@code null} to keep only the area.
+     */
+    public synchronized void put(long hash, long area, long[] counted) {
+        areas.put(hash, new Entry(area, counted));
+    }
+
+    public synchronized void clear() {
+        areas.clear();
+    }
+
+    public synchronized int size() {
+        return areas.size();
+    }
+    public int getCapacity() {
+        return capacity;
+    }
+    public synchronized long getHits() {
+        return hits;
+    }
+    public synchronized long getMisses() {
+        return misses;
+    }
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d/%d results, %d hits, %d misses (%.1f%% hit rate), %d evictions", areas.size(),
+                capacity, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions);
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * A headless engine that estimates the area around a {@link GridModel}'s start point.
+ * <p>
+ * Every engine must return exactly the same total as {@link AreaEstimator#runAlgorithm()} on a
+ * freshly drawn grid: the start point, every {@link CellStates#DEFAULT} cell reachable from it, and
+ * the {@link CellStates#PAINTED} boundary and corner cells around them.
+ */
+interface AreaEngine {
+    /**
+     * Estimates the area of the region containing the model's start point.
+     * <p>
+     * Engines do not change the model's cell states or counted flags.
+     *
+     * @param model {@link GridModel} object with a start point set.
+     * @return The number of cells counted, including the start point.
+     */
+    long estimateArea(GridModel model);
+}
@@ -0,0 +1,49 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event recorded for every {@link AreaEstimator} run while a recording has it enabled.
+ * <p>
+ * The event's duration covers the whole run. Its fields mirror {@link RunMetrics}, and are only
+ * filled in when the event will be committed, so a disabled event costs almost nothing.
+ */
+@Name("AreaEstimator.Run")
+@Label("Area Estimation")
+@Category("Area Estimator")
+@Description("An area estimation run, with its counters and phase timings")
+@StackTrace(false)
+class AreaEstimationEvent extends Event {
+    @Label("Grid Width")
+    int gridWidth;
+
+    @Label("Grid Height")
+    int gridHeight;
+
+    @Label("Counted Cells")
+    long countedCells;
+
+    @Label("Cells Visited")
+    long cellsVisited;
+
+    @Label("Neighbour Lookups")
+    long neighbourLookups;
+
+    @Label("Max Stack Size")
+    int maxStackSize;
+
+    @Label("Fill Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long fillDuration;
+
+    @Label("Corner Check Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long cornerDuration;
+
+    @Label("Animated")
+    boolean animated;
+}
@@ -1,118 +1,357 @@
 import javax.swing.*;
-import java.util.ArrayList;
 
 /**
  *  The algorithm for estimating any 2D shape's area using a cellular automaton approach.
 */
 class AreaEstimator {
     /**
-     * {@link Grid} object for use with the algorithm.
+     * {@link Grid} object for use with the algorithm, or {@code null} when running headless.
      */
     private final Grid grid;
     /**
-     * Tracks the number of {@link Cell} objects that have been counted by the algorithm
+     * {@link GridModel} object the algorithm reads and writes cell states through.
+     */
+    private GridModel model;
+    /**
+     * Tracks the number of cells that have been counted by the algorithm
      */
     private int totalCountedCells;
     /**
-     * How long to wait between each step for visualisation in milliseconds.
+     * The perimeter of the shape counted by the last completed run, or -1 if none has completed.
+     */
+    private long perimeter = -1;
+    /**
+     * Whether to animate the fill rather than run it all at once.
      */
     private boolean delaySteps = false;
+    /**
+     * How long each animation frame lasts in milliseconds.
+     */
+    static final int FRAME_MILLIS = 16;
+    /**
+     * How many cells the animation checks each frame.
+     */
+    private int cellsPerFrame = 32;
+    /**
+     * The single timer driving the animation, or {@code null} if no animation has been started.
+     */
+    private Timer animationTimer;
+    /**
+     * The animated fill in progress, or {@code null} if there is none.
+     */
+    private AnimationStepper stepper;
+    /**
+     * Progress hook for the current run, or {@code null} for none.
+     */
+    private EstimationProgress progress;
     /**
      * The label to display the results to.
      */
     private JLabel areaCounterLabel;
+    /**
+     * Receives the metrics of every completed run, or {@code null} for none.
+     */
+    private MetricsListener metricsListener;
+
+    // Instrumentation of the current run, only measured while a listener or JFR event is enabled
+    private boolean instrumented;
+    private AreaEstimationEvent runEvent;
+    private long fillNanos;
+    private long cornerNanos;
+    /**
+     * Whether to index the counted shape after every completed run.
+     */
+    private boolean indexArea;
+    /**
+     * The index of the shape counted by the last completed run, or {@code null} if there is none.
+     */
+    private AreaIndex areaIndex;
+    // Fill and corner check buffers, reused between runs on the same model
+    private ScanlineFill scanlineFill;
+    private ContourTracer tracer;
+    private GridModel buffersModel;
 
     public AreaEstimator(Grid grid) {
         this.grid = grid;
+        this.model = grid.getModel();
     }
 
     /**
-     * Check to see what state a cell is in and count it if appropriate, before looking at its
-     * neighbours.
+     * Initialises the algorithm over a headless {@link GridModel}, without any Swing components.
      *
-     * @param cell A {@link Cell} object.
+     * @param model {@link GridModel} object for use with the algorithm.
      */
-    private void checkCell(Cell cell) {
-        if (cell.hasBeenCounted()) {
-            return;
+    public AreaEstimator(GridModel model) {
+        this.grid = null;
+        this.model = model;
+    }
+
+    /**
+     * Checks for any boundary cells that are corners and thus not counted by the
+     * von Neumann neighbourhood check, and measures the perimeter of the counted shape.
+     * <p>
+     * Only the cells around the boundary are visited, see {@link ContourTracer}. Package-private so it
+     * can be benchmarked on its own after a fill.
+     *
+     * @param boundaryCells The boundary cells counted by the fill.
+     */
+    void checkForCorners(int[] boundaryCells) {
+        long start = instrumented ? System.nanoTime() : 0;
+        reuseBuffers();
+        totalCountedCells += tracer.trace(boundaryCells);
+        perimeter = tracer.getPerimeter();
+        if (instrumented) {
+            cornerNanos = System.nanoTime() - start;
         }
-        areaCounterLabel.setText("Area: " + totalCountedCells + " units^2");
-        ArrayList<Cell> neighbours = new ArrayList<>();
-        // Implementation of the rule space f
-        switch (cell.getState()) {
-            case DEFAULT -> {
-                totalCountedCells++;
-                cell.setState(CellStates.AREA);
-                cell.setBeenCounted(true);
-                neighbours.addAll(grid.getNeighbouringCells(cell.getGridPosition()));
-            }
-            case PAINTED -> {
-                totalCountedCells++;
-                cell.setBeenCounted(true);
-            }
+        if (indexArea) {
+            detachIndex();
+            areaIndex = new AreaIndex(model);
         }
-        // Check the cell's neighbours using recursion
-        for (Cell neighbour : neighbours) {
-            if (delaySteps) {
-                Timer timer = new Timer(0, e -> checkCell(neighbour));
-                timer.setRepeats(false);
-                timer.start();
-            } else {
-                checkCell(neighbour);
-            }
+        if (progress != null) {
+            progress.update(totalCountedCells);
         }
+        updateLabel();
     }
 
     /**
-     * Checks for any boundary cells that are corners and thus not counted by the
-     * von Neumann neighbourhood check.
-     *
-     * @param cells An array of {@link Cell} objects.
-     */
-    private void checkForCorners(Cell[] cells) {
-        for (Cell cell : cells) {
-            // If the cell isn't a border cell or has already been counted, continue
-            if (cell.getState() != CellStates.PAINTED
-                    ||  cell.hasBeenCounted()) {
-                continue;
-            }
-            // Otherwise, find its neighbours
-            ArrayList<Cell> neighbours = grid.getNeighbouringCells(cell.getGridPosition());
-            // Loop over the neighbours
-            for (Cell neighbour : neighbours) {
-                if (neighbour.getState() == CellStates.PAINTED
-                        &&  neighbour.hasBeenCounted()) {
-                    totalCountedCells++;
-                    areaCounterLabel.setText("Area: " + totalCountedCells + " units^2");
-                    cell.setBeenCounted(true);
-                    break;
-                }
-            }
+     * Writes the current count to the results label, if there is one.
+     */
+    private void updateLabel() {
+        if (areaCounterLabel != null) {
+            areaCounterLabel.setText("Area: " + totalCountedCells + " units^2");
         }
     }
 
     public void runAlgorithm() {
+        runAlgorithm(null);
+    }
+
+    /**
+     * Runs the algorithm, reporting progress to the given hook.
+     * <p>
+     * Animated runs report their progress through the label instead and ignore the hook.
+     *
+     * @param progress Progress hook, or {@code null} for none.
+     * @throws java.util.concurrent.CancellationException If the hook reports that the run was cancelled.
+     */
+    public void runAlgorithm(EstimationProgress progress) {
+        this.progress = delaySteps ? null : progress;
+        // The grid may have been rebuilt since the last run
+        if (grid != null) {
+            model = grid.getModel();
+        }
+        // Forget the last run's counted cells without a clearing pass, which leaves its index stale
+        detachIndex();
+        model.clearCounted();
         // Start on one to account for the starting point
         totalCountedCells = 1;
-        // Get the start point's neighbours
-        ArrayList<Cell> startPointNeighbours = new ArrayList<>(){};
-        Cell startCell = grid.getStartPoint();
-        startPointNeighbours.addAll(grid.getNeighbouringCells(startCell.getGridPosition()));
-        // Iterate through them
-        for (Cell startPointNeighbour : startPointNeighbours) {
-            checkCell(startPointNeighbour);
+        perimeter = -1;
+        beginMetrics();
+        if (!delaySteps) {
+            // Without visualisation, fill whole runs at a time instead of recursing per cell
+            reuseBuffers();
+            ScanlineFill fill = scanlineFill;
+            long start = instrumented ? System.nanoTime() : 0;
+            totalCountedCells += fill.fill(model.getStartPoint(), this.progress);
+            if (instrumented) {
+                fillNanos = System.nanoTime() - start;
+            }
+            checkForCorners(fill.getBoundaryCells());
+            reportMetrics(fill.getCellsVisited(), fill.getNeighbourLookups(), fill.getMaxStackSize());
+            this.progress = null;
+            return;
+        }
+        // Animate the fill from one shared timer, a batch of cells per frame
+        if (animationTimer != null) {
+            animationTimer.stop();
+        }
+        stepper = new AnimationStepper(model);
+        animationTimer = new Timer(FRAME_MILLIS, e -> advanceFrame());
+        animationTimer.start();
+    }
+
+    /**
+     * Advances the animation by one frame, counting the corner cells once the fill is complete.
+     * <p>
+     * Only the cells checked this frame change colour, and the label is updated once per frame.
+     */
+    private void advanceFrame() {
+        if (stepper == null) {
+            return;
+        }
+        long start = instrumented ? System.nanoTime() : 0;
+        boolean filling = stepper.advance(cellsPerFrame);
+        if (instrumented) {
+            fillNanos += System.nanoTime() - start;
+        }
+        totalCountedCells = 1 + stepper.getCountedCells();
+        if (filling) {
+            updateLabel();
+        } else {
+            animationTimer.stop();
+            AnimationStepper finished = stepper;
+            stepper = null;
+            checkForCorners(finished.getBoundaryCells());
+            reportMetrics(finished.getCellsVisited(), finished.getNeighbourLookups(), finished.getMaxQueueSize());
+        }
+    }
+
+    /**
+     * Stops the last run's index following the grid, if there is one.
+     */
+    private void detachIndex() {
+        if (areaIndex != null) {
+            areaIndex.detach();
+            areaIndex = null;
         }
-        // Lastly, check for corner cells
-        checkForCorners(grid.getCells());
     }
 
+    /**
+     * Creates the fill and corner check buffers, unless they were already created for the current model.
+     */
+    private void reuseBuffers() {
+        if (buffersModel != model) {
+            scanlineFill = new ScanlineFill(model);
+            tracer = new ContourTracer(model);
+            buffersModel = model;
+        }
+    }
+
+    /**
+     * Starts measuring a run if anything is listening for its metrics.
+     * <p>
+     * Checking whether the JFR event is enabled is cheap, and nothing is timed when it is not, so
+     * instrumentation costs almost nothing while it is off.
+     */
+    private void beginMetrics() {
+        runEvent = new AreaEstimationEvent();
+        instrumented = metricsListener != null || runEvent.isEnabled();
+        fillNanos = 0;
+        cornerNanos = 0;
+        runEvent.begin();
+    }
+
+    /**
+     * Publishes the metrics of a completed run to the JFR event and the metrics listener.
+     *
+     * @param cellsVisited The number of cells the fill visited.
+     * @param neighbourLookups The number of neighbours the fill looked up.
+     * @param maxStackSize The largest size of the fill's worklist.
+     */
+    private void reportMetrics(long cellsVisited, long neighbourLookups, int maxStackSize) {
+        if (!instrumented) {
+            return;
+        }
+        RunMetrics metrics = new RunMetrics(totalCountedCells, cellsVisited + tracer.getCellsVisited(),
+                neighbourLookups + tracer.getNeighbourLookups(), Math.max(maxStackSize, tracer.getMaxStackSize()),
+                fillNanos, cornerNanos, delaySteps);
+        if (runEvent.shouldCommit()) {
+            runEvent.gridWidth = model.getWidth();
+            runEvent.gridHeight = model.getHeight();
+            runEvent.countedCells = metrics.countedCells;
+            runEvent.cellsVisited = metrics.cellsVisited;
+            runEvent.neighbourLookups = metrics.neighbourLookups;
+            runEvent.maxStackSize = metrics.maxStackSize;
+            runEvent.fillDuration = metrics.fillNanos;
+            runEvent.cornerDuration = metrics.cornerNanos;
+            runEvent.animated = metrics.animated;
+            runEvent.commit();
+        }
+        if (metricsListener != null) {
+            metricsListener.runCompleted(metrics);
+        }
+    }
+
+    /**
+     * Pauses the animation, if one is running.
+     */
+    public void pauseAnimation() {
+        if (animationTimer != null) {
+            animationTimer.stop();
+        }
+    }
+
+    /**
+     * Resumes a paused animation, if it has not finished.
+     */
+    public void resumeAnimation() {
+        if (animationTimer != null && stepper != null) {
+            animationTimer.start();
+        }
+    }
+
+    /**
+     * Advances a paused animation by a single frame.
+     */
+    public void stepAnimation() {
+        if (animationTimer != null && !animationTimer.isRunning() && stepper != null) {
+            advanceFrame();
+        }
+    }
+
+    /**
+     * Stops and discards the animation, if there is one.
+     */
+    public void stopAnimation() {
+        pauseAnimation();
+        stepper = null;
+    }
+
+    /**
+     * @return Whether an animation is running and not paused.
+     */
+    public boolean isAnimating() {
+        return animationTimer != null && animationTimer.isRunning();
+    }
+
+    public int getTotalCountedCells() {
+        return totalCountedCells;
+    }
+    /**
+     * @return The number of cell edges around the shape counted by the last completed run, or -1 if
+     * no run has completed.
+     */
+    public long getPerimeter() {
+        return perimeter;
+    }
+    /**
+     * @return The index of the shape counted by the last completed run, or {@code null} if indexing is
+     * off or no run has completed. It follows edits to the grid until the next run starts.
+     */
+    public AreaIndex getAreaIndex() {
+        return areaIndex;
+    }
+    public boolean getIndexArea() {
+        return indexArea;
+    }
+    /**
+     * Sets whether to build an {@link AreaIndex} of the counted shape after every completed run.
+     */
+    public void setIndexArea(boolean indexArea) {
+        this.indexArea = indexArea;
+    }
     public boolean getDelaySteps() {
         return delaySteps;
     }
     public void setDelaySteps(boolean b) {
         this.delaySteps = b;
     }
+    public int getCellsPerFrame() {
+        return cellsPerFrame;
+    }
+    public void setCellsPerFrame(int cellsPerFrame) {
+        if (cellsPerFrame <= 0) {
+            throw new IllegalArgumentException("Cells per frame must be positive, got " + cellsPerFrame);
+        }
+        this.cellsPerFrame = cellsPerFrame;
+    }
     public void setLabel(JLabel areaCounterLabel) {
         this.areaCounterLabel = areaCounterLabel;
     }
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
 }
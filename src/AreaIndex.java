@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+/**
+ * Summed-area table of the cells counted by a run, answering the area inside any rectangle in O(1).
+ * <p>
+ * A cell is in the counted shape if it is the start point, or an {@link CellStates#AREA} or
+ * {@link CellStates#PAINTED} cell counted by the run, the same cells {@link ContourTracer} measures the
+ * perimeter of. Each table entry holds the number of such cells above and to the left of it, so a
+ * rectangle's count is four lookups.
+ * <p>
+ * The index listens to its {@link GridModel}, and a cell changing state after the run is added to a
+ * short list of pending changes that queries account for, so edits cost O(1) and queries stay O(1).
+ * Once the list is full the table is rebuilt, in O(size), at the next query. Counted flags change
+ * without notifying listeners, so an index only follows the run it was built after. Starting another run
+ * on the model makes it stale, and it should be detached and rebuilt.
+ */
+class AreaIndex implements GridModelListener {
+    /**
+     * The most cell changes queries account for before the table is rebuilt.
+     */
+    private static final int MAX_PENDING = 64;
+
+    private final GridModel model;
+    private final int width;
+    private final int height;
+    /**
+     * Whether each cell is in the counted shape, where bit {@code id & 63} of word {@code id >>> 6}
+     * holds cell {@code id}.
+     */
+    private final long[] inShape;
+    /**
+     * The number of cells in the shape above and to the left of each corner, in rows of
+     * {@code width + 1} entries.
+     */
+    private final int[] sums;
+
+    // Cells changed since the table was built, and whether each joined (+1) or left (-1) the shape
+    private final int[] pendingIds = new int[MAX_PENDING];
+    private final int[] pendingDeltas = new int[MAX_PENDING];
+    private int pendingCount;
+    /**
+     * Whether more cells changed than fit in the pending list, so the table must be rebuilt.
+     */
+    private boolean stale;
+
+    /**
+     * Builds the table from the model's current cells and starts listening for changes to it.
+     *
+     * @param model {@link GridModel} object whose counted shape to index.
+     */
+    public AreaIndex(GridModel model) {
+        if ((long) (model.getWidth() + 1) * (model.getHeight() + 1) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid of " + model.getWidth() + "x" + model.getHeight()
+                    + " cells is too large to index");
+        }
+        this.model = model;
+        this.width = model.getWidth();
+        this.height = model.getHeight();
+        this.inShape = new long[(model.size() + 63) >>> 6];
+        this.sums = new int[(width + 1) * (height + 1)];
+        gridChanged(true);
+        rebuild();
+        model.addListener(this);
+    }
+
+    /**
+     * Stops listening for changes to the model.
+     */
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    /**
+     * Counts the cells of the shape inside a rectangle.
+     *
+     * @param left Column of the rectangle's left edge.
+     * @param top Row of the rectangle's top edge.
+     * @param right Column just past the rectangle's right edge.
+     * @param bottom Row just past the rectangle's bottom edge.
+     * @return The number of cells in the shape inside the rectangle.
+     */
+    public int countCells(int left, int top, int right, int bottom) {
+        if (left < 0 || top < 0 || right > width || bottom > height || left > right || top > bottom) {
+            throw new IllegalArgumentException("Rectangle [" + left + ", " + top + ", " + right + ", " + bottom
+                    + ") is not inside the " + width + "x" + height + " grid");
+        }
+        if (stale) {
+            rebuild();
+        }
+        int stride = width + 1;
+        int count = sums[bottom * stride + right] - sums[top * stride + right]
+                - sums[bottom * stride + left] + sums[top * stride + left];
+        // Account for the cells changed since the table was built
+        for (int i = 0; i < pendingCount; i++) {
+            int x = pendingIds[i] % width;
+            int y = pendingIds[i] / width;
+            if (x >= left && x < right && y >= top && y < bottom) {
+                count += pendingDeltas[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of cells in the shape across the whole grid.
+     */
+    public int getTotal() {
+        return countCells(0, 0, width, height);
+    }
+
+    @Override
+    public void cellChanged(int id, CellStates oldState, CellStates newState) {
+        boolean wasInShape = (inShape[id >>> 6] & (1L << id)) != 0;
+        if (isInShape(id) == wasInShape) {
+            return;
+        }
+        inShape[id >>> 6] ^= 1L << id;
+        if (stale) {
+            return;
+        }
+        if (pendingCount == MAX_PENDING) {
+            // Too many changes to account for at query time, so rebuild before the next query
+            stale = true;
+            return;
+        }
+        pendingIds[pendingCount] = id;
+        pendingDeltas[pendingCount++] = wasInShape ? -1 : 1;
+    }
+
+    @Override
+    public void gridChanged(boolean shapeChanged) {
+        Arrays.fill(inShape, 0);
+        for (int id = 0; id < model.size(); id++) {
+            if (isInShape(id)) {
+                inShape[id >>> 6] |= 1L << id;
+            }
+        }
+        stale = true;
+    }
+
+    /**
+     * Rebuilds the table from the shape's cells, clearing the pending changes.
+     */
+    private void rebuild() {
+        int stride = width + 1;
+        Arrays.fill(sums, 0, stride, 0);
+        for (int y = 0, id = 0; y < height; y++) {
+            int row = (y + 1) * stride;
+            sums[row] = 0;
+            int rowCount = 0;
+            for (int x = 0; x < width; x++, id++) {
+                if ((inShape[id >>> 6] & (1L << id)) != 0) {
+                    rowCount++;
+                }
+                sums[row + x + 1] = sums[row - stride + x + 1] + rowCount;
+            }
+        }
+        pendingCount = 0;
+        stale = false;
+    }
+
+    private boolean isInShape(int id) {
+        // Area and painted cells only belong to the shape if the run counted them
+        return switch (model.getState(id)) {
+            case START_POINT -> true;
+            case AREA, PAINTED -> model.hasBeenCounted(id);
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,344 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Headless batch mode that estimates the area of every shape file in a directory.
+ * <p>
+ * Shape files are raw PBM (P4) or PNG images, where set or dark pixels are painted cells. The start
+ * point for {@code shape.png} is read from a sidecar file {@code shape.png.start} holding
+ * {@code "x y"}, falling back to the {@code --start} option. Files are decoded straight into a
+ * {@link PackedGrid} and estimated with {@link BitboardFill}, so no Swing components are created.
+ * Files repeating an earlier shape and start point reuse its result from an {@link AreaCache}.
+ * Run-length encoded grids ({@code .rle}, see {@link RleFormat}) are measured straight from their runs
+ * by {@link RunLengthGrid#estimateArea()}, and may hold their own start point.
+ * <p>
+ * Files are estimated on virtual threads when the runtime has them. The build targets Java 17, which
+ * does not, so there the executor falls back to a fixed pool of {@code parallelism} platform threads;
+ * running the same classes on Java 21 or later picks up virtual threads without a rebuild. Either way
+ * at most {@code parallelism} files are decoded at once.
+ * <p>
+ * Usage: {@code java Main --batch <dir> [--out results.csv|results.jsonl] [--parallelism n] [--start x,y]}
+ */
+class BatchEstimator {
+    /**
+     * The outcome of estimating one file.
+     */
+    private static final class Result {
+        final Path file;
+        final int width;
+        final int height;
+        final int startX;
+        final int startY;
+        final long area;
+        final long nanos;
+        final String error;
+
+        Result(Path file, int width, int height, int startX, int startY, long area, long nanos, String error) {
+            this.file = file;
+            this.width = width;
+            this.height = height;
+            this.startX = startX;
+            this.startY = startY;
+            this.area = area;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+
+    private final Path directory;
+    private final int parallelism;
+    /**
+     * Start point used for files without a sidecar, or {@code null} if they should fail.
+     */
+    private final int[] defaultStart;
+    /**
+     * Areas of the shapes estimated so far, so repeated shapes are not estimated again.
+     */
+    private final AreaCache cache = new AreaCache(4096);
+
+    public BatchEstimator(Path directory, int parallelism, int[] defaultStart) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+        }
+        this.directory = directory;
+        this.parallelism = parallelism;
+        this.defaultStart = defaultStart;
+    }
+
+    /**
+     * Entry point for batch mode.
+     *
+     * @param args Command line args, starting with {@code --batch}.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = null;
+        Path out = null;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int[] start = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch" -> directory = Paths.get(requireValue(args, ++i));
+                case "--out" -> out = Paths.get(requireValue(args, ++i));
+                case "--parallelism" -> parallelism = Integer.parseInt(requireValue(args, ++i));
+                case "--start" -> start = parseStart(requireValue(args, ++i).replace(',', ' '));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("Usage: --batch <dir> [--out results.csv|results.jsonl]"
+                    + " [--parallelism n] [--start x,y]");
+        }
+        BatchEstimator batch = new BatchEstimator(directory, parallelism, start);
+        int failures;
+        if (out == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+            failures = batch.run(writer, false);
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(out)) {
+                failures = batch.run(writer, out.toString().endsWith(".jsonl"));
+            }
+        }
+        if (failures > 0) {
+            System.err.println(failures + " file(s) could not be estimated");
+        }
+        System.err.println("Result cache: " + batch.cache);
+    }
+
+    /**
+     * Estimates every shape file in the directory, writing one result per file as each finishes.
+     *
+     * @param writer Where to write the results.
+     * @param jsonLines Whether to write JSON lines rather than CSV.
+     * @return The number of files that could not be estimated.
+     * @throws IOException If the directory cannot be listed or the results cannot be written.
+     */
+    public int run(Writer writer, boolean jsonLines) throws IOException, InterruptedException {
+        if (!jsonLines) {
+            writer.write("file,width,height,start_x,start_y,area,millis,error\n");
+        }
+        Semaphore permits = new Semaphore(parallelism);
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        int[] failures = new int[1];
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{pbm,png,rle,PBM,PNG,RLE}")) {
+            ExecutorService executor = newExecutor();
+            try {
+                for (Path file : files) {
+                    // Bound the number of files decoded at once, however many threads are available
+                    permits.acquire();
+                    futures.add(executor.submit(() -> {
+                        try {
+                            Result result = estimate(file);
+                            synchronized (writer) {
+                                if (result.error != null) {
+                                    failures[0]++;
+                                }
+                                writer.write(jsonLines ? toJson(result) : toCsv(result));
+                            }
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IOException("Could not write results", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+        return failures[0];
+    }
+
+    /**
+     * Creates a virtual thread per task executor where the runtime supports it, falling back to a fixed
+     * pool of platform threads. The method is looked up reflectively as it is missing from Java 17, which
+     * the build targets.
+     */
+    private ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(parallelism);
+        }
+    }
+
+    private Result estimate(Path file) {
+        long startTime = System.nanoTime();
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".rle")) {
+            return estimateRuns(file, startTime);
+        }
+        PackedGrid grid = null;
+        int[] start = defaultStart;
+        try {
+            grid = decode(file);
+            Path sidecar = file.resolveSibling(file.getFileName() + ".start");
+            if (Files.exists(sidecar)) {
+                start = parseStart(Files.readString(sidecar).trim());
+            }
+            if (start == null) {
+                throw new IOException("No start point given");
+            }
+            if (start[0] < 0 || start[0] >= grid.getWidth() || start[1] < 0 || start[1] >= grid.getHeight()) {
+                throw new IOException("Start point is outside the image");
+            }
+            long hash = GridHash.of(grid, start[0], start[1]);
+            long area = cache.get(hash);
+            if (area < 0) {
+                area = BitboardFill.estimateArea(grid, start[0], start[1]);
+                cache.put(hash, area);
+            }
+            return new Result(file, grid.getWidth(), grid.getHeight(), start[0], start[1], area,
+                    System.nanoTime() - startTime, null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(file, grid == null ? 0 : grid.getWidth(), grid == null ? 0 : grid.getHeight(),
+                    start == null ? -1 : start[0], start == null ? -1 : start[1], -1,
+                    System.nanoTime() - startTime, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Estimates a run-length encoded grid without expanding it, using the start point stored in the file
+     * unless a sidecar or the default overrides it.
+     */
+    private Result estimateRuns(Path file, long startTime) {
+        RunLengthGrid grid = null;
+        int[] start = defaultStart;
+        try {
+            try (FileChannel channel = FileChannel.open(file)) {
+                grid = RleFormat.read(channel);
+            }
+            Path sidecar = file.resolveSibling(file.getFileName() + ".start");
+            if (Files.exists(sidecar)) {
+                start = parseStart(Files.readString(sidecar).trim());
+            } else if (grid.getStartPoint() >= 0) {
+                start = new int[]{grid.getStartPoint() % grid.getWidth(), grid.getStartPoint() / grid.getWidth()};
+            }
+            if (start == null) {
+                throw new IOException("No start point given");
+            }
+            if (start[0] < 0 || start[0] >= grid.getWidth() || start[1] < 0 || start[1] >= grid.getHeight()) {
+                throw new IOException("Start point is outside the image");
+            }
+            grid.setStartPoint(start[1] * grid.getWidth() + start[0]);
+            return new Result(file, grid.getWidth(), grid.getHeight(), start[0], start[1], grid.estimateArea(),
+                    System.nanoTime() - startTime, null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(file, grid == null ? 0 : grid.getWidth(), grid == null ? 0 : grid.getHeight(),
+                    start == null ? -1 : start[0], start == null ? -1 : start[1], -1,
+                    System.nanoTime() - startTime, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Decodes a PBM or PNG file into a {@link PackedGrid}.
+     */
+    static PackedGrid decode(Path file) throws IOException {
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pbm")) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                return PbmFormat.readPacked(in);
+            }
+        }
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        PackedGrid grid = new PackedGrid(image.getWidth(), image.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int argb = image.getRGB(x, y);
+                int luminance = (299 * ((argb >> 16) & 0xFF) + 587 * ((argb >> 8) & 0xFF) + 114 * (argb & 0xFF)) / 1000;
+                // Opaque dark pixels are painted
+                if ((argb >>> 24) >= 128 && luminance < 128) {
+                    grid.setPainted(x, y, true);
+                }
+            }
+        }
+        return grid;
+    }
+
+    static int[] parseStart(String value) throws IOException {
+        String[] parts = value.trim().split("\\s+");
+        if (parts.length != 2) {
+            throw new IOException("Start point must be two coordinates, got \"" + value + "\"");
+        }
+        try {
+            return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        } catch (NumberFormatException e) {
+            throw new IOException("Start point must be two integers, got \"" + value + "\"");
+        }
+    }
+
+    static String requireValue(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static String toCsv(Result result) {
+        return csvField(result.file.getFileName().toString()) + "," + result.width + "," + result.height + ","
+                + result.startX + "," + result.startY + "," + result.area + ","
+                + String.format(Locale.ROOT, "%.3f", result.nanos / 1e6) + ","
+                + (result.error == null ? "" : csvField(result.error)) + "\n";
+    }
+
+    private static String csvField(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static String toJson(Result result) {
+        return "{\"file\":" + jsonString(result.file.getFileName().toString())
+                + ",\"width\":" + result.width + ",\"height\":" + result.height
+                + ",\"startX\":" + result.startX + ",\"startY\":" + result.startY
+                + ",\"area\":" + result.area
+                + ",\"millis\":" + String.format(Locale.ROOT, "%.3f", result.nanos / 1e6)
+                + ",\"error\":" + (result.error == null ? "null" : jsonString(result.error)) + "}\n";
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
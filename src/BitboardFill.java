@@ -0,0 +1,249 @@
+/**
+ * Word-parallel {@link AreaEngine} that works on 64 cells at a time.
+ * <p>
+ * The {@link CellStates#DEFAULT} and {@link CellStates#PAINTED} cells of each row are packed into
+ * {@code long} bitboards. The area grows from the start point by shift-and-mask dilation until no row
+ * changes, and is counted with {@link Long#bitCount(long)}.
+ */
+class BitboardFill implements AreaEngine {
+
+    @Override
+    public long estimateArea(GridModel model) {
+        if (model.getStartPoint() < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        int width = model.getWidth();
+        int height = model.getHeight();
+        int words = (width + 63) >>> 6;
+        long[] open = new long[height * words];
+        long[] painted = new long[height * words];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                switch (model.getState(y * width + x)) {
+                    case DEFAULT -> open[y * words + (x >>> 6)] |= 1L << x;
+                    case PAINTED -> painted[y * words + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+        return estimateArea(open, painted, width, height, model.getStartPoint());
+    }
+
+    /**
+     * Estimates the area of a {@link PackedGrid}, whose clear cells are {@link CellStates#DEFAULT}.
+     *
+     * @param grid {@link PackedGrid} object to estimate.
+     * @param startX Column of the start point, treated as the {@link CellStates#START_POINT}.
+     * @param startY Row of the start point.
+     * @return The number of cells counted, including the start point.
+     */
+    static long estimateArea(PackedGrid grid, int startX, int startY) {
+        int width = grid.getWidth();
+        int words = grid.getWords();
+        long[] painted = grid.toWords();
+        long[] open = new long[painted.length];
+        long lastWordMask = (width & 63) == 0 ? -1L : -1L >>> (64 - (width & 63));
+        for (int i = 0; i < painted.length; i++) {
+            open[i] = ~painted[i] & (i % words == words - 1 ? lastWordMask : -1L);
+        }
+        int startWord = startY * words + (startX >>> 6);
+        open[startWord] &= ~(1L << startX);
+        painted[startWord] &= ~(1L << startX);
+        return estimateArea(open, painted, width, grid.getHeight(), startY * width + startX);
+    }
+
+    /**
+     * Estimates the area over already packed bitboards.
+     *
+     * @param open Row-major bitboard of {@link CellStates#DEFAULT} cells.
+     * @param painted Row-major bitboard of {@link CellStates#PAINTED} cells.
+     * @param width The number of cells in each row.
+     * @param height The number of rows.
+     * @param startPoint ID of the starting cell.
+     * @return The number of cells counted, including the start point.
+     */
+    static long estimateArea(long[] open, long[] painted, int width, int height, int startPoint) {
+        int words = (width + 63) >>> 6;
+        int startX = startPoint % width;
+        int startY = startPoint / width;
+
+        // Seed the area with the start point's von Neumann neighbourhood
+        long[] start = new long[height * words];
+        setBit(start, words, startX, startY);
+        long[] area = new long[height * words];
+        boolean[] active = new boolean[height];
+        if (startX > 0) {
+            setBit(area, words, startX - 1, startY);
+        }
+        if (startX < width - 1) {
+            setBit(area, words, startX + 1, startY);
+        }
+        if (startY > 0) {
+            setBit(area, words, startX, startY - 1);
+        }
+        if (startY < height - 1) {
+            setBit(area, words, startX, startY + 1);
+        }
+        for (int i = 0; i < area.length; i++) {
+            area[i] &= open[i];
+        }
+        // The seeded rows and the rows either side of them all need a first dilation
+        for (int y = Math.max(0, startY - 2); y <= Math.min(height - 1, startY + 2); y++) {
+            active[y] = true;
+        }
+
+        // Dilate until nothing changes, sweeping down then up so changes carry through in one pass
+        boolean anyActive = true;
+        while (anyActive) {
+            anyActive = false;
+            for (int y = 0; y < height; y++) {
+                anyActive |= dilateRow(area, open, active, words, height, y);
+            }
+            for (int y = height - 1; y >= 0; y--) {
+                anyActive |= dilateRow(area, open, active, words, height, y);
+            }
+        }
+
+        // Boundary cells are painted cells touching the area or the start point
+        long[] boundary = new long[height * words];
+        long total = 1;
+        for (int y = 0; y < height; y++) {
+            int row = y * words;
+            for (int i = 0; i < words; i++) {
+                long reached = area[row + i] | start[row + i];
+                long touching = (reached << 1) | (reached >>> 1);
+                if (i > 0) {
+                    touching |= (area[row + i - 1] | start[row + i - 1]) >>> 63;
+                }
+                if (i < words - 1) {
+                    touching |= (area[row + i + 1] | start[row + i + 1]) << 63;
+                }
+                if (y > 0) {
+                    touching |= area[row - words + i] | start[row - words + i];
+                }
+                if (y < height - 1) {
+                    touching |= area[row + words + i] | start[row + words + i];
+                }
+                boundary[row + i] = touching & painted[row + i];
+                total += Long.bitCount(area[row + i]);
+            }
+        }
+
+        // Replay the corner check: a painted cell is counted if a painted neighbour to its left or above
+        // was counted, or one to its right or below is a boundary cell
+        long[] previous = new long[words];
+        long[] counted = new long[words];
+        for (int y = 0; y < height; y++) {
+            int row = y * words;
+            long carry = 0;
+            for (int i = 0; i < words; i++) {
+                long seeds = boundary[row + i] >>> 1;
+                if (i < words - 1) {
+                    seeds |= boundary[row + i + 1] << 63;
+                }
+                if (y < height - 1) {
+                    seeds |= boundary[row + words + i];
+                }
+                seeds = boundary[row + i] | ((seeds | previous[i] | carry) & painted[row + i]);
+                counted[i] = fillUp(seeds, painted[row + i]);
+                carry = counted[i] >>> 63;
+                total += Long.bitCount(counted[i]);
+            }
+            long[] swap = previous;
+            previous = counted;
+            counted = swap;
+        }
+        return total;
+    }
+
+    /**
+     * Grows the area in an active row from the rows above and below, then across the row itself.
+     *
+     * @return Whether the row changed.
+     */
+    private static boolean dilateRow(long[] area, long[] open, boolean[] active, int words, int height, int y) {
+        if (!active[y]) {
+            return false;
+        }
+        active[y] = false;
+        int row = y * words;
+        boolean changed = false;
+        // Grow vertically and then rightwards, carrying across words
+        long carry = 0;
+        for (int i = 0; i < words; i++) {
+            long grown = area[row + i] | (carry & open[row + i]);
+            if (y > 0) {
+                grown |= area[row - words + i] & open[row + i];
+            }
+            if (y < height - 1) {
+                grown |= area[row + words + i] & open[row + i];
+            }
+            grown = fillUp(grown, open[row + i]);
+            carry = grown >>> 63;
+            changed |= grown != area[row + i];
+            area[row + i] = grown;
+        }
+        // Then leftwards
+        carry = 0;
+        for (int i = words - 1; i >= 0; i--) {
+            long grown = fillDown(area[row + i] | ((carry << 63) & open[row + i]), open[row + i]);
+            carry = grown & 1;
+            changed |= grown != area[row + i];
+            area[row + i] = grown;
+        }
+        if (changed) {
+            if (y > 0) {
+                active[y - 1] = true;
+            }
+            if (y < height - 1) {
+                active[y + 1] = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Kogge-Stone occluded fill towards higher bits.
+     *
+     * @param seeds Bits to fill from; must be a subset of {@code mask}.
+     * @param mask Bits the fill may pass through.
+     * @return Every bit of {@code mask} reachable from {@code seeds} moving towards higher bits.
+     */
+    static long fillUp(long seeds, long mask) {
+        seeds |= mask & (seeds << 1);
+        mask &= mask << 1;
+        seeds |= mask & (seeds << 2);
+        mask &= mask << 2;
+        seeds |= mask & (seeds << 4);
+        mask &= mask << 4;
+        seeds |= mask & (seeds << 8);
+        mask &= mask << 8;
+        seeds |= mask & (seeds << 16);
+        mask &= mask << 16;
+        return seeds | (mask & (seeds << 32));
+    }
+
+    /**
+     * Kogge-Stone occluded fill towards lower bits.
+     *
+     * @param seeds Bits to fill from; must be a subset of {@code mask}.
+     * @param mask Bits the fill may pass through.
+     * @return Every bit of {@code mask} reachable from {@code seeds} moving towards lower bits.
+     */
+    static long fillDown(long seeds, long mask) {
+        seeds |= mask & (seeds >>> 1);
+        mask &= mask >>> 1;
+        seeds |= mask & (seeds >>> 2);
+        mask &= mask >>> 2;
+        seeds |= mask & (seeds >>> 4);
+        mask &= mask >>> 4;
+        seeds |= mask & (seeds >>> 8);
+        mask &= mask >>> 8;
+        seeds |= mask & (seeds >>> 16);
+        mask &= mask >>> 16;
+        return seeds | (mask & (seeds >>> 32));
+    }
+
+    private static void setBit(long[] board, int words, int x, int y) {
+        board[y * words + (x >>> 6)] |= 1L << x;
+    }
+}
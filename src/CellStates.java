@@ -1,29 +1,29 @@
 /**
- * Stores all possible states a {@link Cell} can be in.
+ * Stores all possible states a cell of a {@link GridModel} can be in.
  */
 enum CellStates {
     /**
      * The default state.
      *
-     * @see Cell#defaultColor
+     * @see GridCanvas#defaultColor
      */
     DEFAULT,
     /**
      * Once the cell has been painted.
      *
-     * @see Cell#paintedColor
+     * @see GridCanvas#paintedColor
      */
     PAINTED,
     /**
      * When a cell has been flagged as the starting point for the algorithm.
      *
-     * @see Cell#startPointColor
+     * @see GridCanvas#startPointColor
      */
     START_POINT,
     /**
      * When the cell is representing the shape area.
      *
-     * @see Cell#areaColor
+     * @see GridCanvas#areaColor
      */
     AREA
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+/**
+ * Which cells count as neighbours of a cell.
+ * <p>
+ * Each neighbourhood lists its neighbours as column and row steps, so a grid laid out in rows of a
+ * fixed stride can turn them into index offsets once and reuse them for every cell.
+ */
+enum Connectivity {
+    /**
+     * The four cells sharing an edge: left, above, right, below.
+     */
+    VON_NEUMANN(new int[]{-1, 0, 1, 0}, new int[]{0, -1, 0, 1}),
+    /**
+     * The eight cells sharing an edge or a corner: left, above, right, below, then above left,
+     * above right, below left, below right.
+     */
+    MOORE(new int[]{-1, 0, 1, 0, -1, 1, -1, 1}, new int[]{0, -1, 0, 1, -1, -1, 1, 1});
+
+    private final int[] columnSteps;
+    private final int[] rowSteps;
+
+    Connectivity(int[] columnSteps, int[] rowSteps) {
+        this.columnSteps = columnSteps;
+        this.rowSteps = rowSteps;
+    }
+
+    /**
+     * @return The number of neighbours of a cell away from the edge of the grid.
+     */
+    public int size() {
+        return columnSteps.length;
+    }
+
+    /**
+     * Converts the neighbourhood into index offsets for a row-major layout.
+     *
+     * @param stride The distance between the indices of vertically adjacent cells.
+     * @return The offset of each neighbour, in the order listed by this neighbourhood.
+     */
+    public int[] offsets(int stride) {
+        int[] offsets = new int[columnSteps.length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = rowSteps[i] * stride + columnSteps[i];
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * Counts the corner cells of a filled region by walking outwards from its boundary, and measures the
+ * perimeter of the resulting shape.
+ * <p>
+ * {@link AreaEstimator}'s corner check counts a {@link CellStates#PAINTED} cell if it is a boundary
+ * cell, if the painted cell to its right or below is a boundary cell, or if the painted cell to its left
+ * or above was counted. Rather than sweeping the whole grid for such cells, the walk starts from the
+ * boundary cells the fill found and follows the painted cells to the right and below them, so its cost
+ * is proportional to the number of cells counted rather than the size of the grid.
+ */
+class ContourTracer {
+    private final GridModel model;
+    /**
+     * Counted painted cells whose right and lower neighbours are still to be checked.
+     */
+    private int[] pending = new int[64];
+    private int pendingCount;
+    /**
+     * Every painted cell counted by the current trace, boundary cells included.
+     */
+    private int[] traced = new int[64];
+    private int tracedCount;
+    private long perimeter;
+
+    // Counters for the current trace
+    private long cellsVisited;
+    private long neighbourLookups;
+    private int maxStackSize;
+
+    public ContourTracer(GridModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Counts the corner cells around a completed fill and marks them as counted.
+     *
+     * @param boundaryCells The boundary cells counted by the fill.
+     * @return The number of corner cells counted, excluding the boundary cells.
+     */
+    public int trace(int[] boundaryCells) {
+        int width = model.getWidth();
+        pendingCount = 0;
+        tracedCount = 0;
+        maxStackSize = 0;
+        for (int id : boundaryCells) {
+            push(id);
+        }
+        int cornerCells = 0;
+        // The painted cells to the left of and above a boundary cell count, as the check reaches them first
+        for (int id : boundaryCells) {
+            if (id % width > 0 && count(id - 1)) {
+                cornerCells++;
+            }
+            if (id >= width && count(id - width)) {
+                cornerCells++;
+            }
+        }
+        // Counting then carries on to the right and downwards through painted cells
+        while (pendingCount > 0) {
+            int id = pending[--pendingCount];
+            if (id % width < width - 1 && count(id + 1)) {
+                cornerCells++;
+            }
+            if (id + width < model.size() && count(id + width)) {
+                cornerCells++;
+            }
+        }
+        // Each boundary cell has two seeds checked, and every counted cell two neighbours
+        neighbourLookups = 2L * boundaryCells.length + 2L * tracedCount;
+        cellsVisited = tracedCount;
+        perimeter = measurePerimeter();
+        return cornerCells;
+    }
+
+    /**
+     * @return The number of cell edges between the last traced shape and the cells or grid edges
+     * around it, where the shape is the start point, the filled area and every counted painted cell.
+     */
+    public long getPerimeter() {
+        return perimeter;
+    }
+
+    /**
+     * @return The number of boundary and corner cells the last trace walked through.
+     */
+    public long getCellsVisited() {
+        return cellsVisited;
+    }
+
+    /**
+     * @return The number of neighbouring cells the last trace checked for corners.
+     */
+    public long getNeighbourLookups() {
+        return neighbourLookups;
+    }
+
+    /**
+     * @return The most cells that were waiting to be walked at once during the last trace.
+     */
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    /**
+     * Counts a painted cell that has not been counted yet.
+     *
+     * @return Whether the cell was counted.
+     */
+    private boolean count(int id) {
+        if (model.getState(id) != CellStates.PAINTED || model.hasBeenCounted(id)) {
+            return false;
+        }
+        model.setBeenCounted(id, true);
+        push(id);
+        return true;
+    }
+
+    private void push(int id) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = id;
+        maxStackSize = Math.max(maxStackSize, pendingCount);
+        if (tracedCount == traced.length) {
+            traced = Arrays.copyOf(traced, tracedCount * 2);
+        }
+        traced[tracedCount++] = id;
+    }
+
+    /**
+     * Sums the exposed edges of the counted painted cells, and the grid edges along the filled area.
+     * <p>
+     * Every painted cell next to the filled area is counted, so the area itself can only be exposed
+     * at the edge of the grid.
+     */
+    private long measurePerimeter() {
+        int width = model.getWidth();
+        int height = model.getHeight();
+        int[] neighbours = new int[4];
+        long edges = 0;
+        for (int i = 0; i < tracedCount; i++) {
+            int id = traced[i];
+            int neighbourCount = model.getNeighbours(id, neighbours);
+            // Sides without a neighbour face the edge of the grid
+            edges += 4 - neighbourCount;
+            for (int j = 0; j < neighbourCount; j++) {
+                if (!isInShape(neighbours[j])) {
+                    edges++;
+                }
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            edges += exposedGridEdges(model.index(x, 0));
+            if (height > 1) {
+                edges += exposedGridEdges(model.index(x, height - 1));
+            }
+        }
+        for (int y = 1; y < height - 1; y++) {
+            edges += exposedGridEdges(model.index(0, y));
+            if (width > 1) {
+                edges += exposedGridEdges(model.index(width - 1, y));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * @return The number of sides of a cell filled by this run or the start point that face the edge of
+     * the grid.
+     */
+    private int exposedGridEdges(int id) {
+        CellStates state = model.getState(id);
+        if (state != CellStates.START_POINT && !(state == CellStates.AREA && model.hasBeenCounted(id))) {
+            return 0;
+        }
+        int x = id % model.getWidth();
+        int y = id / model.getWidth();
+        int edges = 0;
+        if (x == 0) {
+            edges++;
+        }
+        if (x == model.getWidth() - 1) {
+            edges++;
+        }
+        if (y == 0) {
+            edges++;
+        }
+        if (y == model.getHeight() - 1) {
+            edges++;
+        }
+        return edges;
+    }
+
+    private boolean isInShape(int id) {
+        // Area cells from an earlier run only belong to the shape if this run filled them again
+        return switch (model.getState(id)) {
+            case START_POINT -> true;
+            case AREA, PAINTED -> model.hasBeenCounted(id);
+            default -> false;
+        };
+    }
+}
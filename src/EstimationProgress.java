@@ -0,0 +1,48 @@
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Hook called from an estimation's hot loop to report progress and check for cancellation.
+ * <p>
+ * Progress is forwarded at most once per interval, so the loop can report as often as it likes
+ * without flooding whatever displays it.
+ */
+class EstimationProgress {
+    /**
+     * Receives the throttled progress, on the estimating thread.
+     */
+    private final LongConsumer sink;
+    private final long intervalNanos;
+    private final BooleanSupplier cancelled;
+    private long lastReport;
+
+    /**
+     * @param sink Receives the number of cells counted so far.
+     * @param intervalNanos The minimum time between reports.
+     * @param cancelled Checked on every update; the estimation stops once it returns {@code true}.
+     */
+    public EstimationProgress(LongConsumer sink, long intervalNanos, BooleanSupplier cancelled) {
+        this.sink = sink;
+        this.intervalNanos = intervalNanos;
+        this.cancelled = cancelled;
+        this.lastReport = System.nanoTime();
+    }
+
+    /**
+     * Reports the current count, forwarding it if the interval has passed since the last report.
+     *
+     * @param countedCells The number of cells counted so far.
+     * @throws CancellationException If the estimation has been cancelled.
+     */
+    public void update(long countedCells) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Area estimation cancelled");
+        }
+        long now = System.nanoTime();
+        if (now - lastReport >= intervalNanos) {
+            lastReport = now;
+            sink.accept(countedCells);
+        }
+    }
+}
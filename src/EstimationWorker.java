@@ -0,0 +1,131 @@
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link AreaEstimator} on a background thread so the Swing event thread stays responsive.
+ * <p>
+ * The estimation runs on a copy of the {@link GridModel}, so no listeners or {@link GridCanvas} colours are
+ * touched off the event thread. The filled area is copied back once it completes. Progress is
+ * published at most once per animation frame, and {@link SwingWorker#cancel(boolean)} stops the
+ * estimation at its next progress check. A run whose model is reset should be
+ * {@link EstimationWorker#discard() discarded} instead, as it may already have completed.
+ */
+class EstimationWorker extends SwingWorker<Integer, Long> {
+    private final GridModel model;
+    private final ProgressListener listener;
+    /**
+     * The copy being estimated.
+     */
+    private final GridModel copy;
+    /**
+     * Receives the run's metrics on the background thread, or {@code null} for none.
+     */
+    private MetricsListener metricsListener;
+    /**
+     * Whether to index the counted shape once it has been copied back.
+     */
+    private boolean indexArea;
+    /**
+     * The index of the counted shape in the original model, or {@code null} until the run completes.
+     */
+    private AreaIndex areaIndex;
+    /**
+     * Whether the run's result should be dropped, even if it has already completed.
+     */
+    private boolean discarded;
+
+    /**
+     * @param model {@link GridModel} object to estimate. Must only be modified on the Swing event thread.
+     * @param listener Receives progress and the result on the Swing event thread.
+     */
+    public EstimationWorker(GridModel model, ProgressListener listener) {
+        if (model.getStartPoint() < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        this.model = model;
+        this.listener = listener;
+        // Take the copy now, while still on the thread that owns the model
+        this.copy = model.copy();
+    }
+
+    @Override
+    protected Integer doInBackground() {
+        AreaEstimator estimator = new AreaEstimator(copy);
+        estimator.setMetricsListener(metricsListener);
+        estimator.runAlgorithm(new EstimationProgress(this::publish,
+                TimeUnit.MILLISECONDS.toNanos(AreaEstimator.FRAME_MILLIS), this::isCancelled));
+        return estimator.getTotalCountedCells();
+    }
+
+    /**
+     * Sets the listener for the run's metrics, which is called on the background thread.
+     * Must be called before {@link SwingWorker#execute()}.
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Sets whether to build an {@link AreaIndex} of the original model once the run completes.
+     * Must be called before {@link SwingWorker#execute()}.
+     */
+    public void setIndexArea(boolean indexArea) {
+        this.indexArea = indexArea;
+    }
+
+    /**
+     * @return The index of the counted shape, built on the Swing event thread before
+     * {@link ProgressListener#finished(long)} is called, or {@code null} if indexing is off or the run
+     * has not completed.
+     */
+    public AreaIndex getAreaIndex() {
+        return areaIndex;
+    }
+
+    /**
+     * Stops the run and drops its result, so nothing is copied back and the listener is not called
+     * again. Unlike {@link SwingWorker#cancel(boolean)}, this also holds for a run that has completed
+     * in the background but whose {@link SwingWorker#done()} has not run yet.
+     * Must be called on the Swing event thread.
+     */
+    public void discard() {
+        discarded = true;
+        cancel(false);
+    }
+
+    @Override
+    protected void process(List<Long> chunks) {
+        if (discarded) {
+            return;
+        }
+        // Only the latest count matters
+        listener.progressChanged(chunks.get(chunks.size() - 1));
+    }
+
+    @Override
+    protected void done() {
+        if (discarded) {
+            return;
+        }
+        if (isCancelled()) {
+            listener.cancelled();
+            return;
+        }
+        int area;
+        try {
+            area = get();
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            listener.cancelled();
+            return;
+        }
+        // Copy the filled area back in one go, leaving any cells edited since the run started alone
+        model.copyRun(copy);
+        if (indexArea) {
+            areaIndex = new AreaIndex(model);
+        }
+        listener.finished(area);
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Estimates the area of a shape that changes over time, given as a sequence of grid frames.
+ * <p>
+ * Each frame is diffed against the previous one a word at a time with XOR, so unchanged stretches of
+ * the grid cost one comparison per 64 cells. Only the cells that changed are replayed into a
+ * {@link GridModel}, where an {@link IncrementalAreaEstimator} repairs the area around them rather than
+ * recounting it. Frames that change a large part of the grid are applied silently and the area rebuilt
+ * in one pass instead, as replaying that many cells would cost more. The area of every frame is kept
+ * as a series, and always matches what {@link AreaEstimator#runAlgorithm()} would count on the frame.
+ * <p>
+ * Usage: {@code java Main --frames <dir> --start x,y [--out areas.csv]}, where the frames are the P4
+ * bitmaps in the directory in name order.
+ */
+class FrameSequenceEstimator {
+    /**
+     * Frames changing more than one cell in this many are rebuilt rather than replayed.
+     */
+    private static final int REBUILD_DIVISOR = 16;
+
+    private final int width;
+    private final int height;
+    /**
+     * The number of words in each row.
+     */
+    private final int words;
+    private final int startPoint;
+    /**
+     * The grid as of the last frame, with the start point marked.
+     */
+    private final GridModel model;
+    /**
+     * The live estimate, or {@code null} until the first frame.
+     */
+    private IncrementalAreaEstimator estimator;
+    /**
+     * The painted bits of the last frame, {@link FrameSequenceEstimator#words} words per row.
+     */
+    private final long[] previous;
+    /**
+     * The area of every frame accepted so far.
+     */
+    private long[] areas = new long[64];
+    private int frameCount;
+    /**
+     * The number of cells that changed in the last frame.
+     */
+    private long changedCells;
+
+    /**
+     * Initialises an estimator for a sequence of frames sharing a size and start point.
+     *
+     * @param width The number of cells in each row.
+     * @param height The number of rows.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     */
+    public FrameSequenceEstimator(int width, int height, int startX, int startY) {
+        if (startX < 0 || startX >= width || startY < 0 || startY >= height) {
+            throw new IllegalArgumentException("Start point (" + startX + ", " + startY + ") is outside the grid");
+        }
+        this.model = new GridModel(width, height);
+        this.width = width;
+        this.height = height;
+        this.words = (width + 63) >>> 6;
+        this.startPoint = model.index(startX, startY);
+        this.previous = new long[Math.multiplyExact(words, height)];
+        model.setStartPoint(startPoint);
+        model.setState(startPoint, CellStates.START_POINT);
+    }
+
+    /**
+     * Entry point for frame sequence mode.
+     *
+     * @param args Command line args, starting with {@code --frames}.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = null;
+        Path out = null;
+        int[] start = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames" -> directory = Paths.get(BatchEstimator.requireValue(args, ++i));
+                case "--start" -> start = BatchEstimator.parseStart(BatchEstimator.requireValue(args, ++i).replace(',', ' '));
+                case "--out" -> out = Paths.get(BatchEstimator.requireValue(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (directory == null || start == null) {
+            throw new IllegalArgumentException("Usage: --frames <dir> --start x,y [--out areas.csv]");
+        }
+        ArrayList<Path> frames = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{pbm,PBM}")) {
+            files.forEach(frames::add);
+        }
+        frames.sort(null);
+        Writer writer = out == null ? new BufferedWriter(new OutputStreamWriter(System.out)) : Files.newBufferedWriter(out);
+        try {
+            writer.write("frame,file,area,changed_cells,millis\n");
+            FrameSequenceEstimator sequence = null;
+            for (Path frame : frames) {
+                PackedGrid grid;
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(frame))) {
+                    grid = PbmFormat.readPacked(in);
+                }
+                if (sequence == null) {
+                    sequence = new FrameSequenceEstimator(grid.getWidth(), grid.getHeight(), start[0], start[1]);
+                }
+                long startTime = System.nanoTime();
+                long area = sequence.acceptFrame(grid);
+                writer.write(sequence.getFrameCount() - 1 + "," + frame.getFileName() + "," + area + ","
+                        + sequence.getChangedCells() + ","
+                        + String.format(Locale.ROOT, "%.3f", (System.nanoTime() - startTime) / 1e6) + "\n");
+            }
+        } finally {
+            if (out == null) {
+                writer.flush();
+            } else {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Accepts the next frame and works out its area.
+     *
+     * @param frame {@link PackedGrid} of the frame's painted cells, the same size as every other frame.
+     * @return The number of cells counted, including the start point.
+     */
+    public long acceptFrame(PackedGrid frame) {
+        if (frame.getWidth() != width || frame.getHeight() != height) {
+            throw new IllegalArgumentException("Frame is " + frame.getWidth() + "x" + frame.getHeight()
+                    + ", expected " + width + "x" + height);
+        }
+        return acceptFrame(frame.toWords());
+    }
+
+    /**
+     * Accepts the next frame and works out its area.
+     *
+     * @param painted The frame's painted cells, {@code (width + 63) / 64} words per row, where bit
+     *                {@code x & 63} of a row's word {@code x >>> 6} holds column {@code x}. Bits past the
+     *                width are ignored. Not retained.
+     * @return The number of cells counted, including the start point.
+     */
+    public long acceptFrame(long[] painted) {
+        if (painted.length != previous.length) {
+            throw new IllegalArgumentException("Frame has " + painted.length + " words, expected " + previous.length);
+        }
+        // Count the changes first, to choose between replaying and rebuilding
+        long changes = 0;
+        for (int y = 0; y < height; y++) {
+            for (int word = 0; word < words; word++) {
+                changes += Long.bitCount(diff(painted, y, word));
+            }
+        }
+        changedCells = changes;
+        boolean rebuild = estimator == null || changes > model.size() / REBUILD_DIVISOR;
+        if (rebuild && estimator != null) {
+            estimator.detach();
+        }
+        if (changes > 0) {
+            applyChanges(painted);
+        }
+        if (rebuild) {
+            estimator = new IncrementalAreaEstimator(model);
+        }
+        long area = estimator.getArea();
+        if (frameCount == areas.length) {
+            areas = Arrays.copyOf(areas, frameCount * 2);
+        }
+        areas[frameCount++] = area;
+        return area;
+    }
+
+    /**
+     * Replays every changed cell into the model, visiting only the set bits of each XOR.
+     */
+    private void applyChanges(long[] painted) {
+        for (int y = 0; y < height; y++) {
+            int row = y * words;
+            for (int word = 0; word < words; word++) {
+                long diff = diff(painted, y, word);
+                if (diff == 0) {
+                    continue;
+                }
+                previous[row + word] ^= diff;
+                for (long bits = diff; bits != 0; bits &= bits - 1) {
+                    int id = y * width + (word << 6) + Long.numberOfTrailingZeros(bits);
+                    // The start point is never painted, whatever the frame holds
+                    if (id != startPoint) {
+                        boolean isPainted = (painted[row + word] & Long.lowestOneBit(bits)) != 0;
+                        model.setState(id, isPainted ? CellStates.PAINTED : CellStates.DEFAULT);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The bits of a word that differ from the last frame, ignoring any bits past the width.
+     */
+    private long diff(long[] painted, int y, int word) {
+        long diff = painted[y * words + word] ^ previous[y * words + word];
+        if (word == words - 1 && (width & 63) != 0) {
+            diff &= -1L >>> (64 - (width & 63));
+        }
+        return diff;
+    }
+
+    /**
+     * @return The area of every frame accepted so far, in order.
+     */
+    public long[] getAreaSeries() {
+        return Arrays.copyOf(areas, frameCount);
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+    /**
+     * @return The number of cells that changed in the last frame, or every painted cell for the first.
+     */
+    public long getChangedCells() {
+        return changedCells;
+    }
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+}
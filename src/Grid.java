@@ -1,5 +1,3 @@
-import com.sun.jdi.InternalException;
-
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
@@ -12,23 +10,19 @@ import java.util.ArrayList;
  */
 public class Grid {
     /**
-     * Array of {@link Cell} objects for data manipulation within {@link Grid}.
+     * The headless {@link GridModel} holding the state of every cell in the grid.
      */
-    private Cell[] cells;
+    private GridModel model;
     /**
-     * The number of {@link Cell} objects that make up each row and column in the grid.
+     * The number of cells that make up each row and column in the grid.
      */
     private int numberOfCells;
-    /**
-     * The starting cell for where the algorithm will begin.
-     */
-    private Cell startPoint = null;
 
     // Content panel
     /**
-     * Constructs {@link JPanel} object.
+     * The {@link GridCanvas} that draws the grid.
      */
-    private JPanel panel;
+    private GridCanvas canvas;
 
     // Mouse information
     /**
@@ -45,115 +39,79 @@ public class Grid {
     private CellStates dragPaintState = CellStates.PAINTED;
 
     /**
-     * Initialises {@link Grid} object, creating all {@link Cell} objects in the grid.
+     * Initialises {@link Grid} object, creating the model and canvas for every cell in the grid.
      * <p>
      * The grid will always be square for simplicity.
      *
      * @param numberOfCells The number of cells that make up each row and column.
      */
     public Grid(int numberOfCells) {
-        // Validation
-        final int maxNumberOfCells = 128;
-        final int minCellSize = 2;
-
-        int cellSize = (int) Math.floor((float) Toolkit.getDefaultToolkit().getScreenSize().height/numberOfCells);
-        // Validation of args
-        if (numberOfCells > maxNumberOfCells) {
-            throw new InternalException("Having that many cells in the grid will cause the program to hang! Please try a number less than " + maxNumberOfCells+1);
-        } else if (cellSize < minCellSize) {
-            throw new InternalException("Cell size must be greater than " + minCellSize);
-        }
-
-        // Create the grid layout formatting and build the grid
+        // Create the model and canvas and build the grid
         buildGrid(numberOfCells);
     }
 
     /**
-     * Builds a grid of {@link Cell} objects of row and column size equal to
-     * numberOfCells.
+     * Builds a grid of row and column size equal to numberOfCells.
+     * <p>
+     * Cells are scaled to fit the screen, so grids with more cells than the screen has pixels are
+     * drawn at less than a pixel per cell. If the grid is already this size its model and canvas are
+     * cleared and reused rather than reallocated.
      *
      * @param numberOfCells The number of cells that make up each row and column.
      */
     public void buildGrid(int numberOfCells) {
-        // Panel setup
-        panel = new JPanel();
-        GridBagConstraints gridBagConstraints = new GridBagConstraints();
-        panel.setLayout(new GridBagLayout());
-
-        // Variables
+        if (numberOfCells <= 0) {
+            throw new IllegalArgumentException("Number of cells must be positive, got " + numberOfCells);
+        }
+        if (model != null && numberOfCells == this.numberOfCells) {
+            model.clear();
+            return;
+        }
         this.numberOfCells = numberOfCells;
-        int cellSize = (int) Math.floor((float) (Toolkit.getDefaultToolkit().getScreenSize().height-100)/numberOfCells);
-        cells = new Cell[numberOfCells * numberOfCells];
-
-        // For each row in the grid
-        for (int i = 0; i < numberOfCells; i++) {
-            // For each column in the grid
-            for (int j = 0; j < numberOfCells; j++) {
-                // Format the grid
-                gridBagConstraints.gridx = j;
-                gridBagConstraints.gridy = i;
-
-                // Create a Cell object in each position on the grid
-                int cellGridPosition = (i*numberOfCells) + j;
-                Cell cell = new Cell(this, cellGridPosition, cellSize);
-                // Add it to cells array and to the JPanel
-                cells[cellGridPosition] = cell;
-                panel.add(cell, gridBagConstraints);
-            }
+        double cellSize = Math.max(1, getScreenHeight() - 100) / (double) numberOfCells;
+        // Whole pixel cells look sharper when there is room for them
+        if (cellSize >= 1) {
+            cellSize = Math.floor(cellSize);
         }
+        model = new GridModel(numberOfCells, numberOfCells);
+        // The canvas keeps its colours in sync with the model, whoever changes it
+        canvas = new GridCanvas(this, cellSize);
     }
 
     /**
-     * Set the changedSinceClick property for every {@link Cell} to the same boolean value.
+     * Gets the height of the screen in pixels, or a typical height when there is no display so the
+     * grid can still be built headless (e.g. for benchmarks).
      *
-     * @param bool Arbitrary boolean value
+     * @return Screen height in pixels.
      */
-    public void setAllChangedSinceClick(boolean bool) {
-        for (Cell cell : cells) {
-            cell.setChangedSinceClick(bool);
+    private static int getScreenHeight() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return 1080;
         }
+        return Toolkit.getDefaultToolkit().getScreenSize().height;
     }
 
     /**
-     * Helper function to get the {@link Cell} neighbourhood the given cell.
+     * Helper function to get the von Neumann neighbourhood of the given cell.
+     * <p>
+     * Boxes every neighbour into a new list; {@link GridModel#getNeighbours(int, int[])} and
+     * {@link PaddedGrid#getNeighbours(int, Connectivity, int[])} avoid the allocation.
      *
      * @param id ID of a given cell.
-     * @return Array of {@link Cell} {@code null} or {@code null} values.
+     * @return List of the IDs of the neighbouring cells, in the order left, above, right, below.
      */
-    public ArrayList<Cell> getNeighbouringCells(int id) {
-        ArrayList<Cell> neighbourhood = new ArrayList<>();
-
-        // Cell to the left (-1,0)
-        // Add if cell is not in the first column
-        if (id % numberOfCells > 0) {
-            neighbourhood.add(cells[id - 1]);
-        }
-
-        // Cell above (0,+1)
-        // Add if cell is not in the first row
-        // floor(id/numberOfCells) gives the row index of the id
-        if ((int) Math.floor((float) id/numberOfCells) > 0) {
-            neighbourhood.add(cells[id - numberOfCells]);
-        }
-
-        // Cell to the right (+1,0)
-        // Add if cell is not in the last column
-        if (id % numberOfCells < numberOfCells-1) {
-            neighbourhood.add(cells[id + 1]);
+    public ArrayList<Integer> getNeighbouringCells(int id) {
+        int[] neighbours = new int[4];
+        int neighbourCount = model.getNeighbours(id, neighbours);
+        ArrayList<Integer> neighbourhood = new ArrayList<>(neighbourCount);
+        for (int i = 0; i < neighbourCount; i++) {
+            neighbourhood.add(neighbours[i]);
         }
-
-        // Cell below (0,-1)
-        // Add if cell is not in the last row
-        // floor(id/numberOfCells) == floor(cells[-1].id/numberOfCells)
-        if ((int) Math.floor((float) id/numberOfCells) < (int) Math.floor((float) cells[cells.length-1].getGridPosition()/numberOfCells)) {
-            neighbourhood.add(cells[id + numberOfCells]);
-        }
-
         return neighbourhood;
     }
 
-    public JPanel getPanel() {
-        return panel;
+    public JComponent getCanvas() {
+        return canvas;
     }
     public int getMouseButton() {
         return mouseButton;
@@ -167,13 +125,16 @@ public class Grid {
     public void setDragPaintState(CellStates dragPaintState) {
         this.dragPaintState = dragPaintState;
     }
-    public Cell getStartPoint() {
-        return startPoint;
+    /**
+     * @return ID of the start point cell, or -1 if none is set.
+     */
+    public int getStartPoint() {
+        return model.getStartPoint();
     }
-    public void setStartPoint(Cell cell) {
-        startPoint = cell;
+    public void setStartPoint(int startPoint) {
+        model.setStartPoint(startPoint);
     }
-    public Cell[] getCells() {
-        return cells;
+    public GridModel getModel() {
+        return model;
     }
-}
\ No newline at end of file
+}
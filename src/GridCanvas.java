@@ -0,0 +1,284 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Single component that draws every cell of a {@link Grid} and handles the mouse for all of them.
+ * <p>
+ * Cell colours are kept in a backing image with one pixel per cell, which is scaled up when painted.
+ * Changing a cell rewrites its pixel and repaints only the rectangle it covers, and the mouse position
+ * is turned into a cell by dividing by the cell size, so no component is created per cell.
+ */
+class GridCanvas extends JComponent implements GridModelListener {
+    // Colors
+    public static final Color defaultColor = new Color(230, 230, 230);
+    public static final Color paintedColor = new Color(0, 0, 0);
+    public static final Color startPointColor = new Color(200, 175, 70);
+    public static final Color areaColor = new Color(200, 100, 115);
+    public static final Color hoverColor = new Color(150, 150, 150);
+
+    private final Grid parentGrid;
+    private final GridModel model;
+    /**
+     * One pixel per cell, holding the colour of its state.
+     */
+    private final BufferedImage image;
+    /**
+     * The backing image's pixels in row-major order, so cell IDs index them directly.
+     */
+    private final int[] pixels;
+    /**
+     * Size of each square cell in pixels. May be below one for grids larger than the screen.
+     */
+    private final double cellSize;
+
+    // Mouse information
+    /**
+     * The cell under the mouse, or -1 if the mouse is outside the grid.
+     */
+    private int hoveredCell = -1;
+    /**
+     * The last cell painted by the current drag, or -1 if no drag is in progress.
+     */
+    private int lastDragCell = -1;
+
+    /**
+     * Initialises the canvas and adds the necessary {@link MouseAdapter} controls.
+     *
+     * @param parentGrid The {@link Grid} object the canvas draws.
+     * @param cellSize The size of each cell in pixels.
+     */
+    public GridCanvas(Grid parentGrid, double cellSize) {
+        this.parentGrid = parentGrid;
+        this.model = parentGrid.getModel();
+        this.cellSize = cellSize;
+        this.image = new BufferedImage(model.getWidth(), model.getHeight(), BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        // Initially colour every cell
+        for (int id = 0; id < model.size(); id++) {
+            pixels[id] = colorOf(model.getState(id)).getRGB();
+        }
+        model.addListener(this);
+
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            // Triggered when any button on the mouse is pressed down
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int id = cellAt(e.getX(), e.getY());
+                // Update parent grid properties to reflect this
+                parentGrid.setMouseButton(e.getButton());
+                if (id < 0) {
+                    return;
+                }
+                CellStates state = model.getState(id);
+                // Left click on cell
+                if (e.getButton() == MouseEvent.BUTTON1 && state != CellStates.START_POINT) {
+                    switch (state) {
+                        case DEFAULT -> model.setState(id, CellStates.PAINTED);
+                        case PAINTED -> model.setState(id, CellStates.DEFAULT);
+                    }
+                    parentGrid.setDragPaintState(model.getState(id));
+                    lastDragCell = id;
+                    // Always set the drag paint state to painted when starting on a start point for
+                    // convenience
+                } else if (e.getButton() == MouseEvent.BUTTON1) {
+                    parentGrid.setDragPaintState(CellStates.PAINTED);
+                    lastDragCell = id;
+                    // Right click on cell for start point
+                } else if (e.getButton() == MouseEvent.BUTTON3) {
+                    switch (state) {
+                        case DEFAULT:
+                            // Only add a start point cell if there are no others
+                            // The start point is moved first so model listeners see it with the new state
+                            if (model.getStartPoint() < 0) {
+                                model.setStartPoint(id);
+                                model.setState(id, CellStates.START_POINT);
+                            }
+                            break;
+                        // Remove the start point cell
+                        case START_POINT:
+                            model.setStartPoint(-1);
+                            model.setState(id, CellStates.DEFAULT);
+                            break;
+                    }
+                }
+            }
+
+            // Triggered when the mouse moves with a button held down, aka when the user is drag-painting
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                int id = cellAt(e.getX(), e.getY());
+                setHoveredCell(id);
+                if (parentGrid.getMouseButton() != MouseEvent.BUTTON1 || id < 0) {
+                    return;
+                }
+                if (lastDragCell < 0) {
+                    lastDragCell = id;
+                }
+                dragPaint(lastDragCell, id);
+                lastDragCell = id;
+            }
+
+            // Triggered when a pressed mouse button is released
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                // Update necessary parent grid properties
+                parentGrid.setMouseButton(0);
+                lastDragCell = -1;
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHoveredCell(cellAt(e.getX(), e.getY()));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHoveredCell(-1);
+            }
+        };
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+    }
+
+    /**
+     * Paints every cell on the straight line between two cells with the grid's drag paint state, so
+     * quick drags leave no gaps.
+     */
+    private void dragPaint(int from, int to) {
+        int width = model.getWidth();
+        int x = from % width;
+        int y = from / width;
+        int toX = to % width;
+        int toY = to / width;
+        int dx = Math.abs(toX - x);
+        int dy = -Math.abs(toY - y);
+        int stepX = x < toX ? 1 : -1;
+        int stepY = y < toY ? 1 : -1;
+        int error = dx + dy;
+        while (true) {
+            int id = model.index(x, y);
+            if (model.getState(id) != CellStates.START_POINT) {
+                model.setState(id, parentGrid.getDragPaintState());
+            }
+            if (x == toX && y == toY) {
+                return;
+            }
+            int doubled = 2 * error;
+            if (doubled >= dy) {
+                error += dy;
+                x += stepX;
+            }
+            if (doubled <= dx) {
+                error += dx;
+                y += stepY;
+            }
+        }
+    }
+
+    @Override
+    public void cellChanged(int id, CellStates oldState, CellStates newState) {
+        colorCell(id);
+    }
+
+    @Override
+    public void gridChanged(boolean shapeChanged) {
+        for (int id = 0; id < model.size(); id++) {
+            pixels[id] = colorOf(model.getState(id)).getRGB();
+        }
+        repaint();
+    }
+
+    /**
+     * Colour the cell depending on the cell state and repaint the area it covers.
+     *
+     * @param id ID of a given cell.
+     * @see GridModel#getState(int)
+     * @see CellStates
+     */
+    private void colorCell(int id) {
+        pixels[id] = colorOf(model.getState(id)).getRGB();
+        repaintCell(id);
+    }
+
+    private static Color colorOf(CellStates state) {
+        return switch (state) {
+            case PAINTED -> paintedColor;
+            case START_POINT -> startPointColor;
+            case AREA -> areaColor;
+            default -> defaultColor;
+        };
+    }
+
+    private void setHoveredCell(int id) {
+        if (id != hoveredCell) {
+            int previous = hoveredCell;
+            hoveredCell = id;
+            repaintCell(previous);
+            repaintCell(id);
+        }
+    }
+
+    /**
+     * Repaints the rectangle covered by a cell, if it is in the grid.
+     */
+    private void repaintCell(int id) {
+        if (id < 0) {
+            return;
+        }
+        int x = id % model.getWidth();
+        int y = id / model.getWidth();
+        int left = (int) Math.floor(x * cellSize);
+        int top = (int) Math.floor(y * cellSize);
+        repaint(left, top, (int) Math.ceil((x + 1) * cellSize) - left, (int) Math.ceil((y + 1) * cellSize) - top);
+    }
+
+    /**
+     * Finds the cell under a point on the canvas.
+     *
+     * @return ID of the cell, or -1 if the point is outside the grid.
+     */
+    private int cellAt(int pixelX, int pixelY) {
+        int x = (int) (pixelX / cellSize);
+        int y = (int) (pixelY / cellSize);
+        if (pixelX < 0 || pixelY < 0 || x >= model.getWidth() || y >= model.getHeight()) {
+            return -1;
+        }
+        return model.index(x, y);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.drawImage(image, 0, 0, getPreferredSize().width, getPreferredSize().height, null);
+        // Show the hover cursor only if the cell state is default
+        if (hoveredCell >= 0 && model.getState(hoveredCell) == CellStates.DEFAULT) {
+            int x = hoveredCell % model.getWidth();
+            int y = hoveredCell / model.getWidth();
+            int left = (int) Math.floor(x * cellSize);
+            int top = (int) Math.floor(y * cellSize);
+            g2.setColor(hoverColor);
+            g2.fillRect(left, top, Math.max(1, (int) Math.ceil((x + 1) * cellSize) - left),
+                    Math.max(1, (int) Math.ceil((y + 1) * cellSize) - top));
+        }
+    }
+
+    /**
+     * Handles setting the size of the canvas.
+     *
+     * @return {@link Dimension} object.
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension((int) Math.ceil(model.getWidth() * cellSize), (int) Math.ceil(model.getHeight() * cellSize));
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        return getPreferredSize();
+    }
+}
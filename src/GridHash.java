@@ -0,0 +1,108 @@
+/**
+ * Zobrist-style hash of a grid's shape, kept up to date as its cells change.
+ * <p>
+ * Every cell has a pseudo-random 64-bit key, and the hash is the XOR of the keys of the
+ * {@link CellStates#PAINTED} cells, mixed with keys for the grid's dimensions and start point. Painting
+ * or erasing a cell flips its key in or out, so each edit costs O(1). Keys are derived from the cell's
+ * ID with a mixing function rather than looked up in a table, so no per-cell memory is needed.
+ * <p>
+ * Only painted cells and the start point affect the area, so the {@link CellStates#AREA} cells left by
+ * a run do not change the hash. Two different shapes share a hash with a probability of about
+ * 2<sup>-64</sup>.
+ */
+class GridHash implements GridModelListener {
+    private final GridModel model;
+    /**
+     * XOR of the keys of every painted cell.
+     */
+    private long paintedHash;
+
+    /**
+     * Hashes the model and starts listening for changes to it.
+     *
+     * @param model {@link GridModel} object to hash.
+     */
+    public GridHash(GridModel model) {
+        this.model = model;
+        gridChanged(true);
+        model.addListener(this);
+    }
+
+    /**
+     * Hashes a packed grid the same way a {@link GridModel} with the same painted cells and start point
+     * would be hashed.
+     *
+     * @param grid {@link PackedGrid} object to hash.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     * @return The hash.
+     */
+    public static long of(PackedGrid grid, int startX, int startY) {
+        long painted = 0;
+        long[] row = new long[grid.getWords()];
+        for (int y = 0; y < grid.getHeight(); y++) {
+            grid.getRow(y, row);
+            for (int word = 0; word < row.length; word++) {
+                // Visit only the set bits of each word
+                for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                    int x = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    painted ^= cellKey(y * grid.getWidth() + x);
+                }
+            }
+        }
+        return combine(painted, grid.getWidth(), grid.getHeight(), startY * grid.getWidth() + startX);
+    }
+
+    /**
+     * Stops listening for changes to the model.
+     */
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    /**
+     * @return The hash of the model's current painted cells, dimensions and start point.
+     */
+    public long getHash() {
+        return combine(paintedHash, model.getWidth(), model.getHeight(), model.getStartPoint());
+    }
+
+    @Override
+    public void cellChanged(int id, CellStates oldState, CellStates newState) {
+        if ((oldState == CellStates.PAINTED) != (newState == CellStates.PAINTED)) {
+            paintedHash ^= cellKey(id);
+        }
+    }
+
+    @Override
+    public void gridChanged(boolean shapeChanged) {
+        // Area cells do not change the hash
+        if (!shapeChanged) {
+            return;
+        }
+        paintedHash = 0;
+        for (int id = 0; id < model.size(); id++) {
+            if (model.getState(id) == CellStates.PAINTED) {
+                paintedHash ^= cellKey(id);
+            }
+        }
+    }
+
+    private static long combine(long paintedHash, int width, int height, int startPoint) {
+        return paintedHash ^ mix(0x5DEECE66DL ^ ((long) width << 32 | height)) ^ mix(~(long) startPoint);
+    }
+
+    private static long cellKey(int id) {
+        return mix(id);
+    }
+
+    /**
+     * The SplitMix64 finaliser, which spreads consecutive inputs over all 64 bits.
+     */
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Headless data model behind a {@link Grid}.
+ * <p>
+ * Cell states are stored as a {@code byte[]} of {@link CellStates} ordinals, so the model can be built
+ * and estimated without AWT. Counted flags are stored as the epoch each cell was last counted in, so
+ * every flag can be cleared in O(1) by starting a new epoch, and a model can be estimated again and
+ * again without a clearing pass.
+ */
+class GridModel {
+    /**
+     * Cached copy of {@link CellStates#values()} to avoid reallocating it on every lookup.
+     */
+    private static final CellStates[] STATES = CellStates.values();
+
+    /**
+     * The number of cells in each row.
+     */
+    private final int width;
+    /**
+     * The number of rows.
+     */
+    private final int height;
+    /**
+     * The state of every cell in row-major order, stored as {@link CellStates} ordinals.
+     */
+    private final byte[] states;
+    /**
+     * The epoch each cell was last counted in. A cell has been counted if its stamp is the current epoch.
+     */
+    private final int[] countedEpochs;
+    /**
+     * The current epoch, never zero so that fresh stamps read as uncounted.
+     */
+    private int epoch = 1;
+    /**
+     * The index of the starting cell for where the algorithm will begin, or -1 if none is set.
+     */
+    private int startPoint = -1;
+    /**
+     * Listeners to notify whenever a cell changes state.
+     */
+    private final ArrayList<GridModelListener> listeners = new ArrayList<>();
+
+    /**
+     * Initialises a {@link GridModel} with every cell in the {@link CellStates#DEFAULT} state.
+     *
+     * @param width The number of cells in each row.
+     * @param height The number of rows.
+     */
+    public GridModel(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        if ((long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " cells is too large to hold in memory");
+        }
+        this.width = width;
+        this.height = height;
+        this.states = new byte[width * height];
+        this.countedEpochs = new int[states.length];
+    }
+
+    /**
+     * Copies the cell states, counted flags and start point, without any listeners.
+     * <p>
+     * Used to estimate on another thread while the original stays owned by the Swing event thread.
+     *
+     * @return A new {@link GridModel}.
+     */
+    public GridModel copy() {
+        GridModel copy = new GridModel(width, height);
+        System.arraycopy(states, 0, copy.states, 0, states.length);
+        System.arraycopy(countedEpochs, 0, copy.countedEpochs, 0, countedEpochs.length);
+        copy.epoch = epoch;
+        copy.startPoint = startPoint;
+        return copy;
+    }
+
+    /**
+     * Converts a column and row into a cell index.
+     *
+     * @param x Column of the cell.
+     * @param y Row of the cell.
+     * @return Index of the cell in row-major order.
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Writes the indices of the von Neumann neighbourhood of the given cell into {@code out}.
+     * <p>
+     * Neighbours are written in the same order as {@link Grid#getNeighbouringCells(int)}:
+     * left, above, right, below.
+     *
+     * @param id ID of a given cell.
+     * @param out Array of at least four elements to receive the neighbour indices.
+     * @return The number of neighbours written.
+     */
+    public int getNeighbours(int id, int[] out) {
+        int x = id % width;
+        int y = id / width;
+        int count = 0;
+        if (x > 0) {
+            out[count++] = id - 1;
+        }
+        if (y > 0) {
+            out[count++] = id - width;
+        }
+        if (x < width - 1) {
+            out[count++] = id + 1;
+        }
+        if (y < height - 1) {
+            out[count++] = id + width;
+        }
+        return count;
+    }
+
+    public CellStates getState(int id) {
+        return STATES[states[id]];
+    }
+
+    /**
+     * Sets the state of a cell, notifying any listeners if it changed.
+     *
+     * @param id ID of a given cell.
+     * @param state The new {@link CellStates} value.
+     */
+    public void setState(int id, CellStates state) {
+        CellStates oldState = STATES[states[id]];
+        if (oldState == state) {
+            return;
+        }
+        states[id] = (byte) state.ordinal();
+        for (GridModelListener listener : listeners) {
+            listener.cellChanged(id, oldState, state);
+        }
+    }
+
+    public boolean hasBeenCounted(int id) {
+        return countedEpochs[id] == epoch;
+    }
+
+    public void setBeenCounted(int id, boolean beenCounted) {
+        countedEpochs[id] = beenCounted ? epoch : 0;
+    }
+
+    /**
+     * Clears every counted flag by starting a new epoch.
+     * <p>
+     * Only when the epoch counter wraps around, once every couple of billion calls, are the stamps
+     * actually cleared.
+     */
+    public void clearCounted() {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(countedEpochs, 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    /**
+     * Copies the area counted by a run on a {@link GridModel#copy()} of this model back into it.
+     * <p>
+     * Counted {@link CellStates#AREA} cells are only copied onto {@link CellStates#DEFAULT} cells, so any
+     * cells edited since the copy was taken are left alone, and every counted flag is copied. The cells
+     * are updated in bulk, and listeners are notified once with {@link GridModelListener#gridChanged(boolean)}.
+     *
+     * @param run The copy the run was made on, the same size as this model.
+     */
+    public void copyRun(GridModel run) {
+        if (run.width != width || run.height != height) {
+            throw new IllegalArgumentException("Run is on a " + run.width + "x" + run.height + " grid, expected "
+                    + width + "x" + height);
+        }
+        byte area = (byte) CellStates.AREA.ordinal();
+        byte open = (byte) CellStates.DEFAULT.ordinal();
+        for (int id = 0; id < states.length; id++) {
+            boolean counted = run.hasBeenCounted(id);
+            if (counted && run.states[id] == area && states[id] == open) {
+                states[id] = area;
+            }
+            countedEpochs[id] = counted ? epoch : 0;
+        }
+        // Only open cells were marked, so the shape is unchanged
+        notifyGridChanged(false);
+    }
+
+    /**
+     * Packs every counted flag into a bitset, small enough to keep for later {@link #copyCounted(long[])}.
+     *
+     * @return The flags, where bit {@code id & 63} of word {@code id >>> 6} holds cell {@code id}.
+     */
+    public long[] getCounted() {
+        long[] counted = new long[(states.length + 63) >>> 6];
+        for (int id = 0; id < states.length; id++) {
+            if (countedEpochs[id] == epoch) {
+                counted[id >>> 6] |= 1L << id;
+            }
+        }
+        return counted;
+    }
+
+    /**
+     * Marks the area of an earlier run again from its {@link #getCounted()} flags, as
+     * {@link #copyRun(GridModel)} would have, for a model whose shape has not changed since.
+     * <p>
+     * Counted {@link CellStates#DEFAULT} cells become {@link CellStates#AREA}, and every counted flag is
+     * copied. Listeners are notified once with {@link GridModelListener#gridChanged(boolean)}.
+     *
+     * @param counted The flags from {@link #getCounted()} on a model of the same size.
+     */
+    public void copyCounted(long[] counted) {
+        if (counted.length != (states.length + 63) >>> 6) {
+            throw new IllegalArgumentException("Counted flags hold " + counted.length + " words, expected "
+                    + ((states.length + 63) >>> 6));
+        }
+        byte area = (byte) CellStates.AREA.ordinal();
+        byte open = (byte) CellStates.DEFAULT.ordinal();
+        for (int id = 0; id < states.length; id++) {
+            boolean isCounted = (counted[id >>> 6] & 1L << id) != 0;
+            if (isCounted && states[id] == open) {
+                states[id] = area;
+            }
+            countedEpochs[id] = isCounted ? epoch : 0;
+        }
+        // Only open cells were marked, so the shape is unchanged
+        notifyGridChanged(false);
+    }
+
+    /**
+     * Returns every cell to the {@link CellStates#DEFAULT} state and removes the start point, so the model
+     * can be reused for another shape of the same size without reallocating it.
+     * <p>
+     * The cells are filled in bulk, and listeners are notified once with
+     * {@link GridModelListener#gridChanged(boolean)}.
+     */
+    public void clear() {
+        startPoint = -1;
+        clearCounted();
+        Arrays.fill(states, (byte) CellStates.DEFAULT.ordinal());
+        notifyGridChanged(true);
+    }
+
+    private void notifyGridChanged(boolean shapeChanged) {
+        for (GridModelListener listener : listeners) {
+            listener.gridChanged(shapeChanged);
+        }
+    }
+
+    public void addListener(GridModelListener listener) {
+        listeners.add(listener);
+    }
+    public void removeListener(GridModelListener listener) {
+        listeners.remove(listener);
+    }
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+    public int size() {
+        return states.length;
+    }
+    public int getStartPoint() {
+        return startPoint;
+    }
+    public void setStartPoint(int startPoint) {
+        this.startPoint = startPoint;
+    }
+}
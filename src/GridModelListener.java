@@ -0,0 +1,23 @@
+/**
+ * Receives notifications whenever cells in a {@link GridModel} change state.
+ */
+interface GridModelListener {
+    /**
+     * Called after a cell has changed state.
+     *
+     * @param id ID of the cell that changed.
+     * @param oldState The state the cell was in before the change.
+     * @param newState The state the cell is now in.
+     */
+    void cellChanged(int id, CellStates oldState, CellStates newState);
+
+    /**
+     * Called after any number of cells have changed at once, instead of
+     * {@link GridModelListener#cellChanged(int, CellStates, CellStates)} for each of them. Listeners
+     * should re-read whatever they keep track of from the whole model.
+     *
+     * @param shapeChanged Whether cells may have been painted or erased or the start point moved, rather
+     *                     than only open cells marked as area or unmarked.
+     */
+    void gridChanged(boolean shapeChanged);
+}
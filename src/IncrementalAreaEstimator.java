@@ -0,0 +1,543 @@
+import java.util.Arrays;
+
+/**
+ * Keeps a live area estimate up to date as the cells of a {@link GridModel} are painted and erased.
+ * <p>
+ * Listens for cell changes and repairs only what they affect. Painting an area cell searches outwards
+ * from the broken connection to find any parts of the area it cut off, and erasing a boundary cell
+ * floods only the newly reachable cells. Boundary and corner cells are then rechecked near the cells
+ * whose membership changed. The live total always equals what {@link AreaEstimator#runAlgorithm()}
+ * would count on the current grid.
+ * <p>
+ * {@link CellStates#AREA} cells are treated like {@link CellStates#DEFAULT} cells, so the estimate is
+ * unaffected by a full run colouring the grid.
+ */
+class IncrementalAreaEstimator implements GridModelListener {
+    /**
+     * Receives the new total whenever the live area changes.
+     */
+    interface AreaListener {
+        void areaChanged(long area);
+    }
+
+    private final GridModel model;
+    private final int width;
+    private final int height;
+    /**
+     * The start point the current estimate was built from, or -1 if there is none.
+     */
+    private int startPoint = -1;
+
+    // One bit per cell: open cells reachable from the start point, boundary cells touching them, and
+    // every counted boundary and corner cell
+    private final long[] inRegion;
+    private final long[] boundary;
+    private final long[] counted;
+    private long regionCells;
+    private long countedCells;
+
+    /**
+     * Per-cell search stamps used when working out which parts of the area a painted cell cut off.
+     */
+    private final int[] visited;
+    private int stamp;
+    private int[] stack = new int[64];
+    private int stackSize;
+    /**
+     * Cells whose membership of the area changed during the current update.
+     */
+    private int[] changed = new int[64];
+    private int changedCount;
+    /**
+     * Binary min-heap of the cells left to recheck, so they are settled in row-major order.
+     */
+    private int[] queue = new int[64];
+    private int queueSize;
+
+    private AreaListener listener;
+
+    /**
+     * Builds the initial estimate and starts listening for changes to the model.
+     *
+     * @param model {@link GridModel} object to keep an estimate for.
+     */
+    public IncrementalAreaEstimator(GridModel model) {
+        this.model = model;
+        this.width = model.getWidth();
+        this.height = model.getHeight();
+        int words = (model.size() + 63) >>> 6;
+        this.inRegion = new long[words];
+        this.boundary = new long[words];
+        this.counted = new long[words];
+        this.visited = new int[model.size()];
+        rebuild();
+        model.addListener(this);
+    }
+
+    /**
+     * Stops listening for changes to the model.
+     */
+    public void detach() {
+        model.removeListener(this);
+    }
+
+    /**
+     * @return The current area, including the start point, or 0 if there is no start point.
+     */
+    public long getArea() {
+        return startPoint < 0 ? 0 : 1 + regionCells + countedCells;
+    }
+
+    public void setListener(AreaListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void cellChanged(int id, CellStates oldState, CellStates newState) {
+        if (isOpen(oldState) && isOpen(newState) && model.getStartPoint() == startPoint) {
+            // Area cells count as open, so colouring the area changes nothing
+            return;
+        }
+        long oldArea = getArea();
+        if (model.getStartPoint() != startPoint
+                ||  oldState == CellStates.START_POINT
+                ||  newState == CellStates.START_POINT) {
+            // Moving the start point changes everything
+            rebuild();
+        } else {
+            boolean wasOpen = isOpen(oldState);
+            boolean isOpen = isOpen(newState);
+            changedCount = 0;
+            if (wasOpen && !isOpen && get(inRegion, id)) {
+                cutRegion(id);
+            } else if (!wasOpen && isOpen && touchesRegion(id)) {
+                growRegion(id);
+            }
+            updateBoundaries(id);
+        }
+        if (listener != null && getArea() != oldArea) {
+            listener.areaChanged(getArea());
+        }
+    }
+
+    @Override
+    public void gridChanged(boolean shapeChanged) {
+        // Area cells count as open, so marking them changes nothing
+        if (!shapeChanged) {
+            return;
+        }
+        long oldArea = getArea();
+        rebuild();
+        if (listener != null && getArea() != oldArea) {
+            listener.areaChanged(getArea());
+        }
+    }
+
+    /**
+     * Recomputes the whole estimate from scratch.
+     */
+    private void rebuild() {
+        Arrays.fill(inRegion, 0);
+        Arrays.fill(boundary, 0);
+        Arrays.fill(counted, 0);
+        regionCells = 0;
+        countedCells = 0;
+        startPoint = model.getStartPoint();
+        if (startPoint < 0) {
+            return;
+        }
+        int[] neighbours = new int[4];
+        int neighbourCount = model.getNeighbours(startPoint, neighbours);
+        for (int i = 0; i < neighbourCount; i++) {
+            if (isOpen(neighbours[i]) && !get(inRegion, neighbours[i])) {
+                changedCount = 0;
+                growRegion(neighbours[i]);
+            }
+        }
+        // Replay the corner check in row-major order over every cell
+        for (int id = 0; id < model.size(); id++) {
+            if (model.getState(id) == CellStates.PAINTED && isBoundary(id)) {
+                set(boundary, id, true);
+            }
+        }
+        for (int id = 0; id < model.size(); id++) {
+            if (isCounted(id)) {
+                set(counted, id, true);
+                countedCells++;
+            }
+        }
+    }
+
+    /**
+     * Floods the open cells reachable from a cell that has just joined the area.
+     */
+    private void growRegion(int id) {
+        int[] neighbours = new int[4];
+        stackSize = 0;
+        push(id);
+        addToRegion(id);
+        while (stackSize > 0) {
+            int cell = stack[--stackSize];
+            int neighbourCount = model.getNeighbours(cell, neighbours);
+            for (int i = 0; i < neighbourCount; i++) {
+                int neighbour = neighbours[i];
+                if (isOpen(neighbour) && !get(inRegion, neighbour)) {
+                    addToRegion(neighbour);
+                    push(neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a cell from the area and drops any part of the area that was only reachable through it.
+     * <p>
+     * A search is started from each neighbour of the cell and run in lock step. Searches that meet
+     * are merged, a search that reaches the start point stops, and the cells of a search that runs out
+     * without reaching it are removed. Small cut-off pieces are therefore found without traversing the
+     * rest of the area.
+     */
+    private void cutRegion(int id) {
+        removeFromRegion(id);
+        int[] neighbours = new int[4];
+        int neighbourCount = model.getNeighbours(id, neighbours);
+        Search[] searches = new Search[neighbourCount];
+        int searchCount = 0;
+        int base = nextStamps(neighbourCount);
+        for (int i = 0; i < neighbourCount; i++) {
+            int neighbour = neighbours[i];
+            if (get(inRegion, neighbour) && visited[neighbour] < base) {
+                Search search = new Search(base + searchCount);
+                searches[searchCount++] = search;
+                search.visit(neighbour);
+            }
+        }
+        // Unless the cell was next to the start point, the area reached the start point through one of
+        // its neighbours, so once every other piece is known to be cut off the last piece cannot be
+        boolean lastPieceAttached = !isStartNeighbour(id);
+        boolean searching = true;
+        while (searching) {
+            searching = false;
+            int unresolved = 0;
+            boolean anyAttached = false;
+            for (int i = 0; i < searchCount; i++) {
+                Search search = searches[i].root();
+                if (search != searches[i]) {
+                    continue;
+                }
+                if (search.resolved) {
+                    anyAttached |= search.attached;
+                    continue;
+                }
+                if (search.step(neighbours, base, searches)) {
+                    searching = true;
+                    unresolved++;
+                } else if (search.resolved) {
+                    anyAttached |= search.attached;
+                } else {
+                    // Ran out of cells without reaching the start point, so this piece is cut off
+                    search.resolved = true;
+                    for (int j = 0; j < search.visitedCount; j++) {
+                        removeFromRegion(search.visitedCells[j]);
+                    }
+                }
+            }
+            if (lastPieceAttached && unresolved == 1 && !anyAttached) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * One of the lock-step searches run by {@link IncrementalAreaEstimator#cutRegion(int)}.
+     */
+    private final class Search {
+        private final int stampValue;
+        private Search mergedInto;
+        private boolean resolved;
+        private boolean attached;
+        private int[] pending = new int[16];
+        private int pendingCount;
+        private int[] visitedCells = new int[16];
+        private int visitedCount;
+
+        Search(int stampValue) {
+            this.stampValue = stampValue;
+        }
+
+        Search root() {
+            Search search = this;
+            while (search.mergedInto != null) {
+                search = search.mergedInto;
+            }
+            return search;
+        }
+
+        void visit(int cell) {
+            visited[cell] = stampValue;
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = cell;
+            if (visitedCount == visitedCells.length) {
+                visitedCells = Arrays.copyOf(visitedCells, visitedCount * 2);
+            }
+            visitedCells[visitedCount++] = cell;
+            if (isStartNeighbour(cell)) {
+                resolved = true;
+                attached = true;
+            }
+        }
+
+        /**
+         * Expands one cell of the search.
+         *
+         * @return Whether the search may still continue.
+         */
+        boolean step(int[] neighbours, int base, Search[] searches) {
+            if (pendingCount == 0) {
+                return false;
+            }
+            int cell = pending[--pendingCount];
+            int neighbourCount = model.getNeighbours(cell, neighbours);
+            for (int i = 0; i < neighbourCount && !resolved; i++) {
+                int neighbour = neighbours[i];
+                if (!get(inRegion, neighbour)) {
+                    continue;
+                }
+                if (visited[neighbour] < base) {
+                    visit(neighbour);
+                } else {
+                    Search other = searches[visited[neighbour] - base].root();
+                    if (other != this) {
+                        merge(other);
+                    }
+                }
+            }
+            return !resolved;
+        }
+
+        /**
+         * Absorbs another search that has reached the same piece of the area.
+         */
+        private void merge(Search other) {
+            other.mergedInto = this;
+            resolved |= other.resolved;
+            attached |= other.attached;
+            for (int i = 0; i < other.pendingCount; i++) {
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                }
+                pending[pendingCount++] = other.pending[i];
+            }
+            for (int i = 0; i < other.visitedCount; i++) {
+                if (visitedCount == visitedCells.length) {
+                    visitedCells = Arrays.copyOf(visitedCells, visitedCount * 2);
+                }
+                visitedCells[visitedCount++] = other.visitedCells[i];
+            }
+        }
+    }
+
+    /**
+     * Rechecks the boundary and corner cells around the changed cell and every cell whose membership of
+     * the area changed.
+     */
+    private void updateBoundaries(int id) {
+        queueSize = 0;
+        int[] neighbours = new int[4];
+        recheckBoundary(id);
+        int neighbourCount = model.getNeighbours(id, neighbours);
+        for (int i = 0; i < neighbourCount; i++) {
+            recheckBoundary(neighbours[i]);
+        }
+        for (int i = 0; i < changedCount; i++) {
+            neighbourCount = model.getNeighbours(changed[i], neighbours);
+            for (int j = 0; j < neighbourCount; j++) {
+                recheckBoundary(neighbours[j]);
+            }
+        }
+        // The changed cell may have stopped or started being painted
+        offer(id);
+
+        // Counted cells only depend on the cells to their left and above, so settle them in row-major order
+        int last = -1;
+        while (queueSize > 0) {
+            int cell = poll();
+            if (cell == last) {
+                continue;
+            }
+            last = cell;
+            boolean isCounted = isCounted(cell);
+            if (isCounted != get(counted, cell)) {
+                set(counted, cell, isCounted);
+                countedCells += isCounted ? 1 : -1;
+                if (cell % width < width - 1) {
+                    offer(cell + 1);
+                }
+                if (cell + width < model.size()) {
+                    offer(cell + width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes whether a cell is a boundary cell, queueing the cells whose counting depends on it.
+     */
+    private void recheckBoundary(int id) {
+        boolean isBoundary = model.getState(id) == CellStates.PAINTED && isBoundary(id);
+        if (isBoundary != get(boundary, id)) {
+            set(boundary, id, isBoundary);
+            offer(id);
+            if (id % width > 0) {
+                offer(id - 1);
+            }
+            if (id >= width) {
+                offer(id - width);
+            }
+        }
+    }
+
+    private void offer(int id) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, queueSize * 2);
+        }
+        // Sift the new cell up past any larger parents
+        int i = queueSize++;
+        while (i > 0 && queue[(i - 1) >>> 1] > id) {
+            queue[i] = queue[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        queue[i] = id;
+    }
+
+    private int poll() {
+        int head = queue[0];
+        int id = queue[--queueSize];
+        // Sift the last cell down from the root past any smaller children
+        int i = 0;
+        while (2 * i + 1 < queueSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < queueSize && queue[child + 1] < queue[child]) {
+                child++;
+            }
+            if (queue[child] >= id) {
+                break;
+            }
+            queue[i] = queue[child];
+            i = child;
+        }
+        queue[i] = id;
+        return head;
+    }
+
+    /**
+     * Whether a cell touches the area or the start point.
+     */
+    private boolean isBoundary(int id) {
+        int x = id % width;
+        return (x > 0 && touches(id - 1))
+                ||  (id >= width && touches(id - width))
+                ||  (x < width - 1 && touches(id + 1))
+                ||  (id + width < model.size() && touches(id + width));
+    }
+
+    private boolean touches(int id) {
+        return id == startPoint || get(inRegion, id);
+    }
+
+    /**
+     * Whether a cell would be counted by {@link AreaEstimator}'s fill or corner check, given the
+     * settled cells to its left and above.
+     */
+    private boolean isCounted(int id) {
+        if (model.getState(id) != CellStates.PAINTED) {
+            return false;
+        }
+        int x = id % width;
+        return get(boundary, id)
+                ||  (x > 0 && get(counted, id - 1))
+                ||  (id >= width && get(counted, id - width))
+                ||  (x < width - 1 && get(boundary, id + 1))
+                ||  (id + width < model.size() && get(boundary, id + width));
+    }
+
+    private boolean touchesRegion(int id) {
+        if (isStartNeighbour(id)) {
+            return true;
+        }
+        int[] neighbours = new int[4];
+        int neighbourCount = model.getNeighbours(id, neighbours);
+        for (int i = 0; i < neighbourCount; i++) {
+            if (get(inRegion, neighbours[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStartNeighbour(int id) {
+        int distance = Math.abs(id - startPoint);
+        return distance == width || (distance == 1 && id / width == startPoint / width);
+    }
+
+    private void addToRegion(int id) {
+        set(inRegion, id, true);
+        regionCells++;
+        recordChange(id);
+    }
+
+    private void removeFromRegion(int id) {
+        set(inRegion, id, false);
+        regionCells--;
+        recordChange(id);
+    }
+
+    private void recordChange(int id) {
+        if (changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+        changed[changedCount++] = id;
+    }
+
+    /**
+     * Reserves a block of search stamps, clearing old stamps if they would overflow.
+     */
+    private int nextStamps(int count) {
+        if (stamp > Integer.MAX_VALUE - count - 1) {
+            Arrays.fill(visited, 0);
+            stamp = 0;
+        }
+        int base = stamp + 1;
+        stamp += count + 1;
+        return base;
+    }
+
+    private void push(int id) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = id;
+    }
+
+    private boolean isOpen(int id) {
+        return isOpen(model.getState(id));
+    }
+
+    private static boolean isOpen(CellStates state) {
+        return state == CellStates.DEFAULT || state == CellStates.AREA;
+    }
+
+    private static boolean get(long[] bits, int id) {
+        return (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    private static void set(long[] bits, int id, boolean value) {
+        if (value) {
+            bits[id >>> 6] |= 1L << id;
+        } else {
+            bits[id >>> 6] &= ~(1L << id);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 import java.awt.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 /**
  * Initially based on a grid design from StackOverflow.
@@ -10,10 +14,27 @@ public class Main {
     /**
      * Entry point to program. Sets up {@link JFrame} window and adds a {@link Grid} object
      * as well as all necessary buttons.
+     * <p>
+     * Passing {@code --batch <dir>} runs the headless {@link BatchEstimator} instead,
+     * {@code --sharded <file.pbm>} the multi-process {@link ShardedEstimator}, and
+     * {@code --frames <dir>} the {@link FrameSequenceEstimator} over a sequence of frames. Setting the
+     * {@code areaestimator.metrics} system property prints the {@link RunMetrics} of every run.
      *
-     * @param args Command line args, should be ignored.
+     * @param args Command line args, only used for the headless modes.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--sharded")) {
+            ShardedEstimator.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--frames")) {
+            FrameSequenceEstimator.main(args);
+            return;
+        }
+        if (args.length > 0) {
+            BatchEstimator.main(args);
+            return;
+        }
         EventQueue.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -24,8 +45,11 @@ public class Main {
             JPanel gridPanel = new JPanel(new BorderLayout());
             final int[] gridSizeValue = {32};
             Grid grid = new Grid(gridSizeValue[0]);
-            gridPanel.add(grid.getPanel());
+            gridPanel.add(grid.getCanvas());
             AreaEstimator algorithm = new AreaEstimator(grid);
+            MetricsListener metrics = Boolean.getBoolean("areaestimator.metrics")
+                    ? m -> System.err.println("Run metrics: " + m) : null;
+            algorithm.setMetricsListener(metrics);
 
             // Setup JFrame window
             JFrame window = new JFrame("Main");
@@ -39,15 +63,115 @@ public class Main {
             JLabel areaCounterLabel = new JLabel();
             areaCounterLabel.setText("Area: 0 units^2");
             algorithm.setLabel(areaCounterLabel);
+            // Live area, kept up to date while the grid is edited
+            JLabel liveAreaLabel = new JLabel("Live area: 0 units^2");
+            final IncrementalAreaEstimator[] liveArea = {null};
+            // Results of earlier runs, keyed by the hash of the shape they were run on
+            AreaCache areaCache = new AreaCache(64);
+            final GridHash[] gridHash = {null};
+            // Attach the live area and shape hash to the grid's current model
+            Runnable trackModel = () -> {
+                liveArea[0] = new IncrementalAreaEstimator(grid.getModel());
+                liveArea[0].setListener(area -> liveAreaLabel.setText("Live area: " + area + " units^2"));
+                gridHash[0] = new GridHash(grid.getModel());
+            };
+            // Detach them before the grid is rebuilt, as it may get a new model
+            Runnable untrackModel = () -> {
+                liveArea[0].detach();
+                gridHash[0].detach();
+            };
+            trackModel.run();
+            // Sub-cell area, refined along the outline on request
+            JLabel refinedAreaLabel = new JLabel("Refined area: -");
 
-            // Run button
+            // Run and cancel buttons
             JButton runButton = new JButton("Run algorithm");
+            JButton cancelButton = new JButton("Cancel run");
+            cancelButton.setEnabled(false);
+            final EstimationWorker[] worker = {null};
             runButton.addActionListener(e -> {
-                if (grid.getStartPoint() == null) {
+                if (grid.getStartPoint() < 0) {
                     JOptionPane.showMessageDialog(window, "You must set a start location by right-clicking on an appropriate cell!");
-                } else {
+                } else if (algorithm.getDelaySteps()) {
                     runButton.setEnabled(false);
                     algorithm.runAlgorithm();
+                } else {
+                    // An unchanged shape gets its earlier result and counted cells back without a run
+                    long hash = gridHash[0].getHash();
+                    long cachedArea = areaCache.get(hash);
+                    areaCounterLabel.setToolTipText("Result cache: " + areaCache);
+                    if (cachedArea >= 0) {
+                        grid.getModel().copyCounted(areaCache.getCounted(hash));
+                        areaCounterLabel.setText("Area: " + cachedArea + " units^2 (cached)");
+                        runButton.setEnabled(false);
+                        return;
+                    }
+                    // Estimate in the background so the window stays responsive on large grids
+                    runButton.setEnabled(false);
+                    cancelButton.setEnabled(true);
+                    // Resetting the grid discards the run, so the listener only ever hears about the current one
+                    worker[0] = new EstimationWorker(grid.getModel(), new ProgressListener() {
+                        @Override
+                        public void progressChanged(long countedCells) {
+                            areaCounterLabel.setText("Counting: " + countedCells + " units^2");
+                        }
+
+                        @Override
+                        public void finished(long area) {
+                            // The run has been copied back, so the model holds its counted flags
+                            areaCache.put(hash, area, grid.getModel().getCounted());
+                            areaCounterLabel.setText("Area: " + area + " units^2");
+                            cancelButton.setEnabled(false);
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            areaCounterLabel.setText("Area: 0 units^2");
+                            runButton.setEnabled(true);
+                            cancelButton.setEnabled(false);
+                        }
+                    });
+                    worker[0].setMetricsListener(metrics);
+                    worker[0].execute();
+                }
+            });
+            JButton refineButton = new JButton("Refine area");
+            // The latest refinement, whose result is dropped if the grid is rebuilt before it completes
+            final SwingWorker<?, ?>[] refinement = {null};
+            refineButton.addActionListener(e -> {
+                if (grid.getStartPoint() < 0) {
+                    JOptionPane.showMessageDialog(window, "You must set a start location by right-clicking on an appropriate cell!");
+                    return;
+                }
+                // Refine a copy in the background, as large grids take a while
+                GridModel snapshot = grid.getModel().copy();
+                refineButton.setEnabled(false);
+                refinedAreaLabel.setText("Refined area: refining...");
+                refinement[0] = new SwingWorker<RefinedAreaEstimator.Estimate, Void>() {
+                    @Override
+                    protected RefinedAreaEstimator.Estimate doInBackground() {
+                        return new RefinedAreaEstimator(snapshot).estimate(0.5);
+                    }
+
+                    @Override
+                    protected void done() {
+                        if (refinement[0] != this) {
+                            return;
+                        }
+                        refinement[0] = null;
+                        refineButton.setEnabled(true);
+                        try {
+                            refinedAreaLabel.setText("Refined area: " + get() + " units^2");
+                        } catch (InterruptedException | ExecutionException ex) {
+                            refinedAreaLabel.setText("Refined area: -");
+                        }
+                    }
+                };
+                refinement[0].execute();
+            });
+            cancelButton.addActionListener(e -> {
+                if (worker[0] != null) {
+                    worker[0].cancel(false);
                 }
             });
             // Delay
@@ -56,30 +180,54 @@ public class Main {
                 if (algorithm.getDelaySteps()) {
                     toggleDelayButton.setText("Enable animation delay");
                     algorithm.setDelaySteps(false);
-                    if (runButton.isEnabled()) {
-                        areaCounterLabel.setVisible(true);
-                    }
                 } else {
                     toggleDelayButton.setText("Disable animation delay");
                     algorithm.setDelaySteps(true);
-                    areaCounterLabel.setVisible(false);
                 }
                 window.pack();
             });
+            // Animation controls
+            JButton pauseButton = new JButton("Pause animation");
+            pauseButton.addActionListener(e -> {
+                if (algorithm.isAnimating()) {
+                    algorithm.pauseAnimation();
+                    pauseButton.setText("Resume animation");
+                } else {
+                    algorithm.resumeAnimation();
+                    pauseButton.setText("Pause animation");
+                }
+            });
+            JButton stepButton = new JButton("Step animation");
+            stepButton.addActionListener(e -> algorithm.stepAnimation());
+            JSpinner speedSpinner = new JSpinner(new SpinnerNumberModel(algorithm.getCellsPerFrame(), 1, 1 << 20, 16));
+            speedSpinner.setMaximumSize(speedSpinner.getPreferredSize());
+            speedSpinner.addChangeListener(e -> algorithm.setCellsPerFrame((Integer) speedSpinner.getValue()));
+            JPanel speedPanel = new JPanel();
+            speedPanel.add(new JLabel("Cells per frame:"));
+            speedPanel.add(speedSpinner);
             // Reset button
             JButton resetButton = new JButton("Reset grid");
             resetButton.addActionListener(e -> {
-                gridPanel.remove(grid.getPanel());
+                gridPanel.remove(grid.getCanvas());
 
+                algorithm.stopAnimation();
+                if (worker[0] != null) {
+                    worker[0].discard();
+                    worker[0] = null;
+                }
+                pauseButton.setText("Pause animation");
+                untrackModel.run();
                 grid.buildGrid(gridSizeValue[0]);
-                grid.setStartPoint(null);
+                grid.setStartPoint(-1);
+                trackModel.run();
                 areaCounterLabel.setText("Area: 0 units^2");
+                liveAreaLabel.setText("Live area: 0 units^2");
+                refinedAreaLabel.setText("Refined area: -");
+                refinement[0] = null;
+                refineButton.setEnabled(true);
                 runButton.setEnabled(true);
-                if (!algorithm.getDelaySteps()) {
-                    areaCounterLabel.setVisible(true);
-                }
 
-                gridPanel.add(grid.getPanel());
+                gridPanel.add(grid.getCanvas());
                 gridPanel.revalidate();
                 gridPanel.repaint();
                 window.pack();
@@ -87,26 +235,92 @@ public class Main {
             // Grid size
             JButton gridSize = new JButton("Change to grid size: " + gridSizeValue[0]/2);
             gridSize.addActionListener(e -> {
-                gridPanel.remove(grid.getPanel());
+                gridPanel.remove(grid.getCanvas());
                 gridSizeValue[0] = gridSizeValue[0]/2;
                 if (gridSizeValue[0] < 8) {
-                    gridSizeValue[0] = 128;
+                    gridSizeValue[0] = 1024;
                 }
                 if (gridSizeValue[0]/2 < 8) {
-                    gridSize.setText("Change to grid size: 128");
+                    gridSize.setText("Change to grid size: 1024");
                 } else {
                     gridSize.setText("Change to grid size: " + gridSizeValue[0]/2);
                 }
 
+                algorithm.stopAnimation();
+                if (worker[0] != null) {
+                    worker[0].discard();
+                    worker[0] = null;
+                }
+                pauseButton.setText("Pause animation");
+                untrackModel.run();
                 grid.buildGrid(gridSizeValue[0]);
-                grid.setStartPoint(null);
+                grid.setStartPoint(-1);
+                trackModel.run();
                 areaCounterLabel.setText("Area: 0 units^2");
+                liveAreaLabel.setText("Live area: 0 units^2");
+                refinedAreaLabel.setText("Refined area: -");
+                refinement[0] = null;
+                refineButton.setEnabled(true);
                 runButton.setEnabled(true);
-                if (!algorithm.getDelaySteps()) {
-                    areaCounterLabel.setVisible(true);
+
+                gridPanel.add(grid.getCanvas());
+                gridPanel.revalidate();
+                gridPanel.repaint();
+                window.pack();
+            });
+
+            // Save and load the shape as a run-length encoded grid
+            JFileChooser gridChooser = new JFileChooser();
+            gridChooser.setFileFilter(new FileNameExtensionFilter("Run-length encoded grids (*.rle)", "rle"));
+            JButton saveButton = new JButton("Save grid");
+            saveButton.addActionListener(e -> {
+                if (gridChooser.showSaveDialog(window) != JFileChooser.APPROVE_OPTION) {
+                    return;
                 }
+                try {
+                    RleFormat.write(grid.getModel(), gridChooser.getSelectedFile().toPath());
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(window, "Could not save the grid: " + ex.getMessage());
+                }
+            });
+            JButton loadButton = new JButton("Load grid");
+            loadButton.addActionListener(e -> {
+                if (gridChooser.showOpenDialog(window) != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+                RunLengthGrid loaded;
+                try (FileChannel channel = FileChannel.open(gridChooser.getSelectedFile().toPath())) {
+                    loaded = RleFormat.read(channel);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(window, "Could not load the grid: " + ex.getMessage());
+                    return;
+                }
+                if (loaded.getWidth() != loaded.getHeight()) {
+                    JOptionPane.showMessageDialog(window, "Only square grids can be edited, this one is "
+                            + loaded.getWidth() + "x" + loaded.getHeight());
+                    return;
+                }
+                gridPanel.remove(grid.getCanvas());
+
+                algorithm.stopAnimation();
+                if (worker[0] != null) {
+                    worker[0].discard();
+                    worker[0] = null;
+                }
+                pauseButton.setText("Pause animation");
+                untrackModel.run();
+                grid.buildGrid(loaded.getWidth());
+                grid.setStartPoint(-1);
+                loaded.copyTo(grid.getModel());
+                trackModel.run();
+                areaCounterLabel.setText("Area: 0 units^2");
+                liveAreaLabel.setText("Live area: " + liveArea[0].getArea() + " units^2");
+                refinedAreaLabel.setText("Refined area: -");
+                refinement[0] = null;
+                refineButton.setEnabled(true);
+                runButton.setEnabled(true);
 
-                gridPanel.add(grid.getPanel());
+                gridPanel.add(grid.getCanvas());
                 gridPanel.revalidate();
                 gridPanel.repaint();
                 window.pack();
@@ -114,11 +328,20 @@ public class Main {
 
             // Add all UI elements to the UI JPanel
             UIPanel.add(areaCounterLabel);
+            UIPanel.add(liveAreaLabel);
+            UIPanel.add(refinedAreaLabel);
             UIPanel.add(Box.createHorizontalStrut(25));
             UIPanel.add(runButton);
+            UIPanel.add(cancelButton);
+            UIPanel.add(refineButton);
             UIPanel.add(toggleDelayButton);
+            UIPanel.add(pauseButton);
+            UIPanel.add(stepButton);
+            UIPanel.add(speedPanel);
             UIPanel.add(resetButton);
             UIPanel.add(gridSize);
+            UIPanel.add(saveButton);
+            UIPanel.add(loadButton);
 
             // Add the grid to the window
             window.add(UIPanel);
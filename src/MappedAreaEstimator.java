@@ -0,0 +1,295 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Out-of-core area estimation over a P4 bitmap file that may be larger than the heap.
+ * <p>
+ * The bitmap is memory-mapped rather than loaded, and the growing area is kept in a memory-mapped
+ * scratch file of the same layout. Both are paged through in bands by {@link MappedBitmap}, so only
+ * a handful of rows are ever held on the heap. The fill itself is the row dilation used by
+ * {@link BitboardFill}, and the total matches {@link AreaEstimator#runAlgorithm()}.
+ */
+class MappedAreaEstimator {
+    /**
+     * Upper bound on the number of bytes mapped at once from each file.
+     */
+    private final int bandBytes;
+
+    public MappedAreaEstimator() {
+        this(MappedBitmap.DEFAULT_BAND_BYTES);
+    }
+
+    public MappedAreaEstimator(int bandBytes) {
+        this.bandBytes = bandBytes;
+    }
+
+    /**
+     * Estimates the area of the region containing the start point of a bitmap file.
+     * <p>
+     * Set bits are treated as {@link CellStates#PAINTED} cells and clear bits as
+     * {@link CellStates#DEFAULT} cells. The start point is treated as the
+     * {@link CellStates#START_POINT} whatever its bit.
+     *
+     * @param bitmap Path to a P4 bitmap.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     * @return The number of cells counted, including the start point.
+     * @throws IOException If the bitmap cannot be read or the scratch file cannot be written.
+     */
+    public long estimateArea(Path bitmap, int startX, int startY) throws IOException {
+        Path scratch = Files.createTempFile("area", ".bits");
+        try (FileChannel input = FileChannel.open(bitmap);
+             FileChannel output = FileChannel.open(scratch, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            PbmFormat.Header header = PbmFormat.readHeader(input);
+            if (startX < 0 || startX >= header.width || startY < 0 || startY >= header.height) {
+                throw new IOException("Start point (" + startX + ", " + startY + ") is outside the "
+                        + header.width + "x" + header.height + " bitmap");
+            }
+            MappedBitmap painted = new MappedBitmap(input, FileChannel.MapMode.READ_ONLY, header.dataOffset,
+                    header.width, header.height, bandBytes);
+            MappedBitmap area = new MappedBitmap(output, FileChannel.MapMode.READ_WRITE, 0,
+                    header.width, header.height, bandBytes);
+            return new Run(painted, area, header.width, header.height, startX, startY).estimate();
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+    }
+
+    /**
+     * State for a single estimation. Holds only a few rows of words at a time.
+     */
+    private static final class Run {
+        private final MappedBitmap painted;
+        private final MappedBitmap area;
+        private final int width;
+        private final int height;
+        private final int words;
+        private final int startX;
+        private final int startY;
+        /**
+         * Rows whose neighbours changed since they were last dilated.
+         */
+        private final boolean[] active;
+
+        // Row buffers, reused for every row
+        private final long[] above;
+        private final long[] current;
+        private final long[] below;
+        private final long[] open;
+
+        Run(MappedBitmap painted, MappedBitmap area, int width, int height, int startX, int startY) {
+            this.painted = painted;
+            this.area = area;
+            this.width = width;
+            this.height = height;
+            this.words = painted.words();
+            this.startX = startX;
+            this.startY = startY;
+            this.active = new boolean[height];
+            this.above = new long[words];
+            this.current = new long[words];
+            this.below = new long[words];
+            this.open = new long[words];
+        }
+
+        long estimate() throws IOException {
+            seed();
+            // Dilate until nothing changes, sweeping down then up so changes carry through in one pass
+            boolean anyActive = true;
+            while (anyActive) {
+                anyActive = false;
+                for (int y = 0; y < height; y++) {
+                    anyActive |= dilateRow(y);
+                }
+                for (int y = height - 1; y >= 0; y--) {
+                    anyActive |= dilateRow(y);
+                }
+            }
+            return count();
+        }
+
+        /**
+         * Seeds the area with the start point's von Neumann neighbourhood.
+         */
+        private void seed() throws IOException {
+            for (int y = Math.max(0, startY - 1); y <= Math.min(height - 1, startY + 1); y++) {
+                Arrays.fill(current, 0);
+                if (y == startY) {
+                    if (startX > 0) {
+                        current[(startX - 1) >>> 6] |= 1L << (startX - 1);
+                    }
+                    if (startX < width - 1) {
+                        current[(startX + 1) >>> 6] |= 1L << (startX + 1);
+                    }
+                } else {
+                    current[startX >>> 6] |= 1L << startX;
+                }
+                readOpen(y, open);
+                for (int i = 0; i < words; i++) {
+                    current[i] &= open[i];
+                }
+                area.writeRow(y, current);
+            }
+            // The seeded rows and the rows either side of them all need a first dilation
+            for (int y = Math.max(0, startY - 2); y <= Math.min(height - 1, startY + 2); y++) {
+                active[y] = true;
+            }
+        }
+
+        /**
+         * Grows the area in an active row from the rows above and below, then across the row itself.
+         *
+         * @return Whether the row changed.
+         */
+        private boolean dilateRow(int y) throws IOException {
+            if (!active[y]) {
+                return false;
+            }
+            active[y] = false;
+            readOpen(y, open);
+            area.readRow(y, current);
+            readAreaOrEmpty(y - 1, above);
+            readAreaOrEmpty(y + 1, below);
+            boolean changed = false;
+            long carry = 0;
+            for (int i = 0; i < words; i++) {
+                long grown = current[i] | ((carry | above[i] | below[i]) & open[i]);
+                grown = BitboardFill.fillUp(grown, open[i]);
+                carry = grown >>> 63;
+                changed |= grown != current[i];
+                current[i] = grown;
+            }
+            carry = 0;
+            for (int i = words - 1; i >= 0; i--) {
+                long grown = BitboardFill.fillDown(current[i] | ((carry << 63) & open[i]), open[i]);
+                carry = grown & 1;
+                changed |= grown != current[i];
+                current[i] = grown;
+            }
+            if (changed) {
+                area.writeRow(y, current);
+                if (y > 0) {
+                    active[y - 1] = true;
+                }
+                if (y < height - 1) {
+                    active[y + 1] = true;
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * Counts the area, boundary and corner cells in a single pass over both files.
+         */
+        private long count() throws IOException {
+            long[] areaRow = new long[words];
+            long[] areaNext = new long[words];
+            long[] areaAfterNext = new long[words];
+            long[] paintedRow = new long[words];
+            long[] boundaryRow = new long[words];
+            long[] boundaryNext = new long[words];
+            long[] countedAbove = new long[words];
+            long[] counted = new long[words];
+
+            long total = 1;
+            readAreaOrEmpty(0, areaRow);
+            readAreaOrEmpty(1, areaNext);
+            readBoundary(0, new long[words], areaRow, areaNext, boundaryRow);
+            for (int y = 0; y < height; y++) {
+                // The corner check needs the boundary of the next row too
+                readAreaOrEmpty(y + 2, areaAfterNext);
+                if (y < height - 1) {
+                    readBoundary(y + 1, areaRow, areaNext, areaAfterNext, boundaryNext);
+                } else {
+                    Arrays.fill(boundaryNext, 0);
+                }
+                painted.readRow(y, paintedRow);
+                clearStart(y, paintedRow);
+
+                // Replay the corner check, as in BitboardFill
+                long carry = 0;
+                for (int i = 0; i < words; i++) {
+                    total += Long.bitCount(areaRow[i]);
+                    long seeds = (boundaryRow[i] >>> 1) | boundaryNext[i];
+                    if (i < words - 1) {
+                        seeds |= boundaryRow[i + 1] << 63;
+                    }
+                    seeds = boundaryRow[i] | ((seeds | countedAbove[i] | carry) & paintedRow[i]);
+                    counted[i] = BitboardFill.fillUp(seeds, paintedRow[i]);
+                    carry = counted[i] >>> 63;
+                    total += Long.bitCount(counted[i]);
+                }
+
+                // Slide every window down by one row
+                long[] swap = areaRow;
+                areaRow = areaNext;
+                areaNext = areaAfterNext;
+                areaAfterNext = swap;
+                swap = boundaryRow;
+                boundaryRow = boundaryNext;
+                boundaryNext = swap;
+                swap = countedAbove;
+                countedAbove = counted;
+                counted = swap;
+            }
+            return total;
+        }
+
+        /**
+         * Computes the painted cells of a row that touch the area or the start point.
+         */
+        private void readBoundary(int y, long[] areaAbove, long[] areaRow, long[] areaBelow, long[] boundary)
+                throws IOException {
+            painted.readRow(y, boundary);
+            clearStart(y, boundary);
+            int startWord = startX >>> 6;
+            long startBit = 1L << startX;
+            for (int i = 0; i < words; i++) {
+                long reached = areaRow[i] | (y == startY && i == startWord ? startBit : 0);
+                long touching = (reached << 1) | (reached >>> 1) | areaAbove[i] | areaBelow[i];
+                if (i > 0) {
+                    touching |= (areaRow[i - 1] | (y == startY && i - 1 == startWord ? startBit : 0)) >>> 63;
+                }
+                if (i < words - 1) {
+                    touching |= (areaRow[i + 1] | (y == startY && i + 1 == startWord ? startBit : 0)) << 63;
+                }
+                if ((y == startY - 1 || y == startY + 1) && i == startWord) {
+                    touching |= startBit;
+                }
+                boundary[i] &= touching;
+            }
+        }
+
+        /**
+         * Reads the {@link CellStates#DEFAULT} cells of a row, excluding the start point.
+         */
+        private void readOpen(int y, long[] row) throws IOException {
+            painted.readRow(y, row);
+            for (int i = 0; i < words; i++) {
+                row[i] = ~row[i];
+            }
+            if ((width & 63) != 0) {
+                row[words - 1] &= -1L >>> (64 - (width & 63));
+            }
+            clearStart(y, row);
+        }
+
+        private void readAreaOrEmpty(int y, long[] row) throws IOException {
+            if (y < 0 || y >= height) {
+                Arrays.fill(row, 0);
+            } else {
+                area.readRow(y, row);
+            }
+        }
+
+        private void clearStart(int y, long[] row) {
+            if (y == startY) {
+                row[startX >>> 6] &= ~(1L << startX);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Row-oriented access to a packed bitmap through memory-mapped bands of a file.
+ * <p>
+ * Rows are stored as in a P4 bitmap: most significant bit first and padded to a whole byte. Only one
+ * band of rows is mapped at a time, so the resident memory of a pass over the file stays bounded no
+ * matter how large the bitmap is. Consecutive bands overlap, so a pass that reads each row along with
+ * the rows either side of it maps every band once. Rows are exchanged as {@code long} words where bit
+ * {@code x & 63} of word {@code x >>> 6} holds column {@code x}.
+ */
+class MappedBitmap {
+    /**
+     * Default upper bound on the number of bytes mapped at once.
+     */
+    public static final int DEFAULT_BAND_BYTES = 64 << 20;
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final long dataOffset;
+    private final int width;
+    private final int height;
+    private final int rowBytes;
+    /**
+     * The number of rows in each mapped band.
+     */
+    private final int bandRows;
+    /**
+     * The currently mapped band, or {@code null} before the first access.
+     */
+    private MappedByteBuffer band;
+    /**
+     * The index of the first row in {@link MappedBitmap#band}.
+     */
+    private int bandStart = -1;
+    /**
+     * The number of bands mapped so far.
+     */
+    private int bandsMapped;
+
+    /**
+     * Initialises access to a bitmap stored in a file.
+     *
+     * @param channel An open {@link FileChannel} holding the bitmap.
+     * @param mode {@link FileChannel.MapMode#READ_ONLY} or {@link FileChannel.MapMode#READ_WRITE}.
+     * @param dataOffset File position of the first row.
+     * @param width The number of cells in each row.
+     * @param height The number of rows.
+     * @param bandBytes Upper bound on the number of bytes to map at once.
+     */
+    public MappedBitmap(FileChannel channel, FileChannel.MapMode mode, long dataOffset, int width, int height,
+                        int bandBytes) {
+        this.channel = channel;
+        this.mode = mode;
+        this.dataOffset = dataOffset;
+        this.width = width;
+        this.height = height;
+        this.rowBytes = (width + 7) >>> 3;
+        this.bandRows = Math.max(1, Math.min(height, bandBytes / rowBytes));
+    }
+
+    /**
+     * Reads a row into an array of words.
+     *
+     * @param y The row to read.
+     * @param words Array of at least {@link MappedBitmap#words()} elements to receive the row.
+     * @throws IOException If the band holding the row cannot be mapped.
+     */
+    public void readRow(int y, long[] words) throws IOException {
+        int offset = rowOffset(y);
+        int word = 0;
+        int i = 0;
+        // Whole words can be read big-endian and bit-reversed in one go
+        for (; i + 8 <= rowBytes; i += 8) {
+            words[word++] = Long.reverse(band.getLong(offset + i));
+        }
+        if (i < rowBytes) {
+            long tail = 0;
+            for (int shift = 0; i < rowBytes; i++, shift += 8) {
+                tail |= (long) (Integer.reverse(band.get(offset + i) & 0xFF) >>> 24) << shift;
+            }
+            words[word] = tail;
+        }
+        // Ignore any padding bits past the end of the row
+        if ((width & 63) != 0) {
+            words[words() - 1] &= -1L >>> (64 - (width & 63));
+        }
+    }
+
+    /**
+     * Writes a row from an array of words.
+     *
+     * @param y The row to write.
+     * @param words Array holding the row.
+     * @throws IOException If the band holding the row cannot be mapped.
+     */
+    public void writeRow(int y, long[] words) throws IOException {
+        int offset = rowOffset(y);
+        int word = 0;
+        int i = 0;
+        for (; i + 8 <= rowBytes; i += 8) {
+            band.putLong(offset + i, Long.reverse(words[word++]));
+        }
+        for (long tail = i < rowBytes ? words[word] : 0; i < rowBytes; i++, tail >>>= 8) {
+            band.put(offset + i, (byte) (Integer.reverse((int) tail & 0xFF) >>> 24));
+        }
+    }
+
+    /**
+     * @return The number of {@code long} words needed to hold one row.
+     */
+    public int words() {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * @return The number of bands mapped so far.
+     */
+    int getBandsMapped() {
+        return bandsMapped;
+    }
+
+    /**
+     * Maps the band holding the given row if necessary.
+     *
+     * @return The offset of the row within {@link MappedBitmap#band}.
+     */
+    private int rowOffset(int y) throws IOException {
+        if (y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Row " + y + " is outside a bitmap of height " + height);
+        }
+        if (band == null || y < bandStart || y >= bandStart + bandRows) {
+            // Keep the row before the one asked for when moving down, and the two after it when moving
+            // up, so a pass over each row and its neighbours maps every band once
+            int start = y < bandStart ? y + 3 - bandRows : y - 1;
+            start = Math.max(y - bandRows + 1, Math.min(start, y));
+            bandStart = Math.max(0, Math.min(start, height - bandRows));
+            int rows = Math.min(bandRows, height - bandStart);
+            band = channel.map(mode, dataOffset + (long) bandStart * rowBytes, (long) rows * rowBytes);
+            band.order(ByteOrder.BIG_ENDIAN);
+            bandsMapped++;
+        }
+        return (y - bandStart) * rowBytes;
+    }
+}
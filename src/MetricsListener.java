@@ -0,0 +1,13 @@
+/**
+ * Receives the cost of every completed {@link AreaEstimator} run.
+ * <p>
+ * Called on the thread that completed the run, so implementations should return quickly.
+ */
+interface MetricsListener {
+    /**
+     * Called once a run, including its corner check, has completed.
+     *
+     * @param metrics The counters and timings of the run.
+     */
+    void runCompleted(RunMetrics metrics);
+}
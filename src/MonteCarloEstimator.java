@@ -0,0 +1,391 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel Monte Carlo area estimator that stops once a requested confidence interval is reached.
+ * <p>
+ * Cells are sampled uniformly across the whole grid by one task per thread, each with its own
+ * {@link SplittableRandom} stream. A sample counts if {@link AreaEngine} would count its cell. An open
+ * cell is tested by searching its component until it meets the start point or runs out. A painted
+ * cell is tested by the boundary and corner rules applied to its neighbours. Every search records its answer for all
+ * the cells it visited, in a cache shared by the tasks, so later samples are usually answered at once.
+ * <p>
+ * The samples are pooled after every batch. Sampling stops as soon as the Wilson score interval for
+ * the counted fraction, scaled to the grid, is narrow enough, or once a sample limit is reached. The
+ * number of samples is then set by the precision asked for rather than the size of the grid. A
+ * sample in a large component still searches that component once, so the worst case remains linear
+ * in the grid.
+ */
+class MonteCarloEstimator {
+    /**
+     * Number of samples each task takes between checks of the interval.
+     */
+    static final int BATCH_SIZE = 1024;
+
+    // Cached answers, shared between tasks. Every task computes the same answer for a cell, so racing
+    // writes are harmless
+    private static final byte UNKNOWN = 0;
+    private static final byte YES = 1;
+    private static final byte NO = 2;
+
+    /**
+     * The result of a Monte Carlo estimation.
+     */
+    static final class Estimate {
+        /**
+         * The estimated area, including the start point.
+         */
+        final double area;
+        /**
+         * Lower end of the confidence interval for the area.
+         */
+        final double lowerBound;
+        /**
+         * Upper end of the confidence interval for the area.
+         */
+        final double upperBound;
+        /**
+         * The number of cells sampled.
+         */
+        final long samples;
+
+        Estimate(double area, double lowerBound, double upperBound, long samples) {
+            this.area = area;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.samples = samples;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f [%.1f, %.1f] from %d samples", area, lowerBound, upperBound, samples);
+        }
+    }
+
+    /**
+     * The pool that sampling tasks are run on.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Seed of the stream every task's stream is split from.
+     */
+    private final long seed;
+
+    public MonteCarloEstimator() {
+        this(ForkJoinPool.commonPool(), System.nanoTime());
+    }
+
+    /**
+     * Initialises the estimator with a specific pool and seed.
+     *
+     * @param pool The {@link ForkJoinPool} to run sampling tasks on.
+     * @param seed Seed for the random streams.
+     */
+    public MonteCarloEstimator(ForkJoinPool pool, long seed) {
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    /**
+     * Samples the grid until the confidence interval is narrow enough or the sample limit is reached.
+     *
+     * @param model {@link GridModel} object to estimate. Its start point must be set.
+     * @param confidence The confidence level of the interval, between 0 and 1 exclusive.
+     * @param maxHalfWidth The widest acceptable half-width of the interval, in cells.
+     * @param maxSamples The most samples to take, however wide the interval.
+     * @return The {@link Estimate}.
+     */
+    public Estimate estimate(GridModel model, double confidence, double maxHalfWidth, long maxSamples) {
+        if (model.getStartPoint() < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1, got " + confidence);
+        }
+        if (maxSamples <= 0) {
+            throw new IllegalArgumentException("Sample limit must be positive, got " + maxSamples);
+        }
+        return pool.invoke(ForkJoinTask.adapt(() -> new Run(model, inverseNormal((1 + confidence) / 2),
+                maxHalfWidth, maxSamples).estimate()));
+    }
+
+    /**
+     * State for a single estimation over one {@link GridModel}.
+     */
+    private final class Run {
+        private final GridModel model;
+        private final double z;
+        private final double maxHalfWidth;
+        private final long maxSamples;
+        /**
+         * Whether each {@link CellStates#DEFAULT} cell is connected to the start point.
+         */
+        private final byte[] reached;
+        /**
+         * Whether each {@link CellStates#PAINTED} cell touches the area or the start point.
+         */
+        private final byte[] boundary;
+        /**
+         * Whether each {@link CellStates#PAINTED} cell is counted by the fill or the corner check.
+         */
+        private final byte[] counted;
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private volatile boolean finished;
+
+        Run(GridModel model, double z, double maxHalfWidth, long maxSamples) {
+            this.model = model;
+            this.z = z;
+            this.maxHalfWidth = maxHalfWidth;
+            this.maxSamples = maxSamples;
+            this.reached = new byte[model.size()];
+            this.boundary = new byte[model.size()];
+            this.counted = new byte[model.size()];
+            // The start point's open neighbours are connected to it by definition
+            int[] neighbours = new int[4];
+            int neighbourCount = model.getNeighbours(model.getStartPoint(), neighbours);
+            for (int i = 0; i < neighbourCount; i++) {
+                reached[neighbours[i]] = YES;
+            }
+        }
+
+        Estimate estimate() {
+            // Split every stream up front so a given seed always gives the same streams
+            SplittableRandom root = new SplittableRandom(seed);
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < pool.getParallelism(); i++) {
+                Sampler sampler = new Sampler(root.split());
+                tasks.add(ForkJoinTask.adapt(sampler::run));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            long n = samples.get();
+            double p = (double) hits.get() / n;
+            double[] interval = wilson(hits.get(), n);
+            return new Estimate(p * model.size(), interval[0] * model.size(), interval[1] * model.size(), n);
+        }
+
+        /**
+         * Computes the Wilson score interval for a proportion.
+         *
+         * @return The lower and upper ends of the interval.
+         */
+        private double[] wilson(long hits, long n) {
+            double p = (double) hits / n;
+            double z2 = z * z;
+            double centre = (p + z2 / (2 * n)) / (1 + z2 / n);
+            double halfWidth = z * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / (1 + z2 / n);
+            return new double[]{Math.max(0, centre - halfWidth), Math.min(1, centre + halfWidth)};
+        }
+
+        /**
+         * Samples batches of cells on one thread until the interval is narrow enough.
+         */
+        private final class Sampler {
+            private final SplittableRandom random;
+            private final int[] neighbours = new int[4];
+            /**
+             * Cells visited by the current search, one bit per cell.
+             */
+            private final long[] visited = new long[(model.size() + 63) >>> 6];
+            private int[] visitedCells = new int[64];
+            private int visitedCount;
+            /**
+             * Cells still to be searched from.
+             */
+            private int[] pending = new int[64];
+            private int pendingCount;
+            /**
+             * Painted cells waiting on the answer for the cell to their left or above.
+             */
+            private int[] stack = new int[64];
+
+            Sampler(SplittableRandom random) {
+                this.random = random;
+            }
+
+            void run() {
+                while (!finished) {
+                    long batchHits = 0;
+                    for (int i = 0; i < BATCH_SIZE; i++) {
+                        if (isCounted(random.nextInt(model.size()))) {
+                            batchHits++;
+                        }
+                    }
+                    long n = samples.addAndGet(BATCH_SIZE);
+                    long h = hits.addAndGet(batchHits);
+                    double[] interval = wilson(h, n);
+                    if (n >= maxSamples || (interval[1] - interval[0]) / 2 * model.size() <= maxHalfWidth) {
+                        finished = true;
+                    }
+                }
+            }
+
+            /**
+             * Whether {@link AreaEstimator} would count a cell.
+             */
+            private boolean isCounted(int id) {
+                return switch (model.getState(id)) {
+                    case START_POINT -> true;
+                    case DEFAULT -> isReached(id);
+                    case PAINTED -> isCountedPainted(id);
+                    default -> false;
+                };
+            }
+
+            /**
+             * Whether an open cell is connected to the start point, searching its component if not yet known.
+             * <p>
+             * The search stops at the first cell whose answer is already known, since every cell it
+             * visited shares that answer.
+             */
+            private boolean isReached(int id) {
+                if (reached[id] != UNKNOWN) {
+                    return reached[id] == YES;
+                }
+                pendingCount = 0;
+                visitedCount = 0;
+                visit(id);
+                byte answer = NO;
+                while (pendingCount > 0) {
+                    int cell = pending[--pendingCount];
+                    if (reached[cell] != UNKNOWN) {
+                        // Every visited cell is connected to this one, so they share its answer
+                        answer = reached[cell];
+                        break;
+                    }
+                    int neighbourCount = model.getNeighbours(cell, neighbours);
+                    for (int i = 0; i < neighbourCount; i++) {
+                        int neighbour = neighbours[i];
+                        if (model.getState(neighbour) == CellStates.DEFAULT
+                                &&  (visited[neighbour >>> 6] & (1L << neighbour)) == 0) {
+                            visit(neighbour);
+                        }
+                    }
+                }
+                // Running out of cells means the whole component is cut off from the start point
+                for (int i = 0; i < visitedCount; i++) {
+                    int cell = visitedCells[i];
+                    visited[cell >>> 6] &= ~(1L << cell);
+                    if (reached[cell] == UNKNOWN) {
+                        reached[cell] = answer;
+                    }
+                }
+                return answer == YES;
+            }
+
+            /**
+             * Whether a painted cell would be counted, following the corner check's dependencies on the
+             * cells to its left and above.
+             */
+            private boolean isCountedPainted(int id) {
+                int width = model.getWidth();
+                int top = 0;
+                stack[top++] = id;
+                while (top > 0) {
+                    int cell = stack[top - 1];
+                    if (counted[cell] != UNKNOWN) {
+                        top--;
+                        continue;
+                    }
+                    int x = cell % width;
+                    if (isBoundary(cell)
+                            ||  (x < width - 1 && isPaintedBoundary(cell + 1))
+                            ||  (cell + width < model.size() && isPaintedBoundary(cell + width))) {
+                        counted[cell] = YES;
+                        top--;
+                        continue;
+                    }
+                    int left = x > 0 && model.getState(cell - 1) == CellStates.PAINTED ? cell - 1 : -1;
+                    int up = cell >= width && model.getState(cell - width) == CellStates.PAINTED ? cell - width : -1;
+                    if (left >= 0 && counted[left] == UNKNOWN) {
+                        top = push(top, left);
+                    } else if (up >= 0 && counted[up] == UNKNOWN) {
+                        top = push(top, up);
+                    } else {
+                        counted[cell] = (left >= 0 && counted[left] == YES) || (up >= 0 && counted[up] == YES)
+                                ? YES : NO;
+                        top--;
+                    }
+                }
+                return counted[id] == YES;
+            }
+
+            private boolean isPaintedBoundary(int id) {
+                return model.getState(id) == CellStates.PAINTED && isBoundary(id);
+            }
+
+            /**
+             * Whether a painted cell touches the area or the start point.
+             */
+            private boolean isBoundary(int id) {
+                if (boundary[id] != UNKNOWN) {
+                    return boundary[id] == YES;
+                }
+                boolean touches = false;
+                int[] around = new int[4];
+                int neighbourCount = model.getNeighbours(id, around);
+                for (int i = 0; i < neighbourCount && !touches; i++) {
+                    int neighbour = around[i];
+                    touches = neighbour == model.getStartPoint()
+                            ||  (model.getState(neighbour) == CellStates.DEFAULT && isReached(neighbour));
+                }
+                boundary[id] = touches ? YES : NO;
+                return touches;
+            }
+
+            private int push(int top, int id) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top] = id;
+                return top + 1;
+            }
+
+            private void visit(int id) {
+                visited[id >>> 6] |= 1L << id;
+                if (visitedCount == visitedCells.length) {
+                    visitedCells = Arrays.copyOf(visitedCells, visitedCount * 2);
+                }
+                visitedCells[visitedCount++] = id;
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                }
+                pending[pendingCount++] = id;
+            }
+        }
+    }
+
+    /**
+     * Inverse of the standard normal cumulative distribution function, using Acklam's rational
+     * approximation (relative error below 1.2e-9).
+     *
+     * @param p A probability between 0 and 1 exclusive.
+     * @return The quantile.
+     */
+    static double inverseNormal(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549671010322163e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - 0.02425) {
+            return -inverseNormal(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
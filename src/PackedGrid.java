@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+/**
+ * Compact one-bit-per-cell grid of {@link CellStates#PAINTED} cells.
+ * <p>
+ * Each row is packed into {@code long} words where bit {@code x & 63} of word {@code x >>> 6} holds
+ * column {@code x}. Used to hold decoded shape files without building a {@link GridModel}.
+ */
+class PackedGrid {
+    private final int width;
+    private final int height;
+    /**
+     * The number of words in each row.
+     */
+    private final int words;
+    /**
+     * Row-major painted bits.
+     */
+    private final long[] painted;
+
+    public PackedGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.words = (width + 63) >>> 6;
+        this.painted = new long[Math.multiplyExact(words, height)];
+    }
+
+    /**
+     * Copies the {@link CellStates#PAINTED} cells of a {@link GridModel}.
+     *
+     * @param model {@link GridModel} object to copy.
+     * @return A new {@link PackedGrid}.
+     */
+    public static PackedGrid of(GridModel model) {
+        PackedGrid grid = new PackedGrid(model.getWidth(), model.getHeight());
+        for (int id = 0; id < model.size(); id++) {
+            if (model.getState(id) == CellStates.PAINTED) {
+                grid.setPainted(id % model.getWidth(), id / model.getWidth(), true);
+            }
+        }
+        return grid;
+    }
+
+    public boolean isPainted(int x, int y) {
+        return (painted[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void setPainted(int x, int y, boolean isPainted) {
+        if (isPainted) {
+            painted[y * words + (x >>> 6)] |= 1L << x;
+        } else {
+            painted[y * words + (x >>> 6)] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Copies a row's words into the grid.
+     *
+     * @param y The row to set.
+     * @param row At least {@link PackedGrid#getWords()} words; bits past the width are ignored.
+     */
+    public void setRow(int y, long[] row) {
+        System.arraycopy(row, 0, painted, y * words, words);
+        if ((width & 63) != 0) {
+            painted[y * words + words - 1] &= -1L >>> (64 - (width & 63));
+        }
+    }
+
+    /**
+     * Copies a row's words out of the grid.
+     *
+     * @param y The row to get.
+     * @param row Array of at least {@link PackedGrid#getWords()} words to receive the row.
+     */
+    public void getRow(int y, long[] row) {
+        System.arraycopy(painted, y * words, row, 0, words);
+    }
+
+    /**
+     * @return A copy of the row-major painted bits, {@link PackedGrid#getWords()} words per row.
+     */
+    public long[] toWords() {
+        return Arrays.copyOf(painted, painted.length);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+    public int getWords() {
+        return words;
+    }
+}
@@ -0,0 +1,287 @@
+import java.util.Arrays;
+
+/**
+ * Grid backend padded with a one-cell border of sentinel cells, so neighbours are found by fixed index
+ * offsets without any bounds checks.
+ * <p>
+ * Cells are addressed by padded indices, where the cell at column {@code x} and row {@code y} is at
+ * {@code (y + 1) * stride + x + 1} and {@code stride} is the width plus two. Every cell of the grid
+ * has all of its neighbours in the padded layout, and those past the edge of the grid are
+ * {@link PaddedGrid#BORDER} cells, which are never open or painted. Walks therefore stop at the edge of
+ * the grid by the same state checks that stop them at painted cells.
+ * <p>
+ * Neighbourhoods are looked up from offset tables built once per grid, for either
+ * {@link Connectivity}.
+ */
+class PaddedGrid {
+    /**
+     * The state of the sentinel cells around the grid.
+     */
+    static final byte BORDER = -1;
+    private static final byte PAINTED = (byte) CellStates.PAINTED.ordinal();
+
+    private final int width;
+    private final int height;
+    /**
+     * The distance between the indices of vertically adjacent cells.
+     */
+    private final int stride;
+    /**
+     * The state of every cell in the padded layout, stored as {@link CellStates} ordinals or
+     * {@link PaddedGrid#BORDER}.
+     */
+    private final byte[] cells;
+    private final int[] vonNeumannOffsets;
+    private final int[] mooreOffsets;
+    /**
+     * The padded index of the starting cell, or -1 if none is set.
+     */
+    private int startPoint = -1;
+
+    // Fill buffers, reused between runs
+    private byte[] marks;
+    private int[] stack = new int[64];
+
+    public PaddedGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        if ((long) (width + 2) * (height + 2) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " cells is too large to hold in memory");
+        }
+        this.width = width;
+        this.height = height;
+        this.stride = width + 2;
+        this.cells = new byte[stride * (height + 2)];
+        Arrays.fill(cells, BORDER);
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(cells, index(0, y), index(width, y), (byte) CellStates.DEFAULT.ordinal());
+        }
+        this.vonNeumannOffsets = Connectivity.VON_NEUMANN.offsets(stride);
+        this.mooreOffsets = Connectivity.MOORE.offsets(stride);
+    }
+
+    /**
+     * Copies the cell states and start point of a {@link GridModel}.
+     *
+     * @param model {@link GridModel} object to copy.
+     * @return A new {@link PaddedGrid}.
+     */
+    public static PaddedGrid of(GridModel model) {
+        int width = model.getWidth();
+        PaddedGrid grid = new PaddedGrid(width, model.getHeight());
+        for (int y = 0, id = 0; y < model.getHeight(); y++) {
+            int row = grid.index(0, y);
+            for (int x = 0; x < width; x++, id++) {
+                grid.cells[row + x] = (byte) model.getState(id).ordinal();
+            }
+        }
+        if (model.getStartPoint() >= 0) {
+            grid.startPoint = grid.toPadded(model.getStartPoint());
+        }
+        return grid;
+    }
+
+    /**
+     * Converts a column and row into a padded index.
+     *
+     * @param x Column of the cell.
+     * @param y Row of the cell.
+     * @return Padded index of the cell.
+     */
+    public int index(int x, int y) {
+        return (y + 1) * stride + x + 1;
+    }
+
+    /**
+     * Converts a {@link GridModel} cell ID into a padded index.
+     *
+     * @param id ID of a cell in row-major order.
+     * @return Padded index of the cell.
+     */
+    public int toPadded(int id) {
+        return index(id % width, id / width);
+    }
+
+    /**
+     * Converts a padded index back into a {@link GridModel} cell ID.
+     *
+     * @param index Padded index of a cell inside the grid.
+     * @return ID of the cell in row-major order.
+     */
+    public int toCellId(int index) {
+        return (index / stride - 1) * width + index % stride - 1;
+    }
+
+    /**
+     * Gets the precomputed offsets from a cell's padded index to its neighbours'.
+     * <p>
+     * The returned table is shared and must not be modified.
+     *
+     * @param connectivity Which neighbourhood to look up.
+     * @return The offset of each neighbour, in the order listed by the {@link Connectivity}.
+     */
+    public int[] getOffsets(Connectivity connectivity) {
+        return connectivity == Connectivity.MOORE ? mooreOffsets : vonNeumannOffsets;
+    }
+
+    /**
+     * Writes the padded indices of the neighbourhood of the given cell into {@code out}, skipping
+     * {@link PaddedGrid#BORDER} cells.
+     *
+     * @param index Padded index of a cell inside the grid.
+     * @param connectivity Which neighbourhood to look up.
+     * @param out Array of at least {@link Connectivity#size()} elements to receive the neighbours.
+     * @return The number of neighbours written.
+     */
+    public int getNeighbours(int index, Connectivity connectivity, int[] out) {
+        int count = 0;
+        for (int offset : getOffsets(connectivity)) {
+            int neighbour = index + offset;
+            if (cells[neighbour] != BORDER) {
+                out[count++] = neighbour;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param index Padded index of a cell.
+     * @return The cell's {@link CellStates} ordinal, or {@link PaddedGrid#BORDER}.
+     */
+    public byte getState(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Sets the state of a cell inside the grid.
+     *
+     * @param index Padded index of a cell inside the grid.
+     * @param state The new {@link CellStates} value.
+     */
+    public void setState(int index, CellStates state) {
+        if (cells[index] == BORDER) {
+            throw new IllegalArgumentException("Cell " + index + " is outside the " + width + "x" + height + " grid");
+        }
+        cells[index] = (byte) state.ordinal();
+    }
+
+    /**
+     * Estimates the area of the region containing the start point, without changing any cells.
+     * <p>
+     * The fill and the corner check are the same as {@link AreaEstimator}'s, and the total matches
+     * {@link AreaEstimator#runAlgorithm()} on a freshly drawn grid. The fill follows the von Neumann
+     * offsets; the corner check walks from the boundary cells to the painted cells left of and above
+     * them, then right and down, which the sentinels stop at the edge of the grid.
+     *
+     * @return The number of cells counted, including the start point.
+     */
+    public long estimateArea() {
+        if (startPoint < 0) {
+            throw new IllegalStateException("Grid has no start point");
+        }
+        if (marks == null) {
+            marks = new byte[cells.length];
+        } else {
+            Arrays.fill(marks, (byte) 0);
+        }
+        // The start point is never painted, and is counted like any other open cell
+        long area = 1;
+        marks[startPoint] = 1;
+        int stackSize = push(0, startPoint);
+        int[] boundary = new int[64];
+        int boundaryCount = 0;
+        while (stackSize > 0) {
+            int index = stack[--stackSize];
+            for (int offset : vonNeumannOffsets) {
+                int neighbour = index + offset;
+                if (marks[neighbour] != 0) {
+                    continue;
+                }
+                byte state = cells[neighbour];
+                if (state == PAINTED) {
+                    marks[neighbour] = 1;
+                    if (boundaryCount == boundary.length) {
+                        boundary = Arrays.copyOf(boundary, boundaryCount * 2);
+                    }
+                    boundary[boundaryCount++] = neighbour;
+                } else if (state != BORDER) {
+                    marks[neighbour] = 1;
+                    area++;
+                    stackSize = push(stackSize, neighbour);
+                }
+            }
+        }
+
+        area += boundaryCount;
+        // The painted cells to the left of and above a boundary cell count, as the check reaches them first
+        for (int i = 0; i < boundaryCount; i++) {
+            int index = boundary[i];
+            stackSize = push(stackSize, index);
+            if (count(index - 1)) {
+                area++;
+                stackSize = push(stackSize, index - 1);
+            }
+            if (count(index - stride)) {
+                area++;
+                stackSize = push(stackSize, index - stride);
+            }
+        }
+        // Counting then carries on to the right and downwards through painted cells
+        while (stackSize > 0) {
+            int index = stack[--stackSize];
+            if (count(index + 1)) {
+                area++;
+                stackSize = push(stackSize, index + 1);
+            }
+            if (count(index + stride)) {
+                area++;
+                stackSize = push(stackSize, index + stride);
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Marks a painted cell that has not been counted yet.
+     *
+     * @return Whether the cell was counted.
+     */
+    private boolean count(int index) {
+        if (cells[index] != PAINTED || marks[index] != 0) {
+            return false;
+        }
+        marks[index] = 1;
+        return true;
+    }
+
+    private int push(int stackSize, int index) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize] = index;
+        return stackSize + 1;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+    /**
+     * @return The distance between the indices of vertically adjacent cells.
+     */
+    public int getStride() {
+        return stride;
+    }
+    /**
+     * @return Padded index of the start point, or -1 if none is set.
+     */
+    public int getStartPoint() {
+        return startPoint;
+    }
+    public void setStartPoint(int startPoint) {
+        this.startPoint = startPoint;
+    }
+}
@@ -0,0 +1,363 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parallel tiled {@link AreaEngine}.
+ * <p>
+ * The grid is split into square tiles whose {@link CellStates#DEFAULT} components are labelled
+ * independently on a {@link ForkJoinPool}. Components that meet across tile edges are then merged
+ * with a union-find, and the boundary and corner cells are counted tile by tile.
+ */
+class ParallelFill implements AreaEngine {
+    /**
+     * Default number of cells along each side of a tile.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    // Per-cell flags used while counting the boundary
+    private static final byte BOUNDARY = 1;
+    private static final byte CORNER = 2;
+
+    /**
+     * The pool that tile tasks are run on.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * The number of cells along each side of a tile.
+     */
+    private final int tileSize;
+
+    public ParallelFill() {
+        this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Initialises the engine with a specific pool and tile size.
+     *
+     * @param pool The {@link ForkJoinPool} to run tile tasks on.
+     * @param tileSize The number of cells along each side of a tile.
+     */
+    public ParallelFill(ForkJoinPool pool, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive, got " + tileSize);
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    @Override
+    public long estimateArea(GridModel model) {
+        if (model.getStartPoint() < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        return pool.invoke(ForkJoinTask.adapt(() -> new Run(model).estimate()));
+    }
+
+    /**
+     * State for a single estimation over one {@link GridModel}.
+     */
+    private final class Run {
+        private final GridModel model;
+        private final int width;
+        private final int height;
+        private final int tilesX;
+        private final int tilesY;
+        /**
+         * Per-cell component label: the ID of the component's first cell within its tile plus one,
+         * or 0 for cells that are not {@link CellStates#DEFAULT}.
+         */
+        private final int[] labels;
+        /**
+         * Union-find parent links, indexed by the cell ID a label was taken from.
+         */
+        private final int[] parent;
+        /**
+         * Per-cell {@link ParallelFill#BOUNDARY} and {@link ParallelFill#CORNER} flags.
+         */
+        private final byte[] flags;
+        /**
+         * Roots of the components touching the start point.
+         */
+        private final int[] regionRoots = new int[4];
+        private int regionRootCount;
+
+        Run(GridModel model) {
+            this.model = model;
+            this.width = model.getWidth();
+            this.height = model.getHeight();
+            this.tilesX = (width + tileSize - 1) / tileSize;
+            this.tilesY = (height + tileSize - 1) / tileSize;
+            this.labels = new int[model.size()];
+            this.parent = new int[model.size()];
+            this.flags = new byte[model.size()];
+        }
+
+        long estimate() {
+            // Label each tile's components independently
+            forEachTile(this::labelTile);
+            // Merge the components that meet across tile edges
+            mergeSeams();
+            // Point every label straight at its root so lookups below are read-only
+            forEachTile(this::flattenTile);
+            findRegionRoots();
+
+            long[] tileCounts = new long[tilesX * tilesY];
+            forEachTile((tx, ty) -> tileCounts[ty * tilesX + tx] = countTile(tx, ty));
+            // Corners depend on the cells above and to the left, so sweep the tiles diagonal by diagonal
+            for (int diagonal = 0; diagonal < tilesX + tilesY - 1; diagonal++) {
+                ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (int ty = Math.max(0, diagonal - tilesX + 1); ty <= Math.min(diagonal, tilesY - 1); ty++) {
+                    int tx = diagonal - ty;
+                    int tileY = ty;
+                    tasks.add(ForkJoinTask.adapt(() -> tileCounts[tileY * tilesX + tx] += sweepCorners(tx, tileY)));
+                }
+                ForkJoinTask.invokeAll(tasks);
+            }
+
+            // Start on one to account for the starting point
+            long total = 1;
+            for (long tileCount : tileCounts) {
+                total += tileCount;
+            }
+            return total;
+        }
+
+        /**
+         * Labels every {@link CellStates#DEFAULT} component within a tile using an iterative fill.
+         */
+        private void labelTile(int tx, int ty) {
+            int x0 = tx * tileSize;
+            int y0 = ty * tileSize;
+            int x1 = Math.min(x0 + tileSize, width);
+            int y1 = Math.min(y0 + tileSize, height);
+            int[] stack = new int[64];
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    int id = y * width + x;
+                    if (labels[id] != 0 || model.getState(id) != CellStates.DEFAULT) {
+                        continue;
+                    }
+                    // New component: this cell becomes its representative
+                    int label = id + 1;
+                    parent[id] = id;
+                    labels[id] = label;
+                    int stackSize = 0;
+                    stack[stackSize++] = id;
+                    while (stackSize > 0) {
+                        int cell = stack[--stackSize];
+                        int cx = cell % width;
+                        int cy = cell / width;
+                        if (stack.length < stackSize + 4) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        if (cx > x0 && claim(cell - 1, label)) {
+                            stack[stackSize++] = cell - 1;
+                        }
+                        if (cy > y0 && claim(cell - width, label)) {
+                            stack[stackSize++] = cell - width;
+                        }
+                        if (cx < x1 - 1 && claim(cell + 1, label)) {
+                            stack[stackSize++] = cell + 1;
+                        }
+                        if (cy < y1 - 1 && claim(cell + width, label)) {
+                            stack[stackSize++] = cell + width;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Labels the given cell if it is an unlabelled {@link CellStates#DEFAULT} cell.
+         *
+         * @return Whether the cell was labelled.
+         */
+        private boolean claim(int id, int label) {
+            if (labels[id] != 0 || model.getState(id) != CellStates.DEFAULT) {
+                return false;
+            }
+            labels[id] = label;
+            return true;
+        }
+
+        /**
+         * Unions the components on either side of every tile edge.
+         */
+        private void mergeSeams() {
+            for (int x = tileSize; x < width; x += tileSize) {
+                for (int y = 0; y < height; y++) {
+                    int id = y * width + x;
+                    union(labels[id - 1], labels[id]);
+                }
+            }
+            for (int y = tileSize; y < height; y += tileSize) {
+                for (int x = 0; x < width; x++) {
+                    int id = y * width + x;
+                    union(labels[id - width], labels[id]);
+                }
+            }
+        }
+
+        private void union(int labelA, int labelB) {
+            if (labelA == 0 || labelB == 0) {
+                return;
+            }
+            int rootA = find(labelA - 1);
+            int rootB = find(labelB - 1);
+            if (rootA != rootB) {
+                // Always link to the lower root so the result doesn't depend on merge order
+                parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+            }
+        }
+
+        private int find(int id) {
+            while (parent[id] != id) {
+                // Path halving
+                parent[id] = parent[parent[id]];
+                id = parent[id];
+            }
+            return id;
+        }
+
+        /**
+         * Points every representative within a tile directly at its root.
+         */
+        private void flattenTile(int tx, int ty) {
+            int x0 = tx * tileSize;
+            int y0 = ty * tileSize;
+            int x1 = Math.min(x0 + tileSize, width);
+            int y1 = Math.min(y0 + tileSize, height);
+            for (int y = y0; y < y1; y++) {
+                for (int id = y * width + x0; id < y * width + x1; id++) {
+                    if (labels[id] == id + 1) {
+                        int root = id;
+                        while (parent[root] != root) {
+                            root = parent[root];
+                        }
+                        parent[id] = root;
+                    }
+                }
+            }
+        }
+
+        private void findRegionRoots() {
+            int[] neighbours = new int[4];
+            int neighbourCount = model.getNeighbours(model.getStartPoint(), neighbours);
+            for (int i = 0; i < neighbourCount; i++) {
+                int label = labels[neighbours[i]];
+                if (label != 0) {
+                    regionRoots[regionRootCount++] = parent[label - 1];
+                }
+            }
+        }
+
+        /**
+         * Whether the given cell is part of the region reachable from the start point.
+         */
+        private boolean inRegion(int id) {
+            int label = labels[id];
+            if (label == 0) {
+                return false;
+            }
+            int root = parent[label - 1];
+            for (int i = 0; i < regionRootCount; i++) {
+                if (regionRoots[i] == root) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Counts the region cells within a tile and flags the boundary cells touching the region.
+         *
+         * @return The number of region and boundary cells in the tile.
+         */
+        private long countTile(int tx, int ty) {
+            int startPoint = model.getStartPoint();
+            int[] neighbours = new int[4];
+            int x0 = tx * tileSize;
+            int y0 = ty * tileSize;
+            int x1 = Math.min(x0 + tileSize, width);
+            int y1 = Math.min(y0 + tileSize, height);
+            long count = 0;
+            for (int y = y0; y < y1; y++) {
+                for (int id = y * width + x0; id < y * width + x1; id++) {
+                    switch (model.getState(id)) {
+                        case DEFAULT -> {
+                            if (inRegion(id)) {
+                                count++;
+                            }
+                        }
+                        case PAINTED -> {
+                            int neighbourCount = model.getNeighbours(id, neighbours);
+                            for (int i = 0; i < neighbourCount; i++) {
+                                if (neighbours[i] == startPoint || inRegion(neighbours[i])) {
+                                    flags[id] = BOUNDARY;
+                                    count++;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Replays {@link AreaEstimator}'s corner check over a tile.
+         * <p>
+         * That check runs in row-major order, so an uncounted {@link CellStates#PAINTED} cell is
+         * counted when a painted neighbour to its left or above was counted at any point, or a painted
+         * neighbour to its right or below was counted by the fill. The tiles above and to the left must
+         * already have been swept.
+         *
+         * @return The number of corner cells in the tile.
+         */
+        private long sweepCorners(int tx, int ty) {
+            int x0 = tx * tileSize;
+            int y0 = ty * tileSize;
+            int x1 = Math.min(x0 + tileSize, width);
+            int y1 = Math.min(y0 + tileSize, height);
+            long count = 0;
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    int id = y * width + x;
+                    if (flags[id] != 0 || model.getState(id) != CellStates.PAINTED) {
+                        continue;
+                    }
+                    if ((x > 0 && flags[id - 1] != 0)
+                            ||  (y > 0 && flags[id - width] != 0)
+                            ||  (x < width - 1 && flags[id + 1] == BOUNDARY)
+                            ||  (y < height - 1 && flags[id + width] == BOUNDARY)) {
+                        flags[id] = CORNER;
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private void forEachTile(TileAction action) {
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(tilesX * tilesY);
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int tileX = tx;
+                    int tileY = ty;
+                    tasks.add(ForkJoinTask.adapt(() -> action.run(tileX, tileY)));
+                }
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+
+    /**
+     * An action run once per tile.
+     */
+    private interface TileAction {
+        void run(int tx, int ty);
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads and writes grids as raw (P4) portable bitmaps.
+ * <p>
+ * Set bits are {@link CellStates#PAINTED} cells and clear bits {@link CellStates#DEFAULT} cells. Each
+ * row is packed most significant bit first and padded to a whole byte.
+ */
+final class PbmFormat {
+    /**
+     * The dimensions of a bitmap and where its pixel data starts.
+     */
+    static final class Header {
+        final int width;
+        final int height;
+        final long dataOffset;
+
+        Header(int width, int height, long dataOffset) {
+            this.width = width;
+            this.height = height;
+            this.dataOffset = dataOffset;
+        }
+
+        /**
+         * @return The number of bytes in each packed row.
+         */
+        int rowBytes() {
+            return (width + 7) >>> 3;
+        }
+    }
+
+    private PbmFormat() {
+    }
+
+    /**
+     * Parses the header at the start of a P4 bitmap.
+     *
+     * @param channel An open {@link FileChannel} positioned anywhere.
+     * @return The parsed {@link Header}.
+     * @throws IOException If the file is not a P4 bitmap.
+     */
+    static Header readHeader(FileChannel channel) throws IOException {
+        // Read a block at a time until the last number ends, however long the comments are
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        buffer.flip();
+        long[] position = new long[1];
+        Header header = readHeader(() -> {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer, position[0]);
+                buffer.flip();
+                if (read <= 0) {
+                    return -1;
+                }
+                position[0] += read;
+            }
+            return buffer.get() & 0xFF;
+        });
+        if (channel.size() < header.dataOffset + (long) header.rowBytes() * header.height) {
+            throw new IOException("PBM file is truncated");
+        }
+        return header;
+    }
+
+    /**
+     * Parses the header at the start of a P4 bitmap stream, leaving the stream at the first row.
+     *
+     * @param in Stream positioned at the start of the bitmap.
+     * @return The parsed {@link Header}.
+     * @throws IOException If the stream is not a P4 bitmap.
+     */
+    static Header readHeader(InputStream in) throws IOException {
+        return readHeader(in::read);
+    }
+
+    private static Header readHeader(ByteSource source) throws IOException {
+        long[] consumed = new long[1];
+        ByteSource counting = () -> {
+            consumed[0]++;
+            return source.next();
+        };
+        if (counting.next() != 'P' || counting.next() != '4') {
+            throw new IOException("Not a raw PBM (P4) file");
+        }
+        int width = readNumber(counting, false);
+        // Exactly one whitespace character separates the height from the pixel data
+        int height = readNumber(counting, true);
+        if (width <= 0 || height <= 0) {
+            throw new IOException("PBM dimensions must be positive, got " + width + "x" + height);
+        }
+        return new Header(width, height, consumed[0]);
+    }
+
+    /**
+     * Reads a bitmap into a new {@link GridModel}, marking the given cell as the start point.
+     *
+     * @param path Path to a P4 bitmap.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     * @return A {@link GridModel} holding the bitmap.
+     * @throws IOException If the file cannot be read.
+     */
+    static GridModel read(Path path, int startX, int startY) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            Header header = readHeader(channel);
+            if (startX < 0 || startX >= header.width || startY < 0 || startY >= header.height) {
+                throw new IOException("Start point (" + startX + ", " + startY + ") is outside the "
+                        + header.width + "x" + header.height + " bitmap");
+            }
+            GridModel model = new GridModel(header.width, header.height);
+            ByteBuffer row = ByteBuffer.allocate(header.rowBytes());
+            for (int y = 0; y < header.height; y++) {
+                row.clear();
+                readFully(channel, row, header.dataOffset + (long) y * header.rowBytes());
+                for (int x = 0; x < header.width; x++) {
+                    if ((row.get(x >>> 3) & (0x80 >>> (x & 7))) != 0) {
+                        model.setState(model.index(x, y), CellStates.PAINTED);
+                    }
+                }
+            }
+            int startPoint = model.index(startX, startY);
+            model.setState(startPoint, CellStates.START_POINT);
+            model.setStartPoint(startPoint);
+            return model;
+        }
+    }
+
+    /**
+     * Reads a bitmap stream straight into a {@link PackedGrid}.
+     *
+     * @param in Stream positioned at the start of the bitmap.
+     * @return A {@link PackedGrid} holding the bitmap.
+     * @throws IOException If the stream cannot be read.
+     */
+    static PackedGrid readPacked(InputStream in) throws IOException {
+        Header header = readHeader(in);
+        PackedGrid grid = new PackedGrid(header.width, header.height);
+        DataInputStream data = new DataInputStream(in);
+        byte[] bytes = new byte[header.rowBytes()];
+        long[] row = new long[grid.getWords()];
+        for (int y = 0; y < header.height; y++) {
+            readRow(data, bytes, y, header.height);
+            unpackRow(bytes, row, header.width);
+            grid.setRow(y, row);
+        }
+        return grid;
+    }
+
+    /**
+     * Reads the next packed row from a bitmap stream.
+     *
+     * @throws EOFException If the stream ends first.
+     */
+    static void readRow(DataInputStream data, byte[] bytes, int y, int height) throws IOException {
+        try {
+            data.readFully(bytes);
+        } catch (EOFException e) {
+            throw new EOFException("PBM stream ended after " + y + " of " + height + " rows");
+        }
+    }
+
+    /**
+     * Converts a packed row, most significant bit first, into words where bit {@code x & 63} of word
+     * {@code x >>> 6} holds column {@code x}.
+     *
+     * @param bytes The packed row.
+     * @param words Array of at least {@code (width + 63) / 64} words to receive the row.
+     * @param width The number of cells in the row.
+     */
+    static void unpackRow(byte[] bytes, long[] words, int width) {
+        int wordCount = (width + 63) >>> 6;
+        Arrays.fill(words, 0, wordCount, 0);
+        for (int i = 0; i < bytes.length; i++) {
+            words[i >>> 3] |= (long) (Integer.reverse(bytes[i] & 0xFF) >>> 24) << ((i & 7) << 3);
+        }
+        // Ignore any padding bits past the end of the row
+        if ((width & 63) != 0) {
+            words[wordCount - 1] &= -1L >>> (64 - (width & 63));
+        }
+    }
+
+    /**
+     * Writes the {@link CellStates#PAINTED} cells of a {@link GridModel} as a P4 bitmap.
+     *
+     * @param model {@link GridModel} object to write.
+     * @param out Stream to write the bitmap to.
+     * @throws IOException If the stream cannot be written.
+     */
+    static void write(GridModel model, OutputStream out) throws IOException {
+        int width = model.getWidth();
+        out.write(("P4\n" + width + " " + model.getHeight() + "\n").getBytes());
+        byte[] row = new byte[(width + 7) >>> 3];
+        for (int y = 0; y < model.getHeight(); y++) {
+            Arrays.fill(row, (byte) 0);
+            for (int x = 0; x < width; x++) {
+                if (model.getState(model.index(x, y)) == CellStates.PAINTED) {
+                    row[x >>> 3] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+            out.write(row);
+        }
+    }
+
+    static void write(GridModel model, Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(model, out);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full.
+     *
+     * @param channel An open {@link FileChannel}.
+     * @param buffer The buffer to fill.
+     * @param position File position to start reading from.
+     * @throws IOException If the end of the file is reached first.
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of PBM file");
+            }
+        }
+    }
+
+    /**
+     * Reads a decimal number, skipping any leading whitespace and comments.
+     *
+     * @param source Where to read the header from.
+     * @param last Whether this is the last number in the header, which must end in a single whitespace.
+     */
+    private static int readNumber(ByteSource source, boolean last) throws IOException {
+        int c = source.next();
+        while (c == '#' || (c >= 0 && Character.isWhitespace(c))) {
+            if (c == '#') {
+                skipComment(source);
+            }
+            c = source.next();
+        }
+        if (c < '0' || c > '9') {
+            throw new IOException("Malformed PBM header");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("PBM dimension is too large");
+            }
+            c = source.next();
+        }
+        if (c == '#' && !last) {
+            skipComment(source);
+        } else if (c < 0 || !Character.isWhitespace(c)) {
+            throw new IOException("Malformed PBM header");
+        }
+        return (int) value;
+    }
+
+    private static void skipComment(ByteSource source) throws IOException {
+        int c;
+        do {
+            c = source.next();
+        } while (c >= 0 && c != '\n');
+    }
+
+    /**
+     * A source of header bytes, returning -1 at the end of the input.
+     */
+    private interface ByteSource {
+        int next() throws IOException;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Receives progress from an area estimation running on a background worker.
+ * <p>
+ * Every method is called on the Swing event thread.
+ */
+interface ProgressListener {
+    /**
+     * Called at most once per frame while the estimation runs.
+     *
+     * @param countedCells The number of cells counted so far.
+     */
+    void progressChanged(long countedCells);
+
+    /**
+     * Called once the estimation completes.
+     *
+     * @param area The final area, including the start point.
+     */
+    default void finished(long area) {
+    }
+
+    /**
+     * Called instead of {@link ProgressListener#finished(long)} if the estimation was cancelled.
+     */
+    default void cancelled() {
+    }
+}
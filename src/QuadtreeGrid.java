@@ -0,0 +1,490 @@
+import java.util.Arrays;
+
+/**
+ * Sparse grid backend that stores cell states as a region quadtree.
+ * <p>
+ * The grid is padded to a power-of-two square and split into quadrants only where their cells differ,
+ * so large uniform areas are held by a single leaf. Cells past the edge of the grid belong to a shared
+ * outside leaf. The cell API mirrors {@link GridModel}: cells are addressed by the same row-major IDs
+ * and have the same von Neumann neighbourhoods.
+ * <p>
+ * {@link QuadtreeGrid#estimateArea()} fills whole {@link CellStates#DEFAULT} leaves at a time, adding
+ * each leaf's area in O(1), so its cost follows the number of leaves and boundary cells rather than
+ * the size of the grid, plus O(1) for each row the corner check passes over. Shapes that break up
+ * into single-cell leaves are its worst case, as every cell is then a node of its own.
+ */
+class QuadtreeGrid {
+    /**
+     * A quadtree node: either a leaf holding one state for its whole square, or four children.
+     */
+    private static final class Node {
+        /**
+         * The state of every cell in the square, or {@code null} if the node has children.
+         */
+        CellStates state;
+        /**
+         * Children in the order top-left, top-right, bottom-left, bottom-right, or {@code null} for a leaf.
+         */
+        Node[] children;
+        /**
+         * The last fill to reach this leaf.
+         */
+        int fillStamp;
+
+        Node(CellStates state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * Shared leaf covering every cell past the edge of the grid.
+     */
+    private static final Node OUTSIDE = new Node(null);
+
+    private final int width;
+    private final int height;
+    /**
+     * Side of the power-of-two square covered by the root.
+     */
+    private final int rootSize;
+    private Node root;
+    /**
+     * The index of the starting cell for where the algorithm will begin, or -1 if none is set.
+     */
+    private int startPoint = -1;
+    private int fillStamp;
+
+    // Bounds of the leaf found by the last call to leafAt
+    private int leafX;
+    private int leafY;
+    private int leafSize;
+    // Nodes from the root down to the leaf found by the last call to leafAt, and their corners, so the
+    // next lookup only climbs as far as the square holding both cells
+    private final Node[] path;
+    private final int[] pathX;
+    private final int[] pathY;
+    private int pathDepth;
+
+    /**
+     * Painted cells touching the fill, in the order found and once for each side they touch it on.
+     * Reused between runs.
+     */
+    private int[] boundary = new int[64];
+    private int boundaryCount;
+
+    /**
+     * Initialises a {@link QuadtreeGrid} with every cell in the {@link CellStates#DEFAULT} state.
+     *
+     * @param width The number of cells in each row.
+     * @param height The number of rows.
+     */
+    public QuadtreeGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        if ((long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " cells is too large to address");
+        }
+        this.width = width;
+        this.height = height;
+        int side = 1;
+        while (side < Math.max(width, height)) {
+            side <<= 1;
+        }
+        this.rootSize = side;
+        int levels = Integer.numberOfTrailingZeros(side) + 1;
+        this.path = new Node[levels];
+        this.pathX = new int[levels];
+        this.pathY = new int[levels];
+        this.root = build(0, 0, rootSize, null);
+    }
+
+    /**
+     * Copies the cell states and start point of a {@link GridModel}.
+     *
+     * @param model {@link GridModel} object to copy.
+     * @return A new {@link QuadtreeGrid}.
+     */
+    public static QuadtreeGrid of(GridModel model) {
+        QuadtreeGrid grid = new QuadtreeGrid(model.getWidth(), model.getHeight());
+        grid.root = grid.build(0, 0, grid.rootSize, model);
+        grid.startPoint = model.getStartPoint();
+        return grid;
+    }
+
+    /**
+     * Builds the subtree for a square, collapsing it to a leaf wherever its cells agree.
+     *
+     * @param model {@link GridModel} object to copy states from, or {@code null} for all
+     *              {@link CellStates#DEFAULT} cells.
+     */
+    private Node build(int x, int y, int size, GridModel model) {
+        if (x >= width || y >= height) {
+            return OUTSIDE;
+        }
+        if (size == 1) {
+            return new Node(model == null ? CellStates.DEFAULT : model.getState(model.index(x, y)));
+        }
+        if (model == null && x + size <= width && y + size <= height) {
+            return new Node(CellStates.DEFAULT);
+        }
+        int half = size / 2;
+        Node node = new Node(null);
+        node.children = new Node[]{
+                build(x, y, half, model),
+                build(x + half, y, half, model),
+                build(x, y + half, half, model),
+                build(x + half, y + half, half, model)};
+        return collapse(node);
+    }
+
+    /**
+     * Replaces a node with a single leaf if its children are leaves in the same state.
+     */
+    private static Node collapse(Node node) {
+        Node first = node.children[0];
+        if (first.children != null) {
+            return node;
+        }
+        for (Node child : node.children) {
+            if (child.children != null || child.state != first.state) {
+                return node;
+            }
+        }
+        return first == OUTSIDE ? OUTSIDE : new Node(first.state);
+    }
+
+    /**
+     * Converts a column and row into a cell index.
+     *
+     * @param x Column of the cell.
+     * @param y Row of the cell.
+     * @return Index of the cell in row-major order.
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Writes the indices of the von Neumann neighbourhood of the given cell into {@code out}.
+     * <p>
+     * Neighbours are written in the same order as {@link GridModel#getNeighbours(int, int[])}:
+     * left, above, right, below.
+     *
+     * @param id ID of a given cell.
+     * @param out Array of at least four elements to receive the neighbour indices.
+     * @return The number of neighbours written.
+     */
+    public int getNeighbours(int id, int[] out) {
+        int x = id % width;
+        int y = id / width;
+        int count = 0;
+        if (x > 0) {
+            out[count++] = id - 1;
+        }
+        if (y > 0) {
+            out[count++] = id - width;
+        }
+        if (x < width - 1) {
+            out[count++] = id + 1;
+        }
+        if (y < height - 1) {
+            out[count++] = id + width;
+        }
+        return count;
+    }
+
+    public CellStates getState(int id) {
+        return leafAt(id % width, id / width).state;
+    }
+
+    /**
+     * Sets the state of a cell, splitting the leaf it is in and merging any quadrants that become uniform.
+     *
+     * @param id ID of a given cell.
+     * @param state The new {@link CellStates} value.
+     */
+    public void setState(int id, CellStates state) {
+        root = setState(root, 0, 0, rootSize, id % width, id / width, state);
+        // The nodes on the path may have been split or merged
+        pathDepth = 0;
+    }
+
+    private Node setState(Node node, int nodeX, int nodeY, int size, int x, int y, CellStates state) {
+        if (node.children == null) {
+            if (node.state == state) {
+                return node;
+            }
+            if (size == 1) {
+                return new Node(state);
+            }
+            // Split the leaf so only the quadrant holding the cell changes
+            CellStates old = node.state;
+            node = new Node(null);
+            node.children = new Node[]{new Node(old), new Node(old), new Node(old), new Node(old)};
+        }
+        int half = size / 2;
+        int quadrant = (x >= nodeX + half ? 1 : 0) + (y >= nodeY + half ? 2 : 0);
+        node.children[quadrant] = setState(node.children[quadrant], nodeX + (quadrant & 1) * half,
+                nodeY + (quadrant >> 1) * half, half, x, y, state);
+        return collapse(node);
+    }
+
+    /**
+     * Finds the leaf holding a cell, storing its bounds in {@link QuadtreeGrid#leafX},
+     * {@link QuadtreeGrid#leafY} and {@link QuadtreeGrid#leafSize}.
+     * <p>
+     * The search starts from the lowest node on the last lookup's path that covers the cell, so
+     * looking up a neighbour of the last leaf usually only climbs a level or two.
+     */
+    private Node leafAt(int x, int y) {
+        int depth = pathDepth;
+        if (depth == 0) {
+            path[0] = root;
+            pathX[0] = 0;
+            pathY[0] = 0;
+        } else {
+            // Climb until the node's square holds the cell
+            while (depth > 0 && (x - pathX[depth] >= rootSize >> depth || x < pathX[depth]
+                    ||  y - pathY[depth] >= rootSize >> depth || y < pathY[depth])) {
+                depth--;
+            }
+        }
+        Node node = path[depth];
+        int nodeX = pathX[depth];
+        int nodeY = pathY[depth];
+        int size = rootSize >> depth;
+        while (node.children != null) {
+            size /= 2;
+            int quadrant = 0;
+            if (x >= nodeX + size) {
+                nodeX += size;
+                quadrant |= 1;
+            }
+            if (y >= nodeY + size) {
+                nodeY += size;
+                quadrant |= 2;
+            }
+            node = node.children[quadrant];
+            depth++;
+            path[depth] = node;
+            pathX[depth] = nodeX;
+            pathY[depth] = nodeY;
+        }
+        pathDepth = depth;
+        leafX = nodeX;
+        leafY = nodeY;
+        leafSize = size;
+        return node;
+    }
+
+    /**
+     * @return The number of nodes in the tree, a measure of the memory it uses.
+     */
+    public int countNodes() {
+        return countNodes(root);
+    }
+
+    private static int countNodes(Node node) {
+        if (node.children == null) {
+            return node == OUTSIDE ? 0 : 1;
+        }
+        int count = 1;
+        for (Node child : node.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the area of the region around the start point, matching
+     * {@link AreaEstimator#runAlgorithm()} without changing the grid.
+     *
+     * @return The number of cells counted, including the start point.
+     */
+    public long estimateArea() {
+        if (startPoint < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        fillStamp++;
+        long area = 1;
+        boundaryCount = 0;
+        // Pending leaves, stored as their x, y and size
+        int[] pending = new int[48];
+        int pendingCount = 0;
+
+        // Seed the fill from the start point's von Neumann neighbourhood
+        int[] neighbours = new int[4];
+        int neighbourCount = getNeighbours(startPoint, neighbours);
+        for (int i = 0; i < neighbourCount; i++) {
+            int id = neighbours[i];
+            Node leaf = leafAt(id % width, id / width);
+            if (leaf.state == CellStates.PAINTED) {
+                addBoundary(id);
+            } else if (leaf.state == CellStates.DEFAULT && leaf.fillStamp != fillStamp) {
+                leaf.fillStamp = fillStamp;
+                area += (long) leafSize * leafSize;
+                if (pendingCount + 3 > pending.length) {
+                    pending = Arrays.copyOf(pending, pending.length * 2);
+                }
+                pending[pendingCount++] = leafX;
+                pending[pendingCount++] = leafY;
+                pending[pendingCount++] = leafSize;
+            }
+        }
+
+        // Flood whole leaves, walking each side of a leaf one neighbouring leaf at a time
+        while (pendingCount > 0) {
+            int size = pending[--pendingCount];
+            int y0 = pending[--pendingCount];
+            int x0 = pending[--pendingCount];
+            for (int side = 0; side < 4; side++) {
+                boolean vertical = side == 0 || side == 2;
+                int fixed = switch (side) {
+                    case 0 -> x0 - 1;
+                    case 1 -> y0 - 1;
+                    case 2 -> x0 + size;
+                    default -> y0 + size;
+                };
+                if (fixed < 0 || fixed >= (vertical ? width : height)) {
+                    continue;
+                }
+                int from = vertical ? y0 : x0;
+                int to = Math.min(from + size, vertical ? height : width);
+                for (int along = from; along < to; ) {
+                    int x = vertical ? fixed : along;
+                    int y = vertical ? along : fixed;
+                    Node leaf = leafAt(x, y);
+                    int leafEnd = Math.min(to, (vertical ? leafY : leafX) + leafSize);
+                    if (leaf.state == CellStates.PAINTED) {
+                        // Every cell of the leaf along this side touches the area
+                        for (int i = along; i < leafEnd; i++) {
+                            addBoundary(vertical ? index(fixed, i) : index(i, fixed));
+                        }
+                    } else if (leaf.state == CellStates.DEFAULT && leaf.fillStamp != fillStamp) {
+                        leaf.fillStamp = fillStamp;
+                        area += (long) leafSize * leafSize;
+                        if (pendingCount + 3 > pending.length) {
+                            pending = Arrays.copyOf(pending, pending.length * 2);
+                        }
+                        pending[pendingCount++] = leafX;
+                        pending[pendingCount++] = leafY;
+                        pending[pendingCount++] = leafSize;
+                    }
+                    along = leafEnd;
+                }
+            }
+        }
+        return area + countCorners();
+    }
+
+    private void addBoundary(int id) {
+        if (boundaryCount == boundary.length) {
+            boundary = Arrays.copyOf(boundary, boundaryCount * 2);
+        }
+        boundary[boundaryCount++] = id;
+    }
+
+    /**
+     * Counts the painted cells the corner check would count, given the boundary cells.
+     * <p>
+     * The row-major corner check counts a painted cell if it or the cell to its right or below is a
+     * boundary cell, or if the cell to its left or above was counted. That is the same as every
+     * painted cell reachable by moving right and down through painted cells from those seeds, so each
+     * row's counted cells are runs starting at a seed or below a counted cell of the row above and
+     * running to the end of their painted stretch. Rows are swept in order as lists of those runs,
+     * stepping along each row a leaf at a time, with the boundary cells bucketed by row rather than
+     * sorted.
+     */
+    private long countCorners() {
+        // Bucket the boundary cells by row, as the sweep only needs each row's cells together
+        int[] rowStarts = new int[height + 1];
+        for (int i = 0; i < boundaryCount; i++) {
+            rowStarts[boundary[i] / width + 1]++;
+        }
+        for (int y = 0; y < height; y++) {
+            rowStarts[y + 1] += rowStarts[y];
+        }
+        int[] columns = new int[boundaryCount];
+        int[] next = Arrays.copyOf(rowStarts, height);
+        for (int i = 0; i < boundaryCount; i++) {
+            columns[next[boundary[i] / width]++] = boundary[i] % width;
+        }
+
+        // Counted runs of the previous and current rows, stored as start and end columns
+        int[] above = new int[16];
+        int aboveCount = 0;
+        int[] runs = new int[16];
+        // Columns where a run may start in the current row, one bit each, so they are read back in order
+        long[] entries = new long[(width + 63) >>> 6];
+        long counted = 0;
+        for (int y = 0; y < height; y++) {
+            int last = y + 1 < height ? rowStarts[y + 2] : rowStarts[height];
+            if (aboveCount == 0 && rowStarts[y] == last) {
+                continue;
+            }
+            // Runs may start at a boundary cell, or at the painted cell left of or above one
+            int first = width;
+            int end = 0;
+            for (int i = rowStarts[y]; i < last; i++) {
+                int x = i < rowStarts[y + 1] && columns[i] > 0 ? columns[i] - 1 : columns[i];
+                entries[x >>> 6] |= 1L << x;
+                entries[columns[i] >>> 6] |= 1L << columns[i];
+                first = Math.min(first, x);
+                end = Math.max(end, columns[i] + 1);
+            }
+            // Every painted stretch below a counted run of the row above can start a run
+            for (int i = 0; i < aboveCount; i += 2) {
+                for (int x = above[i]; x < above[i + 1]; ) {
+                    Node leaf = leafAt(x, y);
+                    if (leaf.state == CellStates.PAINTED) {
+                        entries[x >>> 6] |= 1L << x;
+                        first = Math.min(first, x);
+                        end = Math.max(end, x + 1);
+                    }
+                    x = leafX + leafSize;
+                }
+            }
+            int runCount = 0;
+            int runEnd = -1;
+            for (int word = first >>> 6; word < end + 63 >>> 6; word++) {
+                for (long bits = entries[word]; bits != 0; bits &= bits - 1) {
+                    int x = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    if (x < runEnd || leafAt(x, y).state != CellStates.PAINTED) {
+                        continue;
+                    }
+                    // Extend the run to the end of its painted stretch, a leaf at a time
+                    runEnd = Math.min(leafX + leafSize, width);
+                    while (runEnd < width && leafAt(runEnd, y).state == CellStates.PAINTED) {
+                        runEnd = Math.min(leafX + leafSize, width);
+                    }
+                    if (runCount + 2 > runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
+                    }
+                    runs[runCount++] = x;
+                    runs[runCount++] = runEnd;
+                    counted += runEnd - x;
+                }
+                entries[word] = 0;
+            }
+            int[] swap = above;
+            above = runs;
+            runs = swap;
+            aboveCount = runCount;
+        }
+        return counted;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+    public int getStartPoint() {
+        return startPoint;
+    }
+    public void setStartPoint(int startPoint) {
+        this.startPoint = startPoint;
+    }
+}
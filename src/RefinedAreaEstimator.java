@@ -0,0 +1,261 @@
+import java.util.PriorityQueue;
+
+/**
+ * Estimates a shape's area to sub-cell precision by refining only the cells its outline passes through.
+ * <p>
+ * {@link AreaEstimator} counts every boundary cell as a whole unit, so its estimate is quantised to
+ * whole cells. Here the shape is instead reconstructed as a continuous region: each cell centre is
+ * given the value {@code +1} if it is inside the area and {@code -1} if it is outside it, while a
+ * counted boundary cell takes the mean of its eight neighbours' sides, counting other boundary cells
+ * as {@code 0}. The shape is the region where the bilinear interpolation of those values is at least
+ * zero. The outline therefore runs through the boundary cells, near the centres of thin boundaries and
+ * between the inner and outer cells of thick ones, so boundaries count for about half their width.
+ * <p>
+ * A bilinear function takes its extremes at the corners of any rectangle, so a square whose corners
+ * all agree is exactly inside or outside. Only the quarter cells where the interpolation changes sign
+ * are subdivided, as a quadtree, largest first, until the remaining uncertainty is within the
+ * requested error bound. Interior cells are never subdivided, so the refinement costs roughly
+ * O(perimeter) on top of the exact fill used to classify the cells.
+ */
+class RefinedAreaEstimator {
+    /**
+     * Squares are not split beyond this depth, bounding the work for very small error bounds.
+     */
+    static final int MAX_DEPTH = 12;
+
+    /**
+     * The result of a refined estimation.
+     */
+    static final class Estimate {
+        /**
+         * The estimated area, in square cells.
+         */
+        final double area;
+        /**
+         * The most the estimate can differ from the area of the reconstructed shape.
+         */
+        final double errorBound;
+        /**
+         * The number of quadtree squares that were examined.
+         */
+        final long squaresRefined;
+
+        Estimate(double area, double errorBound, long squaresRefined) {
+            this.area = area;
+            this.errorBound = errorBound;
+            this.squaresRefined = squaresRefined;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.4f +/- %.4f", area, errorBound);
+        }
+    }
+
+    /**
+     * A square of a quarter cell whose interpolation changes sign, waiting to be refined.
+     * <p>
+     * Coordinates are relative to the quarter cell's dual square, where the four surrounding cell
+     * centres lie at {@code (0, 0)}, {@code (1, 0)}, {@code (0, 1)} and {@code (1, 1)}.
+     */
+    private static final class Square implements Comparable<Square> {
+        // Values at the four surrounding cell centres
+        final double c00;
+        final double c10;
+        final double c01;
+        final double c11;
+        final double u;
+        final double v;
+        final double size;
+        final int depth;
+
+        Square(double c00, double c10, double c01, double c11, double u, double v, double size, int depth) {
+            this.c00 = c00;
+            this.c10 = c10;
+            this.c01 = c01;
+            this.c11 = c11;
+            this.u = u;
+            this.v = v;
+            this.size = size;
+            this.depth = depth;
+        }
+
+        double valueAt(double u, double v) {
+            return c00 * (1 - u) * (1 - v) + c10 * u * (1 - v) + c01 * (1 - u) * v + c11 * u * v;
+        }
+
+        /**
+         * @return Half the square's area, which is both its estimate and its error while it is unresolved.
+         */
+        double halfArea() {
+            return size * size / 2;
+        }
+
+        @Override
+        public int compareTo(Square other) {
+            return Double.compare(other.size, size);
+        }
+    }
+
+    private final GridModel model;
+    /**
+     * The interpolated value at the centre of every cell.
+     */
+    private final double[] values;
+    private double area;
+    private double errorBound;
+    private long squaresRefined;
+    private final PriorityQueue<Square> unresolved = new PriorityQueue<>();
+
+    /**
+     * Classifies every cell of the model using the exact algorithm, leaving the model unchanged.
+     * <p>
+     * Any {@link CellStates#AREA} cells from a previous run are treated as {@link CellStates#DEFAULT}
+     * unless the new run fills them again.
+     *
+     * @param model {@link GridModel} object to estimate. Its start point must be set.
+     */
+    public RefinedAreaEstimator(GridModel model) {
+        if (model.getStartPoint() < 0) {
+            throw new IllegalStateException("The grid has no start point");
+        }
+        // Run the exact algorithm on a copy to find the area and boundary cells
+        GridModel copy = model.copy();
+        new AreaEstimator(copy).runAlgorithm();
+        this.model = copy;
+        byte[] classes = new byte[copy.size()];
+        for (int id = 0; id < copy.size(); id++) {
+            classes[id] = switch (copy.getState(id)) {
+                case START_POINT -> 1;
+                case AREA -> (byte) (copy.hasBeenCounted(id) ? 1 : -1);
+                case PAINTED -> (byte) (copy.hasBeenCounted(id) ? 0 : -1);
+                default -> -1;
+            };
+        }
+        this.values = new double[copy.size()];
+        int width = copy.getWidth();
+        for (int id = 0; id < copy.size(); id++) {
+            if (classes[id] != 0) {
+                values[id] = classes[id];
+                continue;
+            }
+            // Boundary cells lean towards whichever side most of their neighbours are on
+            int x = id % width;
+            int y = id / width;
+            int balance = 0;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    balance += classes[clampedIndex(x + dx, y + dy)];
+                }
+            }
+            values[id] = balance / 8.0;
+        }
+    }
+
+    /**
+     * Estimates the area, refining the outline until the error bound is met.
+     *
+     * @param maxError The largest acceptable error bound, in square cells.
+     * @return The {@link Estimate}.
+     */
+    public Estimate estimate(double maxError) {
+        if (!(maxError >= 0)) {
+            throw new IllegalArgumentException("Error bound must not be negative, got " + maxError);
+        }
+        area = 0;
+        errorBound = 0;
+        squaresRefined = 0;
+        unresolved.clear();
+        int width = model.getWidth();
+        for (int id = 0; id < model.size(); id++) {
+            int x = id % width;
+            int y = id / width;
+            if (values[id] > 0 && isSurroundedByInside(x, y)) {
+                // Interior cells are never refined
+                area += 1;
+                continue;
+            }
+            // Each quarter of the cell lies in the square between its centre and three neighbours
+            for (int dy = -1; dy <= 1; dy += 2) {
+                for (int dx = -1; dx <= 1; dx += 2) {
+                    addQuarter(values[id], valueAt(x + dx, y), valueAt(x, y + dy), valueAt(x + dx, y + dy));
+                }
+            }
+        }
+        // Split the largest unresolved squares until the error is small enough
+        while (errorBound > maxError && !unresolved.isEmpty() && unresolved.peek().depth < MAX_DEPTH) {
+            Square square = unresolved.poll();
+            area -= square.halfArea();
+            errorBound -= square.halfArea();
+            double half = square.size / 2;
+            for (int i = 0; i < 4; i++) {
+                resolve(new Square(square.c00, square.c10, square.c01, square.c11,
+                        square.u + (i & 1) * half, square.v + (i >> 1) * half, half, square.depth + 1));
+            }
+        }
+        // Errors are accumulated in floating point, so never report less than nothing
+        return new Estimate(area, Math.max(0, errorBound), squaresRefined);
+    }
+
+    /**
+     * Adds the quarter of a cell nearest the corner shared with three neighbouring cells.
+     *
+     * @param own The value at the cell's own centre.
+     * @param across The value at the centre of the neighbour across the vertical edge.
+     * @param beyond The value at the centre of the neighbour across the horizontal edge.
+     * @param diagonal The value at the centre of the diagonal neighbour.
+     */
+    private void addQuarter(double own, double across, double beyond, double diagonal) {
+        double min = Math.min(Math.min(own, across), Math.min(beyond, diagonal));
+        double max = Math.max(Math.max(own, across), Math.max(beyond, diagonal));
+        if (min >= 0) {
+            area += 0.25;
+        } else if (max > 0) {
+            resolve(new Square(own, across, beyond, diagonal, 0, 0, 0.5, 0));
+        }
+    }
+
+    /**
+     * Adds a square's area if its corners agree, or queues it for refinement if they do not.
+     */
+    private void resolve(Square square) {
+        squaresRefined++;
+        double a = square.valueAt(square.u, square.v);
+        double b = square.valueAt(square.u + square.size, square.v);
+        double c = square.valueAt(square.u, square.v + square.size);
+        double d = square.valueAt(square.u + square.size, square.v + square.size);
+        if (Math.min(Math.min(a, b), Math.min(c, d)) >= 0) {
+            area += square.size * square.size;
+        } else if (Math.max(Math.max(a, b), Math.max(c, d)) > 0) {
+            // Count half of it until it is refined further
+            area += square.halfArea();
+            errorBound += square.halfArea();
+            unresolved.add(square);
+        }
+    }
+
+    private boolean isSurroundedByInside(int x, int y) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (valueAt(x + dx, y + dy) <= 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value at a cell centre, extending the edge cells outwards past the grid so the area
+     * stops at the edge of the grid.
+     */
+    private double valueAt(int x, int y) {
+        return values[clampedIndex(x, y)];
+    }
+
+    private int clampedIndex(int x, int y) {
+        x = Math.max(0, Math.min(model.getWidth() - 1, x));
+        y = Math.max(0, Math.min(model.getHeight() - 1, y));
+        return model.index(x, y);
+    }
+}
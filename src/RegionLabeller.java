@@ -0,0 +1,679 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures every enclosed region of a grid at once with connected-component labelling.
+ * <p>
+ * Each region is a 4-connected component of cells that are not {@link CellStates#PAINTED}. Its area is
+ * what {@link AreaEstimator#runAlgorithm()} would count with the start point anywhere inside it: the
+ * region's own cells plus the painted cells the corner check counts for it. The start point and any
+ * {@link CellStates#AREA} cells from a previous run are treated as open cells.
+ * <p>
+ * Open cells are labelled in one row-major pass with a union-find, then renumbered. A second pass
+ * replays the corner check for every region together, a run of painted cells at a time. A region
+ * counts the cells of a run from the first one it reaches to the end of the run, so each run only
+ * carries the column every region enters it at, handed down to the runs below it. Regions entering a
+ * run at the same column count the same cells from there on, so past a few at one column they are
+ * gathered into a group, a persistent treap of labels shared with the runs below, and the cells are
+ * counted once for the whole group. A run then carries a bounded number of regions and groups for each
+ * of its cells, and the second pass costs O(grid) steps plus the group merges, each logarithmic in the
+ * group sizes for every region of the smaller group.
+ */
+class RegionLabeller {
+    /**
+     * The most regions a run lists one at a time at any column. More than that are gathered into a
+     * group, so a run lists at most this many regions for each of its cells.
+     */
+    private static final int MAX_LISTED = 8;
+    private static final Node[] NO_GROUPS = new Node[0];
+    private static final int[] NO_COLUMNS = new int[0];
+
+    /**
+     * The measurements of one region.
+     */
+    static final class Region {
+        /**
+         * The region's label, numbered from zero in row-major order of each region's first cell.
+         */
+        final int id;
+        /**
+         * The number of open cells in the region.
+         */
+        long cells;
+        /**
+         * The number of painted cells counted for the region.
+         */
+        long boundaryCells;
+        // Bounding box of the region's open and counted cells, inclusive
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = -1;
+        int maxY = -1;
+        /**
+         * Whether any of the region's open cells lie on the edge of the grid.
+         */
+        boolean touchesBorder;
+
+        Region(int id) {
+            this.id = id;
+        }
+
+        /**
+         * @return The area {@link AreaEstimator#runAlgorithm()} would count for the region.
+         */
+        long getArea() {
+            return cells + boundaryCells;
+        }
+
+        private void include(int x, int y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        @Override
+        public String toString() {
+            return "Region " + id + ": area " + getArea() + ", bounds (" + minX + ", " + minY + ")-("
+                    + maxX + ", " + maxY + ")" + (touchesBorder ? ", touches border" : "");
+        }
+    }
+
+    private final GridModel model;
+    private final int width;
+    private final int height;
+    /**
+     * The region of every open cell, or -1 for painted cells.
+     */
+    private final int[] labels;
+    private final List<Region> regions = new ArrayList<>();
+
+    // The earliest column each region enters the run being measured at, or MAX_VALUE, and the regions
+    // entered so far
+    private int[] entries;
+    private int[] entered;
+    private int enteredCount;
+    // The groups entering the run being measured, each with its column
+    private Node[] enteredGroups = new Node[8];
+    private int[] enteredGroupColumns = new int[8];
+    private int groupCount;
+    // The groups any run counted cells for
+    private final List<Node> counted = new ArrayList<>();
+    // The results of the last split
+    private Node splitLower;
+    private Node splitHigher;
+    private boolean splitFound;
+
+    /**
+     * Labels every region of the model, leaving the model unchanged.
+     *
+     * @param model {@link GridModel} object to label.
+     */
+    public RegionLabeller(GridModel model) {
+        this.model = model;
+        this.width = model.getWidth();
+        this.height = model.getHeight();
+        this.labels = new int[model.size()];
+        labelRegions();
+        countBoundaries();
+    }
+
+    /**
+     * @return Every region, indexed by its label.
+     */
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Gets the region a cell belongs to.
+     *
+     * @param id ID of a given cell.
+     * @return The label of the cell's region, or -1 if the cell is painted.
+     */
+    public int getLabel(int id) {
+        return labels[id];
+    }
+
+    /**
+     * Labels the open cells with a union-find over their left and upper neighbours, then numbers the
+     * components in order and measures their cells.
+     */
+    private void labelRegions() {
+        int[] parent = new int[64];
+        int labelCount = 0;
+        for (int y = 0, id = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, id++) {
+                if (model.getState(id) == CellStates.PAINTED) {
+                    labels[id] = -1;
+                    continue;
+                }
+                int left = x > 0 ? labels[id - 1] : -1;
+                int above = y > 0 ? labels[id - width] : -1;
+                int label;
+                if (left >= 0 && above >= 0) {
+                    label = left == above ? left : union(parent, left, above);
+                } else if (left >= 0 || above >= 0) {
+                    label = Math.max(left, above);
+                } else {
+                    if (labelCount == parent.length) {
+                        parent = Arrays.copyOf(parent, labelCount * 2);
+                    }
+                    label = labelCount++;
+                    parent[label] = label;
+                }
+                labels[id] = label;
+            }
+        }
+
+        // Renumber the roots in the order their regions are first seen
+        int[] remap = new int[labelCount];
+        Arrays.fill(remap, -1);
+        for (int label = 0; label < labelCount; label++) {
+            int root = find(parent, label);
+            if (remap[root] < 0) {
+                remap[root] = regions.size();
+                regions.add(new Region(regions.size()));
+            }
+            remap[label] = remap[root];
+        }
+        Region[] byLabel = regions.toArray(new Region[0]);
+        for (int y = 0, id = 0; y < height; y++) {
+            boolean edgeRow = y == 0 || y == height - 1;
+            for (int x = 0; x < width; x++, id++) {
+                if (labels[id] < 0) {
+                    continue;
+                }
+                int label = remap[labels[id]];
+                labels[id] = label;
+                Region region = byLabel[label];
+                region.cells++;
+                region.include(x, y);
+                if (edgeRow || x == 0 || x == width - 1) {
+                    region.touchesBorder = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays {@link AreaEstimator}'s corner check for every region at once.
+     * <p>
+     * A painted cell counts for a region if it borders the region, if the painted cell to its right
+     * or below does, or if the painted cell to its left or above counted for the region. Along a run
+     * of painted cells that makes every region count the run from the first cell it reaches to the
+     * end, so each run is measured as the column each region enters it at. A run below takes every
+     * region entering at or before its start as entering at its start, which is where the groups form.
+     */
+    private void countBoundaries() {
+        Region[] byLabel = regions.toArray(new Region[0]);
+        entries = new int[byLabel.length];
+        Arrays.fill(entries, Integer.MAX_VALUE);
+        entered = new int[byLabel.length];
+        Run[] above = new Run[16];
+        int aboveCount = 0;
+        Run[] runs = new Run[16];
+        for (int y = 0; y < height; y++) {
+            int runCount = 0;
+            int next = 0;
+            for (int x = 0; x < width; ) {
+                if (labels[model.index(x, y)] >= 0) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && labels[model.index(x, y)] < 0) {
+                    x++;
+                }
+                Run run = new Run(start, x);
+                enteredCount = 0;
+                groupCount = 0;
+                // Regions bordering a cell reach it and the cell to its left, and regions bordering the
+                // painted cell below reach it
+                for (int i = start; i < x; i++) {
+                    int id = model.index(i, y);
+                    int seed = Math.max(start, i - 1);
+                    enter(i == start && i > 0 ? labels[id - 1] : -1, seed);
+                    enter(i == x - 1 && i < width - 1 ? labels[id + 1] : -1, seed);
+                    enter(y > 0 ? labels[id - width] : -1, seed);
+                    enter(y < height - 1 ? labels[id + width] : -1, seed);
+                    if (y < height - 1 && labels[id + width] < 0) {
+                        int below = id + width;
+                        enter(i > 0 ? labels[below - 1] : -1, i);
+                        enter(i < width - 1 ? labels[below + 1] : -1, i);
+                        enter(y < height - 2 ? labels[below + width] : -1, i);
+                    }
+                }
+                // Regions counting the cells above carry on downwards into the run
+                while (next < aboveCount && above[next].end <= start) {
+                    next++;
+                }
+                for (int j = next; j < aboveCount && above[j].start < x; j++) {
+                    Run parent = above[j];
+                    int overlapEnd = Math.min(x, parent.end);
+                    int listed = 0;
+                    int grouped = 0;
+                    if (parent.start <= start) {
+                        // Every region entering the parent at or before the run's start enters the run
+                        // at its start
+                        listed = upperBound(parent.columns, start);
+                        grouped = upperBound(parent.groupColumns, start);
+                        if (grouped == 0 && listed <= MAX_LISTED) {
+                            for (int k = 0; k < listed; k++) {
+                                enter(parent.regions[k], start);
+                            }
+                        } else {
+                            enterGroup(prefix(parent, start), start);
+                        }
+                    }
+                    for (int k = listed; k < parent.regions.length && parent.columns[k] < overlapEnd; k++) {
+                        enter(parent.regions[k], parent.columns[k]);
+                    }
+                    for (int k = grouped; k < parent.groups.length && parent.groupColumns[k] < overlapEnd;
+                         k++) {
+                        enterGroup(parent.groups[k], parent.groupColumns[k]);
+                    }
+                }
+                measure(run, y, byLabel);
+                if (runCount == runs.length) {
+                    runs = Arrays.copyOf(runs, runCount * 2);
+                }
+                runs[runCount++] = run;
+            }
+            Run[] swap = above;
+            above = runs;
+            runs = swap;
+            aboveCount = runCount;
+        }
+        // Hand the counts added to each group down to its regions, parents before children
+        List<Node> order = new ArrayList<>();
+        for (Node group : counted) {
+            visit(group, order);
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            if (node.maxX < 0) {
+                continue;
+            }
+            Region region = byLabel[node.label];
+            region.boundaryCells += node.cells;
+            region.include(node.minX, node.minY);
+            region.include(node.maxX, node.maxY);
+            for (Node child : new Node[]{node.left, node.right}) {
+                if (child != null) {
+                    child.count(node.cells, node.minX, node.minY);
+                    child.include(node.maxX, node.maxY);
+                }
+            }
+        }
+        counted.clear();
+    }
+
+    /**
+     * Adds a node to a list after every node below it.
+     */
+    private static void visit(Node node, List<Node> order) {
+        if (node == null || node.visited) {
+            return;
+        }
+        node.visited = true;
+        visit(node.left, order);
+        visit(node.right, order);
+        order.add(node);
+    }
+
+    /**
+     * Sorts the regions entering a run by column, settles which of them enter separately from the
+     * groups, and counts the run for them.
+     */
+    private void measure(Run run, int y, Region[] byLabel) {
+        long[] order = new long[enteredCount];
+        for (int k = 0; k < enteredCount; k++) {
+            int label = entered[k];
+            order[k] = (long) entries[label] << 32 | label;
+            entries[label] = Integer.MAX_VALUE;
+        }
+        Arrays.sort(order);
+        // Gather the regions beyond the first few at any one column into a group
+        int kept = 0;
+        for (int k = 0; k < order.length; ) {
+            int column = (int) (order[k] >>> 32);
+            int end = k;
+            while (end < order.length && (int) (order[end] >>> 32) == column) {
+                end++;
+            }
+            if (end - k > MAX_LISTED) {
+                Node group = null;
+                for (; k < end; k++) {
+                    group = union(group, new Node((int) order[k], null, null));
+                }
+                enterGroup(group, column);
+            } else {
+                while (k < end) {
+                    order[kept++] = order[k++];
+                }
+            }
+        }
+
+        int[] regions = new int[kept];
+        int[] columns = new int[kept];
+        int listedCount = 0;
+        Node[] groups = NO_GROUPS;
+        int[] groupColumns = NO_COLUMNS;
+        if (groupCount == 0) {
+            for (; listedCount < kept; listedCount++) {
+                regions[listedCount] = (int) order[listedCount];
+                columns[listedCount] = (int) (order[listedCount] >>> 32);
+            }
+        } else {
+            // Order the groups by column, then walk the columns keeping each region only where it
+            // first enters
+            for (int k = 1; k < groupCount; k++) {
+                for (int m = k; m > 0 && enteredGroupColumns[m - 1] > enteredGroupColumns[m]; m--) {
+                    Node swapGroup = enteredGroups[m];
+                    enteredGroups[m] = enteredGroups[m - 1];
+                    enteredGroups[m - 1] = swapGroup;
+                    int swapColumn = enteredGroupColumns[m];
+                    enteredGroupColumns[m] = enteredGroupColumns[m - 1];
+                    enteredGroupColumns[m - 1] = swapColumn;
+                }
+            }
+            groups = new Node[groupCount];
+            groupColumns = new int[groupCount];
+            int groupsKept = 0;
+            Node seen = null;
+            for (int k = 0, g = 0; k < kept || g < groupCount; ) {
+                int column = Math.min(k < kept ? (int) (order[k] >>> 32) : Integer.MAX_VALUE,
+                        g < groupCount ? enteredGroupColumns[g] : Integer.MAX_VALUE);
+                Node group = null;
+                for (; g < groupCount && enteredGroupColumns[g] == column; g++) {
+                    group = union(group, enteredGroups[g]);
+                }
+                group = difference(group, seen);
+                seen = union(seen, group);
+                for (; k < kept && (int) (order[k] >>> 32) == column; k++) {
+                    int label = (int) order[k];
+                    if (!contains(seen, label)) {
+                        regions[listedCount] = label;
+                        columns[listedCount++] = column;
+                        seen = union(seen, new Node(label, null, null));
+                    }
+                }
+                if (group != null) {
+                    groups[groupsKept] = group;
+                    groupColumns[groupsKept++] = column;
+                }
+            }
+            groups = Arrays.copyOf(groups, groupsKept);
+            groupColumns = Arrays.copyOf(groupColumns, groupsKept);
+            Arrays.fill(enteredGroups, 0, groupCount, null);
+        }
+        run.regions = listedCount == kept ? regions : Arrays.copyOf(regions, listedCount);
+        run.columns = listedCount == kept ? columns : Arrays.copyOf(columns, listedCount);
+        run.groups = groups;
+        run.groupColumns = groupColumns;
+
+        for (int k = 0; k < listedCount; k++) {
+            Region region = byLabel[run.regions[k]];
+            region.boundaryCells += run.end - run.columns[k];
+            region.include(run.columns[k], y);
+            region.include(run.end - 1, y);
+        }
+        for (int k = 0; k < groups.length; k++) {
+            if (groups[k].maxX < 0) {
+                counted.add(groups[k]);
+            }
+            groups[k].count(run.end - groupColumns[k], groupColumns[k], y);
+            groups[k].include(run.end - 1, y);
+        }
+    }
+
+    /**
+     * A run of painted cells in one row, and the column each region that counts it enters at.
+     */
+    private static final class Run {
+        final int start;
+        final int end;
+        // The regions listed one at a time, and the groups, each with the column it enters at, in
+        // column order. No region is in more than one of them.
+        int[] regions;
+        int[] columns;
+        Node[] groups;
+        int[] groupColumns;
+        // The regions entering at or before the last column the runs below asked for, and how many of
+        // the listed regions and groups that takes in
+        Node prefix;
+        int prefixRegions;
+        int prefixGroups;
+
+        Run(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A node of a persistent treap of region labels, ordered by label with a fixed priority for each.
+     * A group is the set below a node, and groups share nodes, so cells counted for a group are kept on
+     * its root and handed down to the regions once the whole grid is measured.
+     */
+    private static final class Node {
+        final int label;
+        final int priority;
+        final Node left;
+        final Node right;
+        // The cells counted for every region below the node, and the bounding box of those cells
+        long cells;
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = -1;
+        int maxY = -1;
+        boolean visited;
+
+        Node(int label, Node left, Node right) {
+            this.label = label;
+            this.priority = priority(label);
+            this.left = left;
+            this.right = right;
+        }
+
+        private void count(long cells, int x, int y) {
+            this.cells += cells;
+            include(x, y);
+        }
+
+        private void include(int x, int y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        /**
+         * Scrambles a label with the MurmurHash3 finaliser, which is a bijection, so no two labels tie.
+         */
+        private static int priority(int label) {
+            label ^= label >>> 16;
+            label *= 0x85ebca6b;
+            label ^= label >>> 13;
+            label *= 0xc2b2ae35;
+            return label ^ label >>> 16;
+        }
+    }
+
+    /**
+     * Records that a region reaches the run being measured at a column, keeping the earliest column.
+     *
+     * @param label The region, or -1 for none.
+     */
+    private void enter(int label, int column) {
+        if (label < 0) {
+            return;
+        }
+        if (entries[label] == Integer.MAX_VALUE) {
+            entered[enteredCount++] = label;
+            entries[label] = column;
+        } else if (column < entries[label]) {
+            entries[label] = column;
+        }
+    }
+
+    /**
+     * Records that a group of regions reaches the run being measured at a column.
+     */
+    private void enterGroup(Node group, int column) {
+        if (groupCount == enteredGroups.length) {
+            enteredGroups = Arrays.copyOf(enteredGroups, groupCount * 2);
+            enteredGroupColumns = Arrays.copyOf(enteredGroupColumns, groupCount * 2);
+        }
+        enteredGroups[groupCount] = group;
+        enteredGroupColumns[groupCount++] = column;
+    }
+
+    /**
+     * Gathers the regions entering a run at or before a column. The runs below ask with increasing
+     * columns, so each region and group of the run is merged in once.
+     */
+    private Node prefix(Run run, int column) {
+        for (; run.prefixRegions < run.regions.length && run.columns[run.prefixRegions] <= column;
+             run.prefixRegions++) {
+            run.prefix = union(run.prefix, new Node(run.regions[run.prefixRegions], null, null));
+        }
+        for (; run.prefixGroups < run.groups.length && run.groupColumns[run.prefixGroups] <= column;
+             run.prefixGroups++) {
+            run.prefix = union(run.prefix, run.groups[run.prefixGroups]);
+        }
+        return run.prefix;
+    }
+
+    /**
+     * @return The number of sorted columns at or before a column.
+     */
+    private static int upperBound(int[] columns, int column) {
+        int low = 0;
+        int high = columns.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (columns[middle] <= column) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The regions in either group, sharing whatever nodes are unchanged.
+     */
+    private Node union(Node a, Node b) {
+        if (a == null || a == b) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority < b.priority) {
+            Node swap = a;
+            a = b;
+            b = swap;
+        }
+        split(b, a.label);
+        Node lower = splitLower;
+        Node higher = splitHigher;
+        Node left = union(a.left, lower);
+        Node right = union(a.right, higher);
+        return left == a.left && right == a.right ? a : new Node(a.label, left, right);
+    }
+
+    /**
+     * @return The regions in the first group but not the second, sharing whatever nodes are unchanged.
+     */
+    private Node difference(Node a, Node b) {
+        if (a == null || b == null) {
+            return a;
+        }
+        if (a == b) {
+            return null;
+        }
+        split(b, a.label);
+        boolean found = splitFound;
+        Node lower = splitLower;
+        Node higher = splitHigher;
+        Node left = difference(a.left, lower);
+        Node right = difference(a.right, higher);
+        if (found) {
+            return join(left, right);
+        }
+        return left == a.left && right == a.right ? a : new Node(a.label, left, right);
+    }
+
+    /**
+     * Splits a group into the labels below and above a label, left in {@link #splitLower} and
+     * {@link #splitHigher}, noting in {@link #splitFound} whether the label itself was there.
+     */
+    private void split(Node node, int label) {
+        if (node == null) {
+            splitLower = null;
+            splitHigher = null;
+            splitFound = false;
+        } else if (node.label == label) {
+            splitLower = node.left;
+            splitHigher = node.right;
+            splitFound = true;
+        } else if (label < node.label) {
+            split(node.left, label);
+            splitHigher = new Node(node.label, splitHigher, node.right);
+        } else {
+            split(node.right, label);
+            splitLower = new Node(node.label, node.left, splitLower);
+        }
+    }
+
+    /**
+     * @return Two groups joined, every label of the first below every label of the second.
+     */
+    private Node join(Node lower, Node higher) {
+        if (lower == null) {
+            return higher;
+        }
+        if (higher == null) {
+            return lower;
+        }
+        if (lower.priority > higher.priority) {
+            return new Node(lower.label, lower.left, join(lower.right, higher));
+        }
+        return new Node(higher.label, join(lower, higher.left), higher.right);
+    }
+
+    private static boolean contains(Node node, int label) {
+        while (node != null && node.label != label) {
+            node = label < node.label ? node.left : node.right;
+        }
+        return node != null;
+    }
+
+    /**
+     * Joins two labels' components.
+     *
+     * @return The root of the joined component.
+     */
+    private static int union(int[] parent, int labelA, int labelB) {
+        int rootA = find(parent, labelA);
+        int rootB = find(parent, labelB);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+        return rootA;
+    }
+
+    private static int find(int[] parent, int label) {
+        while (parent[label] != label) {
+            // Path halving
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+}
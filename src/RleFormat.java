@@ -0,0 +1,202 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes grids in a compact run-length encoded format.
+ * <p>
+ * A file starts with the magic bytes {@code "ARLE"}, then the width, the height and the start point's
+ * cell ID plus one (zero for none). Each row follows as its number of painted runs, then for every run
+ * the gap of open cells before it and its length. Every number after the magic bytes is an unsigned
+ * LEB128 varint, so sparse shapes take a few bytes per row. Files are streamed through NIO channels a
+ * buffer at a time rather than read or written whole.
+ */
+final class RleFormat {
+    private static final byte[] MAGIC = {'A', 'R', 'L', 'E'};
+    private static final int BUFFER_BYTES = 1 << 16;
+    /**
+     * The most bytes a varint of an {@code int} can take.
+     */
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private RleFormat() {
+    }
+
+    /**
+     * Writes a grid to a channel.
+     *
+     * @param grid {@link RunLengthGrid} object to write.
+     * @param channel Channel to write the grid to, left open.
+     * @throws IOException If the channel cannot be written.
+     */
+    static void write(RunLengthGrid grid, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        buffer.put(MAGIC);
+        putVarint(buffer, grid.getWidth());
+        putVarint(buffer, grid.getHeight());
+        putVarint(buffer, grid.getStartPoint() + 1);
+        for (int y = 0; y < grid.getHeight(); y++) {
+            int[] runs = grid.getRuns(y);
+            ensureSpace(buffer, channel);
+            putVarint(buffer, runs.length / 2);
+            int x = 0;
+            for (int i = 0; i < runs.length; i += 2) {
+                ensureSpace(buffer, channel);
+                putVarint(buffer, runs[i] - x);
+                putVarint(buffer, runs[i + 1] - runs[i]);
+                x = runs[i + 1];
+            }
+        }
+        buffer.flip();
+        drain(buffer, channel);
+    }
+
+    /**
+     * Writes the {@link CellStates#PAINTED} cells and start point of a {@link GridModel} to a file.
+     *
+     * @param model {@link GridModel} object to write.
+     * @param path Path of the file to create or replace.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(GridModel model, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(RunLengthGrid.of(model), channel);
+        }
+    }
+
+    /**
+     * Reads a grid from a channel.
+     *
+     * @param channel Channel positioned at the start of the grid, left open.
+     * @return The {@link RunLengthGrid} read.
+     * @throws IOException If the channel cannot be read or does not hold a valid grid.
+     */
+    static RunLengthGrid read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        buffer.flip();
+        for (byte magic : MAGIC) {
+            fill(buffer, channel, 1);
+            if (buffer.get() != magic) {
+                throw new IOException("Not a run-length encoded grid");
+            }
+        }
+        int width = getVarint(buffer, channel);
+        int height = getVarint(buffer, channel);
+        int startPoint = getVarint(buffer, channel) - 1;
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        if (startPoint < -1 || startPoint >= (long) width * height) {
+            throw new IOException("Start point " + startPoint + " is outside the " + width + "x" + height + " grid");
+        }
+        RunLengthGrid grid = new RunLengthGrid(width, height);
+        grid.setStartPoint(startPoint);
+        for (int y = 0; y < height; y++) {
+            int runCount = getVarint(buffer, channel);
+            if (runCount > (width + 1) / 2) {
+                throw new IOException("Row " + y + " has " + runCount + " runs, more than fit in " + width + " cells");
+            }
+            int[] runs = new int[runCount * 2];
+            long x = 0;
+            for (int i = 0; i < runs.length; i += 2) {
+                int gap = getVarint(buffer, channel);
+                int length = getVarint(buffer, channel);
+                // Runs after the first must be separated by an open cell, or they would be one run
+                if (gap < 0 || (gap == 0 && i > 0) || length <= 0 || x + gap + length > width) {
+                    throw new IOException("Row " + y + " has an invalid run at column " + (x + gap));
+                }
+                runs[i] = (int) (x + gap);
+                runs[i + 1] = runs[i] + length;
+                x = runs[i + 1];
+            }
+            grid.setRuns(y, runs);
+        }
+        return grid;
+    }
+
+    /**
+     * Reads a grid file into a new {@link GridModel}.
+     *
+     * @param path Path to a run-length encoded grid.
+     * @return A {@link GridModel} holding the grid and its start point.
+     * @throws IOException If the file cannot be read or does not hold a valid grid.
+     */
+    static GridModel read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            return read(channel).toModel();
+        }
+    }
+
+    /**
+     * Flushes the buffer if another run might not fit in it.
+     */
+    private static void ensureSpace(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        if (buffer.remaining() < 2 * MAX_VARINT_BYTES) {
+            buffer.flip();
+            drain(buffer, channel);
+            buffer.clear();
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least {@code bytes} bytes, or the channel ends.
+     *
+     * @throws EOFException If the channel ended with nothing left in the buffer.
+     */
+    private static void fill(ByteBuffer buffer, ReadableByteChannel channel, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() == 0) {
+            throw new EOFException("Run-length encoded grid is truncated");
+        }
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer, ReadableByteChannel channel) throws IOException {
+        // A varint near the end of the stream may be shorter than the most it could take
+        fill(buffer, channel, MAX_VARINT_BYTES);
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("Run-length encoded grid is truncated");
+            }
+            byte b = buffer.get();
+            // The last byte only has room for bits 28 to 30, below the sign bit
+            if (shift == 28 && (b & 0xF8) != 0) {
+                break;
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Run-length encoded grid holds a number out of range");
+    }
+}
@@ -0,0 +1,460 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Grid of {@link CellStates#PAINTED} cells stored as one list of runs per row.
+ * <p>
+ * Each row holds its painted runs in order as {@code start, end} pairs, with {@code end} exclusive and
+ * every run separated from the next by at least one open cell. Shapes drawn with strokes have few runs
+ * per row, so the grid takes space proportional to the number of runs rather than cells, and
+ * {@link RunLengthGrid#estimateArea()} works on the runs directly.
+ */
+class RunLengthGrid {
+    private static final int[] NO_RUNS = new int[0];
+
+    private final int width;
+    private final int height;
+    /**
+     * The painted runs of every row.
+     */
+    private final int[][] rows;
+    /**
+     * The index of the starting cell for where the algorithm will begin, or -1 if none is set.
+     */
+    private int startPoint = -1;
+
+    public RunLengthGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.rows = new int[height][];
+        Arrays.fill(rows, NO_RUNS);
+    }
+
+    /**
+     * Encodes the {@link CellStates#PAINTED} cells and start point of a {@link GridModel}.
+     *
+     * @param model {@link GridModel} object to encode.
+     * @return A new {@link RunLengthGrid}.
+     */
+    public static RunLengthGrid of(GridModel model) {
+        int width = model.getWidth();
+        RunLengthGrid grid = new RunLengthGrid(width, model.getHeight());
+        int[] runs = new int[8];
+        for (int y = 0; y < model.getHeight(); y++) {
+            int count = 0;
+            int x = 0;
+            while (x < width) {
+                if (model.getState(model.index(x, y)) != CellStates.PAINTED) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && model.getState(model.index(x, y)) == CellStates.PAINTED) {
+                    x++;
+                }
+                if (count + 2 > runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[count++] = start;
+                runs[count++] = x;
+            }
+            grid.rows[y] = count == 0 ? NO_RUNS : Arrays.copyOf(runs, count);
+        }
+        grid.startPoint = model.getStartPoint();
+        return grid;
+    }
+
+    /**
+     * Expands the grid into a new {@link GridModel}, marking the start point if one is set.
+     *
+     * @return A new {@link GridModel}.
+     */
+    public GridModel toModel() {
+        GridModel model = new GridModel(width, height);
+        copyTo(model);
+        return model;
+    }
+
+    /**
+     * Paints the runs into a {@link GridModel} of the same size whose cells are all
+     * {@link CellStates#DEFAULT}, and marks the start point if one is set.
+     *
+     * @param model {@link GridModel} object to paint into.
+     */
+    public void copyTo(GridModel model) {
+        if (model.getWidth() != width || model.getHeight() != height) {
+            throw new IllegalArgumentException("Cannot copy a " + width + "x" + height + " grid into a "
+                    + model.getWidth() + "x" + model.getHeight() + " model");
+        }
+        for (int y = 0; y < height; y++) {
+            int[] runs = rows[y];
+            for (int i = 0; i < runs.length; i += 2) {
+                for (int x = runs[i]; x < runs[i + 1]; x++) {
+                    model.setState(model.index(x, y), CellStates.PAINTED);
+                }
+            }
+        }
+        if (startPoint >= 0) {
+            model.setStartPoint(startPoint);
+            model.setState(startPoint, CellStates.START_POINT);
+        }
+    }
+
+    /**
+     * Sets the painted runs of a row.
+     *
+     * @param y The row to set.
+     * @param runs {@code start, end} pairs in order, with {@code end} exclusive, each separated from the
+     *             next by at least one cell. Not copied.
+     */
+    public void setRuns(int y, int[] runs) {
+        if ((runs.length & 1) != 0) {
+            throw new IllegalArgumentException("Runs must be start and end pairs, got " + runs.length + " values");
+        }
+        int previousEnd = -1;
+        for (int i = 0; i < runs.length; i += 2) {
+            if (runs[i] <= previousEnd || runs[i] >= runs[i + 1] || runs[i + 1] > width) {
+                throw new IllegalArgumentException("Run [" + runs[i] + ", " + runs[i + 1] + ") in row " + y
+                        + " overlaps, touches or lies outside the previous run or the grid");
+            }
+            previousEnd = runs[i + 1];
+        }
+        rows[y] = runs.length == 0 ? NO_RUNS : runs;
+    }
+
+    /**
+     * @param y The row to get.
+     * @return The painted runs of the row as {@code start, end} pairs. Must not be modified.
+     */
+    public int[] getRuns(int y) {
+        return rows[y];
+    }
+
+    /**
+     * @return The number of painted runs in the grid.
+     */
+    public long countRuns() {
+        long runs = 0;
+        for (int[] row : rows) {
+            runs += row.length / 2;
+        }
+        return runs;
+    }
+
+    /**
+     * Estimates the area of the region containing the start point using only the runs.
+     * <p>
+     * The open cells between the painted runs form open runs, and open runs in adjacent rows whose
+     * columns overlap are connected, so the fill is a search over open runs. Painted cells next to the
+     * filled runs are found as intervals, and since {@link AreaEstimator}'s corner check counts
+     * onwards to the right through painted cells, each painted run counts from its leftmost seed to its
+     * end. The total matches {@link AreaEstimator#runAlgorithm()}, in time proportional to the number of
+     * runs.
+     *
+     * @return The number of cells counted, including the start point.
+     */
+    public long estimateArea() {
+        if (startPoint < 0) {
+            throw new IllegalStateException("Grid has no start point");
+        }
+        int startX = startPoint % width;
+        int startY = startPoint / width;
+        // The start point is never painted, and joins the runs around it
+        int[][] painted = rows.clone();
+        painted[startY] = withoutCell(rows[startY], startX);
+
+        // Open runs of every row, numbered in row-major order
+        int[][] open = new int[height][];
+        int[] firstRun = new int[height + 1];
+        for (int y = 0; y < height; y++) {
+            open[y] = complement(painted[y]);
+            firstRun[y + 1] = firstRun[y] + open[y].length / 2;
+        }
+        boolean[] filled = new boolean[firstRun[height]];
+        long area = fill(open, firstRun, filled, startX, startY);
+
+        // Each row's filled runs, for finding the painted cells next to them
+        int[][] filledRuns = new int[height][];
+        for (int y = 0; y < height; y++) {
+            filledRuns[y] = select(open[y], filled, firstRun[y]);
+        }
+        int[] boundaryBelow = height > 1 ? boundary(painted, filledRuns, 1) : NO_RUNS;
+        int[] boundary = boundary(painted, filledRuns, 0);
+        int[] countedAbove = NO_RUNS;
+        for (int y = 0; y < height; y++) {
+            int[] runs = painted[y];
+            int[] counted = new int[runs.length];
+            int countedLength = 0;
+            for (int i = 0; i < runs.length; i += 2) {
+                int start = runs[i];
+                int end = runs[i + 1];
+                int seed = Integer.MAX_VALUE;
+                // A boundary cell, or the painted cell left of one, is counted
+                int first = firstCovered(boundary, start, end);
+                if (first >= 0) {
+                    seed = Math.max(start, first - 1);
+                }
+                // A painted cell above a boundary cell, or below a counted one, is counted
+                first = firstCovered(boundaryBelow, start, end);
+                if (first >= 0) {
+                    seed = Math.min(seed, first);
+                }
+                first = firstCovered(countedAbove, start, end);
+                if (first >= 0) {
+                    seed = Math.min(seed, first);
+                }
+                // Counting carries on to the right through the rest of the run
+                if (seed < end) {
+                    area += end - seed;
+                    counted[countedLength++] = seed;
+                    counted[countedLength++] = end;
+                }
+            }
+            countedAbove = Arrays.copyOf(counted, countedLength);
+            boundary = boundaryBelow;
+            boundaryBelow = y + 2 < height ? boundary(painted, filledRuns, y + 2) : NO_RUNS;
+        }
+        return area;
+    }
+
+    /**
+     * Searches the open runs connected to the start point, marking them as filled.
+     *
+     * @return The number of cells in the filled runs.
+     */
+    private long fill(int[][] open, int[] firstRun, boolean[] filled, int startX, int startY) {
+        ArrayDeque<int[]> pending = new ArrayDeque<>();
+        int startRun = firstRun[startY] + findRun(open[startY], startX) / 2;
+        filled[startRun] = true;
+        pending.push(new int[]{startY, startRun - firstRun[startY]});
+        long area = 0;
+        while (!pending.isEmpty()) {
+            int[] run = pending.pop();
+            int y = run[0];
+            int start = open[y][2 * run[1]];
+            int end = open[y][2 * run[1] + 1];
+            area += end - start;
+            for (int neighbourY = y - 1; neighbourY <= y + 1; neighbourY += 2) {
+                if (neighbourY < 0 || neighbourY >= height) {
+                    continue;
+                }
+                int[] runs = open[neighbourY];
+                // Runs overlapping this run's columns are connected to it
+                for (int i = firstEndingAfter(runs, start); i < runs.length && runs[i] < end; i += 2) {
+                    int id = firstRun[neighbourY] + i / 2;
+                    if (!filled[id]) {
+                        filled[id] = true;
+                        pending.push(new int[]{neighbourY, i / 2});
+                    }
+                }
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Finds the painted cells of a row that border a filled run, as merged intervals.
+     */
+    private int[] boundary(int[][] painted, int[][] filledRuns, int y) {
+        int[] runs = painted[y];
+        if (runs.length == 0) {
+            return NO_RUNS;
+        }
+        // Painted cells above or below a filled run, and the cells either side of a filled run
+        int[] above = y > 0 ? intersect(runs, filledRuns[y - 1]) : NO_RUNS;
+        int[] below = y < height - 1 ? intersect(runs, filledRuns[y + 1]) : NO_RUNS;
+        int[] filledRow = filledRuns[y];
+        int[] sides = new int[filledRow.length * 2];
+        int sidesLength = 0;
+        for (int i = 0; i < filledRow.length; i += 2) {
+            if (filledRow[i] > 0) {
+                sides[sidesLength++] = filledRow[i] - 1;
+                sides[sidesLength++] = filledRow[i];
+            }
+            if (filledRow[i + 1] < width) {
+                sides[sidesLength++] = filledRow[i + 1];
+                sides[sidesLength++] = filledRow[i + 1] + 1;
+            }
+        }
+        return merge(merge(above, below), Arrays.copyOf(sides, sidesLength));
+    }
+
+    /**
+     * @return The open runs of a row, between and around its painted runs.
+     */
+    private int[] complement(int[] runs) {
+        int[] open = new int[runs.length + 2];
+        int length = 0;
+        int x = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            if (runs[i] > x) {
+                open[length++] = x;
+                open[length++] = runs[i];
+            }
+            x = runs[i + 1];
+        }
+        if (x < width) {
+            open[length++] = x;
+            open[length++] = width;
+        }
+        return Arrays.copyOf(open, length);
+    }
+
+    /**
+     * @return The runs of a row whose flags are set, given the flag of the row's first run.
+     */
+    private static int[] select(int[] runs, boolean[] flags, int firstFlag) {
+        int[] selected = new int[runs.length];
+        int length = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            if (flags[firstFlag + i / 2]) {
+                selected[length++] = runs[i];
+                selected[length++] = runs[i + 1];
+            }
+        }
+        return length == 0 ? NO_RUNS : Arrays.copyOf(selected, length);
+    }
+
+    /**
+     * @return The runs of a row with one cell removed, splitting the run that holds it.
+     */
+    private static int[] withoutCell(int[] runs, int x) {
+        int i = findRun(runs, x);
+        if (i < 0) {
+            return runs;
+        }
+        int[] split = new int[runs.length + 2];
+        System.arraycopy(runs, 0, split, 0, i);
+        int length = i;
+        if (runs[i] < x) {
+            split[length++] = runs[i];
+            split[length++] = x;
+        }
+        if (x + 1 < runs[i + 1]) {
+            split[length++] = x + 1;
+            split[length++] = runs[i + 1];
+        }
+        System.arraycopy(runs, i + 2, split, length, runs.length - i - 2);
+        return Arrays.copyOf(split, length + runs.length - i - 2);
+    }
+
+    /**
+     * @return The index of the start of the run holding column {@code x}, or -1 if no run holds it.
+     */
+    private static int findRun(int[] runs, int x) {
+        int i = firstEndingAfter(runs, x);
+        return i < runs.length && runs[i] <= x ? i : -1;
+    }
+
+    /**
+     * Binary searches for the first run that ends after column {@code x}.
+     *
+     * @return The index of the run's start, or {@code runs.length} if there is none.
+     */
+    private static int firstEndingAfter(int[] runs, int x) {
+        int low = 0;
+        int high = runs.length / 2;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (runs[2 * middle + 1] <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return 2 * low;
+    }
+
+    /**
+     * @return The first column in {@code [start, end)} covered by the intervals, or -1 if there is none.
+     */
+    private static int firstCovered(int[] intervals, int start, int end) {
+        int i = firstEndingAfter(intervals, start);
+        if (i == intervals.length || intervals[i] >= end) {
+            return -1;
+        }
+        return Math.max(start, intervals[i]);
+    }
+
+    /**
+     * @return The cells covered by both sorted lists of disjoint intervals.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return NO_RUNS;
+        }
+        int[] result = new int[a.length + b.length];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int start = Math.max(a[i], b[j]);
+            int end = Math.min(a[i + 1], b[j + 1]);
+            if (start < end) {
+                result[length++] = start;
+                result[length++] = end;
+            }
+            if (a[i + 1] < b[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * @return The cells covered by either sorted list of intervals, as sorted disjoint intervals.
+     */
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        int[] result = new int[a.length + b.length];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int start;
+            int end;
+            if (j == b.length || (i < a.length && a[i] <= b[j])) {
+                start = a[i];
+                end = a[i + 1];
+                i += 2;
+            } else {
+                start = b[j];
+                end = b[j + 1];
+                j += 2;
+            }
+            if (length > 0 && start <= result[length - 1]) {
+                result[length - 1] = Math.max(result[length - 1], end);
+            } else {
+                result[length++] = start;
+                result[length++] = end;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+    public int getHeight() {
+        return height;
+    }
+    public int getStartPoint() {
+        return startPoint;
+    }
+    public void setStartPoint(int startPoint) {
+        if (startPoint < -1 || startPoint >= (long) width * height) {
+            throw new IllegalArgumentException("Start point " + startPoint + " is outside the " + width + "x" + height + " grid");
+        }
+        this.startPoint = startPoint;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * The counters and phase timings of one {@link AreaEstimator} run.
+ */
+final class RunMetrics {
+    /**
+     * The number of cells counted, including the start point.
+     */
+    final long countedCells;
+    /**
+     * The number of cells whose state was checked by the fill and the corner check.
+     */
+    final long cellsVisited;
+    /**
+     * The number of neighbouring cells looked up to extend the fill or the corner check.
+     */
+    final long neighbourLookups;
+    /**
+     * The largest number of cells or runs waiting on the fill's or corner check's worklist at once.
+     */
+    final int maxStackSize;
+    /**
+     * Time spent filling the area, in nanoseconds. For animated runs this excludes the time between frames.
+     */
+    final long fillNanos;
+    /**
+     * Time spent in the corner check, in nanoseconds.
+     */
+    final long cornerNanos;
+    /**
+     * Whether the run was animated.
+     */
+    final boolean animated;
+
+    RunMetrics(long countedCells, long cellsVisited, long neighbourLookups, int maxStackSize,
+               long fillNanos, long cornerNanos, boolean animated) {
+        this.countedCells = countedCells;
+        this.cellsVisited = cellsVisited;
+        this.neighbourLookups = neighbourLookups;
+        this.maxStackSize = maxStackSize;
+        this.fillNanos = fillNanos;
+        this.cornerNanos = cornerNanos;
+        this.animated = animated;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d cells counted, %d visited, %d neighbour lookups, max stack %d,"
+                        + " fill %.3f ms, corners %.3f ms%s", countedCells, cellsVisited, neighbourLookups,
+                maxStackSize, fillNanos / 1e6, cornerNanos / 1e6, animated ? " (animated)" : "");
+    }
+}
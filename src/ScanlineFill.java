@@ -0,0 +1,239 @@
+import java.util.Arrays;
+
+/**
+ * Iterative span-based flood fill over a {@link GridModel}.
+ * <p>
+ * Fills whole horizontal runs of {@link CellStates#DEFAULT} cells at a time, keeping pending runs on
+ * its own primitive {@code int} stack rather than the call stack. It applies the same rule space as
+ * the recursive {@link AreaEstimator} check: {@link CellStates#DEFAULT} cells become
+ * {@link CellStates#AREA} and are counted, and {@link CellStates#PAINTED} cells touching the area are
+ * counted as the boundary.
+ */
+class ScanlineFill {
+    /**
+     * {@link GridModel} object to fill.
+     */
+    private final GridModel model;
+    /**
+     * Stack of cell IDs that start a run still to be filled. Grown as needed and reused between fills.
+     */
+    private int[] stack = new int[64];
+    /**
+     * Number of entries currently on {@link ScanlineFill#stack}.
+     */
+    private int stackSize;
+    /**
+     * Tracks the number of cells counted by the current fill.
+     */
+    private int countedCells;
+    /**
+     * The boundary cells counted by the current fill, in the order they were reached.
+     */
+    private int[] boundaryCells = new int[64];
+    private int boundaryCount;
+
+    // Counters for the current fill, kept per run rather than per cell
+    private long cellsVisited;
+    private long neighbourLookups;
+    private int maxStackSize;
+
+    public ScanlineFill(GridModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Fills the region around the start point and counts every cell reached.
+     * <p>
+     * The start point itself is not included in the returned count.
+     *
+     * @param startPoint ID of the starting cell.
+     * @return The number of cells counted.
+     */
+    public int fill(int startPoint) {
+        return fill(startPoint, null);
+    }
+
+    /**
+     * Fills the region around the start point, reporting progress after every run.
+     *
+     * @param startPoint ID of the starting cell.
+     * @param progress Progress hook, or {@code null} for none.
+     * @return The number of cells counted.
+     */
+    public int fill(int startPoint, EstimationProgress progress) {
+        int width = model.getWidth();
+        int x = startPoint % width;
+        int y = startPoint / width;
+        countedCells = 0;
+        stackSize = 0;
+        boundaryCount = 0;
+        cellsVisited = 0;
+        neighbourLookups = 0;
+        maxStackSize = 0;
+        // Seed the fill from the start point's von Neumann neighbourhood
+        if (x > 0) {
+            visit(startPoint - 1);
+        }
+        if (y > 0) {
+            visit(startPoint - width);
+        }
+        if (x < width - 1) {
+            visit(startPoint + 1);
+        }
+        if (y < model.getHeight() - 1) {
+            visit(startPoint + width);
+        }
+        while (stackSize > 0) {
+            fillRun(stack[--stackSize]);
+            if (progress != null) {
+                progress.update(countedCells);
+            }
+        }
+        return countedCells;
+    }
+
+    /**
+     * Fills the run of fillable cells containing the given cell, then scans the rows above and below it.
+     *
+     * @param id ID of a cell within the run.
+     */
+    private void fillRun(int id) {
+        if (!isFillable(id)) {
+            return;
+        }
+        int width = model.getWidth();
+        int rowStart = id - id % width;
+        int rowEnd = rowStart + width - 1;
+
+        // Extend the run as far as possible in both directions
+        int left = id;
+        while (left > rowStart && isFillable(left - 1)) {
+            left--;
+        }
+        int right = id;
+        while (right < rowEnd && isFillable(right + 1)) {
+            right++;
+        }
+        cellsVisited += right - left + 1;
+        for (int i = left; i <= right; i++) {
+            countedCells++;
+            model.setState(i, CellStates.AREA);
+            model.setBeenCounted(i, true);
+        }
+
+        // Count the boundary cells at either end of the run
+        if (left > rowStart) {
+            neighbourLookups++;
+            countBoundary(left - 1);
+        }
+        if (right < rowEnd) {
+            neighbourLookups++;
+            countBoundary(right + 1);
+        }
+        // Scan the rows above and below for new runs and boundary cells
+        if (rowStart > 0) {
+            scanRow(left - width, right - width);
+        }
+        if (rowEnd < model.size() - 1) {
+            scanRow(left + width, right + width);
+        }
+    }
+
+    /**
+     * Pushes the start of every fillable run in the given span and counts any boundary cells in it.
+     *
+     * @param from ID of the first cell in the span.
+     * @param to ID of the last cell in the span.
+     */
+    private void scanRow(int from, int to) {
+        neighbourLookups += to - from + 1;
+        boolean inRun = false;
+        for (int i = from; i <= to; i++) {
+            if (isFillable(i)) {
+                if (!inRun) {
+                    push(i);
+                    inRun = true;
+                }
+            } else {
+                inRun = false;
+                countBoundary(i);
+            }
+        }
+    }
+
+    /**
+     * Handles a single neighbour of the start point.
+     *
+     * @param id ID of a given cell.
+     */
+    private void visit(int id) {
+        neighbourLookups++;
+        if (isFillable(id)) {
+            push(id);
+        } else {
+            countBoundary(id);
+        }
+    }
+
+    /**
+     * Counts the given cell if it is an uncounted {@link CellStates#PAINTED} cell.
+     *
+     * @param id ID of a given cell.
+     */
+    private void countBoundary(int id) {
+        if (model.getState(id) == CellStates.PAINTED && !model.hasBeenCounted(id)) {
+            countedCells++;
+            cellsVisited++;
+            model.setBeenCounted(id, true);
+            if (boundaryCount == boundaryCells.length) {
+                boundaryCells = Arrays.copyOf(boundaryCells, boundaryCount * 2);
+            }
+            boundaryCells[boundaryCount++] = id;
+        }
+    }
+
+    /**
+     * @return The number of cells filled or counted as the boundary by the last fill.
+     */
+    public long getCellsVisited() {
+        return cellsVisited;
+    }
+
+    /**
+     * @return The number of neighbouring cells the last fill looked up to find runs and boundary cells.
+     */
+    public long getNeighbourLookups() {
+        return neighbourLookups;
+    }
+
+    /**
+     * @return The most runs that were waiting on the stack at once during the last fill.
+     */
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    /**
+     * @return The {@link CellStates#PAINTED} cells counted as the boundary by the last fill.
+     */
+    public int[] getBoundaryCells() {
+        return Arrays.copyOf(boundaryCells, boundaryCount);
+    }
+
+    /**
+     * {@link CellStates#AREA} cells left over from an earlier run are filled again, so the model can be
+     * re-estimated without clearing it first.
+     */
+    private boolean isFillable(int id) {
+        CellStates state = model.getState(id);
+        return (state == CellStates.DEFAULT || state == CellStates.AREA) && !model.hasBeenCounted(id);
+    }
+
+    private void push(int id) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = id;
+        maxStackSize = Math.max(maxStackSize, stackSize);
+    }
+}
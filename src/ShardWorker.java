@@ -0,0 +1,447 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Worker process for {@link ShardedEstimator}, which labels and counts one horizontal band of the grid.
+ * <p>
+ * The worker reads its band's painted rows from standard input and labels the band's open components
+ * with a union-find. Whether a component is joined to the start point, and so whether the painted cells
+ * around it count, depends on the other bands, so the worker holds on to its labels and answers the
+ * coordinator over three rounds:
+ * <ol>
+ *     <li>{@link Labels}: the labels of the top and bottom rows and of the cells just below the top row,
+ *     and the size of every component touching an edge row or holding the start point. No other
+ *     component can join the start point's, so the rest are dropped.</li>
+ *     <li>{@link Resolution} in, {@link Counts} out: which of those components, and which open cells
+ *     just outside the band, are joined to the start point, and which painted cells just below the band
+ *     are boundary cells. The worker replays {@link AreaEstimator}'s corner check over the band as if no
+ *     cell above it counted, and replies with the painted cells counted and which of its bottom row's
+ *     cells count.</li>
+ *     <li>For every band but the first, the counted cells of the bottom row of the band above, once that
+ *     band is final. The worker spreads them into its own cells and replies with the extra cells counted
+ *     and its final bottom row.</li>
+ * </ol>
+ * Every message holds at most a few numbers per column and per kept component, and a band keeps at
+ * most one component per open run of its edge rows plus the start point's, so each is O(width)
+ * whatever the band's height or shape.
+ */
+class ShardWorker {
+    /**
+     * The first round's reply: the labels and component sizes of one band.
+     */
+    static final class Labels {
+        int width;
+        int rows;
+        /**
+         * The number of open cells in each kept component.
+         */
+        long[] cells;
+        /**
+         * The label of the start point's component, or -1 if the start point is not in this band.
+         */
+        int startLabel = -1;
+        // Labels of the top and bottom rows, or -1 for painted cells
+        int[] top;
+        int[] bottom;
+        /**
+         * Labels of the cells just below the top row, or -1 for painted cells, dropped components or a
+         * band of one row.
+         */
+        int[] belowTop;
+
+        int labelCount() {
+            return cells.length;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(width);
+            out.writeInt(rows);
+            out.writeInt(cells.length);
+            for (long count : cells) {
+                out.writeLong(count);
+            }
+            out.writeInt(startLabel);
+            for (int x = 0; x < width; x++) {
+                out.writeInt(top[x]);
+                out.writeInt(bottom[x]);
+                out.writeInt(belowTop[x]);
+            }
+        }
+
+        static Labels read(DataInputStream in) throws IOException {
+            Labels labels = new Labels();
+            labels.width = in.readInt();
+            labels.rows = in.readInt();
+            labels.cells = new long[in.readInt()];
+            for (int i = 0; i < labels.cells.length; i++) {
+                labels.cells[i] = in.readLong();
+            }
+            labels.startLabel = in.readInt();
+            labels.top = new int[labels.width];
+            labels.bottom = new int[labels.width];
+            labels.belowTop = new int[labels.width];
+            for (int x = 0; x < labels.width; x++) {
+                labels.top[x] = in.readInt();
+                labels.bottom[x] = in.readInt();
+                labels.belowTop[x] = in.readInt();
+            }
+            return labels;
+        }
+    }
+
+    /**
+     * The second round's request: what the band needs to know about the start point's component.
+     * <p>
+     * Each field is a bit set, where bit {@code i & 63} of word {@code i >>> 6} holds label or column
+     * {@code i}.
+     */
+    static final class Resolution {
+        /**
+         * Whether each kept component is joined to the start point.
+         */
+        long[] joined;
+        // Whether the open cell just above and just below each column is joined to the start point
+        long[] joinedAbove;
+        long[] joinedBelow;
+        /**
+         * Whether the painted cell just below each column is a boundary cell.
+         */
+        long[] boundaryBelow;
+        /**
+         * Whether the band above's counted cells will follow in a third round.
+         */
+        boolean countedAboveFollows;
+
+        void write(DataOutputStream out) throws IOException {
+            writeBits(out, joined);
+            writeBits(out, joinedAbove);
+            writeBits(out, joinedBelow);
+            writeBits(out, boundaryBelow);
+            out.writeBoolean(countedAboveFollows);
+        }
+
+        static Resolution read(DataInputStream in, int width, int labelCount) throws IOException {
+            Resolution resolution = new Resolution();
+            resolution.joined = readBits(in, labelCount);
+            resolution.joinedAbove = readBits(in, width);
+            resolution.joinedBelow = readBits(in, width);
+            resolution.boundaryBelow = readBits(in, width);
+            resolution.countedAboveFollows = in.readBoolean();
+            return resolution;
+        }
+    }
+
+    /**
+     * The reply to the second and third rounds: painted cells newly counted, and the bottom row's.
+     */
+    static final class Counts {
+        long cells;
+        /**
+         * Whether each cell of the bottom row is a counted painted cell, as a bit set.
+         */
+        long[] bottomCounted;
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(cells);
+            writeBits(out, bottomCounted);
+        }
+
+        static Counts read(DataInputStream in, int width) throws IOException {
+            Counts counts = new Counts();
+            counts.cells = in.readLong();
+            counts.bottomCounted = readBits(in, width);
+            return counts;
+        }
+    }
+
+    private final int width;
+    private final int rows;
+    private final int words;
+    private final long[] painted;
+    /**
+     * Kept label of every open cell, -1 for painted cells and -2 for open cells in dropped components.
+     */
+    private final int[] labels;
+    private final Labels summary = new Labels();
+    /**
+     * The painted cells counted so far, {@link ShardWorker#words} words per row.
+     */
+    private final long[] counted;
+    private Resolution resolution;
+
+    /**
+     * Labels a band.
+     *
+     * @param width The number of cells in each row.
+     * @param rows The number of rows in the band.
+     * @param painted The band's painted cells, {@code (width + 63) / 64} words per row. Retained.
+     * @param startX Column of the start point, or -1 if it is not in this band.
+     * @param startY Row of the start point within the band, or -1 if it is not in this band.
+     */
+    ShardWorker(int width, int rows, long[] painted, int startX, int startY) {
+        this.width = width;
+        this.rows = rows;
+        this.words = (width + 63) >>> 6;
+        this.painted = painted;
+        this.labels = new int[Math.multiplyExact(width, rows)];
+        this.counted = new long[painted.length];
+        if (startY >= 0) {
+            // The start point is never painted, and joins the components around it
+            painted[startY * words + (startX >>> 6)] &= ~(1L << startX);
+        }
+        labelComponents(startY >= 0 ? startY * width + startX : -1);
+    }
+
+    /**
+     * Entry point for a worker process. Reads one band from standard input, then answers the
+     * coordinator's rounds on standard output.
+     *
+     * @param args Unused.
+     */
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in, 1 << 16));
+        int width = in.readInt();
+        int rows = in.readInt();
+        int startX = in.readInt();
+        int startY = in.readInt();
+        int words = (width + 63) >>> 6;
+        long[] painted = new long[Math.multiplyExact(words, rows)];
+        for (int i = 0; i < painted.length; i++) {
+            painted[i] = in.readLong();
+        }
+        ShardWorker worker = new ShardWorker(width, rows, painted, startX, startY);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out, 1 << 16));
+        worker.getLabels().write(out);
+        out.flush();
+        Resolution resolution = Resolution.read(in, width, worker.getLabels().labelCount());
+        worker.count(resolution).write(out);
+        out.flush();
+        if (resolution.countedAboveFollows) {
+            worker.countFromAbove(readBits(in, width)).write(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * @return The band's labels, for the first round.
+     */
+    Labels getLabels() {
+        return summary;
+    }
+
+    /**
+     * Replays {@link AreaEstimator}'s corner check over the band as if no cell above it counted.
+     *
+     * @param resolution Which components and cells around the band are joined to the start point.
+     * @return The painted cells counted.
+     */
+    Counts count(Resolution resolution) {
+        this.resolution = resolution;
+        long total = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!isPainted(x, y)) {
+                    continue;
+                }
+                // A cell counts if it, its right neighbour or the painted cell below borders the start
+                // point's component, or it continues a counted cell to its left or above
+                boolean counts = isBoundary(x, y)
+                        || (x < width - 1 && isPainted(x + 1, y) && isBoundary(x + 1, y))
+                        || (y < rows - 1 ? isPainted(x, y + 1) && isBoundary(x, y + 1)
+                                : isSet(resolution.boundaryBelow, x))
+                        || (x > 0 && isCounted(x - 1, y))
+                        || (y > 0 && isCounted(x, y - 1));
+                if (counts) {
+                    counted[y * words + (x >>> 6)] |= 1L << x;
+                    total++;
+                }
+            }
+        }
+        return counts(total);
+    }
+
+    /**
+     * Spreads the counted cells of the row above the band into the band, rightwards and downwards
+     * through painted cells, as {@link AreaEstimator}'s corner check would. Called after
+     * {@link ShardWorker#count(Resolution)}.
+     *
+     * @param countedAbove Whether each cell of the row above is a counted painted cell, as a bit set.
+     * @return The painted cells counted that {@link ShardWorker#count(Resolution)} had not.
+     */
+    Counts countFromAbove(long[] countedAbove) {
+        int[] stack = new int[16];
+        int size = 0;
+        long total = 0;
+        for (int x = 0; x < width; x++) {
+            if (isSet(countedAbove, x) && isPainted(x, 0) && !isCounted(x, 0)) {
+                counted[x >>> 6] |= 1L << x;
+                total++;
+                stack[size++] = x;
+                while (size > 0) {
+                    int id = stack[--size];
+                    int cellX = id % width;
+                    int cellY = id / width;
+                    if (stack.length < size + 2) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    if (cellX < width - 1 && isPainted(cellX + 1, cellY) && !isCounted(cellX + 1, cellY)) {
+                        counted[cellY * words + ((cellX + 1) >>> 6)] |= 1L << (cellX + 1);
+                        total++;
+                        stack[size++] = id + 1;
+                    }
+                    if (cellY < rows - 1 && isPainted(cellX, cellY + 1) && !isCounted(cellX, cellY + 1)) {
+                        counted[(cellY + 1) * words + (cellX >>> 6)] |= 1L << cellX;
+                        total++;
+                        stack[size++] = id + width;
+                    }
+                }
+            }
+        }
+        return counts(total);
+    }
+
+    private Counts counts(long cells) {
+        Counts counts = new Counts();
+        counts.cells = cells;
+        counts.bottomCounted = Arrays.copyOfRange(counted, (rows - 1) * words, rows * words);
+        return counts;
+    }
+
+    /**
+     * Labels the open cells, keeping only the components that touch an edge row or hold the start point.
+     */
+    private void labelComponents(int start) {
+        int[] parent = new int[64];
+        int provisional = 0;
+        for (int y = 0, id = 0; y < rows; y++) {
+            for (int x = 0; x < width; x++, id++) {
+                if (isPainted(x, y)) {
+                    labels[id] = -1;
+                    continue;
+                }
+                int left = x > 0 ? labels[id - 1] : -1;
+                int above = y > 0 ? labels[id - width] : -1;
+                int label;
+                if (left >= 0 && above >= 0) {
+                    label = left == above ? left : union(parent, left, above);
+                } else if (left >= 0 || above >= 0) {
+                    label = Math.max(left, above);
+                } else {
+                    if (provisional == parent.length) {
+                        parent = Arrays.copyOf(parent, provisional * 2);
+                    }
+                    label = provisional++;
+                    parent[label] = label;
+                }
+                labels[id] = label;
+            }
+        }
+
+        // Keep the components reaching the edge rows or holding the start point, numbered from zero
+        int[] kept = new int[provisional];
+        Arrays.fill(kept, -1);
+        int lastRow = (rows - 1) * width;
+        int labelCount = 0;
+        for (int x = 0; x < width; x++) {
+            labelCount = keep(kept, parent, labels[x], labelCount);
+            labelCount = keep(kept, parent, labels[lastRow + x], labelCount);
+        }
+        if (start >= 0) {
+            labelCount = keep(kept, parent, labels[start], labelCount);
+        }
+        summary.width = width;
+        summary.rows = rows;
+        summary.cells = new long[labelCount];
+        for (int id = 0; id < labels.length; id++) {
+            if (labels[id] >= 0) {
+                int label = kept[find(parent, labels[id])];
+                labels[id] = label < 0 ? -2 : label;
+                if (label >= 0) {
+                    summary.cells[label]++;
+                }
+            }
+        }
+        summary.startLabel = start >= 0 ? labels[start] : -1;
+        summary.top = new int[width];
+        summary.bottom = new int[width];
+        summary.belowTop = new int[width];
+        for (int x = 0; x < width; x++) {
+            summary.top[x] = Math.max(labels[x], -1);
+            summary.bottom[x] = Math.max(labels[lastRow + x], -1);
+            summary.belowTop[x] = rows > 1 ? Math.max(labels[width + x], -1) : -1;
+        }
+    }
+
+    private static int keep(int[] kept, int[] parent, int label, int labelCount) {
+        if (label >= 0) {
+            int root = find(parent, label);
+            if (kept[root] < 0) {
+                kept[root] = labelCount++;
+            }
+        }
+        return labelCount;
+    }
+
+    /**
+     * @return Whether a cell borders an open cell joined to the start point, inside or just outside the band.
+     */
+    private boolean isBoundary(int x, int y) {
+        int id = y * width + x;
+        return (x > 0 && isJoined(labels[id - 1]))
+                || (x < width - 1 && isJoined(labels[id + 1]))
+                || (y > 0 ? isJoined(labels[id - width]) : isSet(resolution.joinedAbove, x))
+                || (y < rows - 1 ? isJoined(labels[id + width]) : isSet(resolution.joinedBelow, x));
+    }
+
+    private boolean isJoined(int label) {
+        return label >= 0 && isSet(resolution.joined, label);
+    }
+
+    private boolean isPainted(int x, int y) {
+        return (painted[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    private boolean isCounted(int x, int y) {
+        return (counted[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    static boolean isSet(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    static void writeBits(DataOutputStream out, long[] bits) throws IOException {
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    static long[] readBits(DataInputStream in, int size) throws IOException {
+        long[] bits = new long[(size + 63) >>> 6];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return bits;
+    }
+
+    private static int union(int[] parent, int labelA, int labelB) {
+        int rootA = find(parent, labelA);
+        int rootB = find(parent, labelB);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+        return rootA;
+    }
+
+    private static int find(int[] parent, int label) {
+        while (parent[label] != label) {
+            // Path halving
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+}
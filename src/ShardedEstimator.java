@@ -0,0 +1,522 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Estimates the area of a grid too large for one process by splitting it into horizontal bands, each
+ * labelled by a separate {@link ShardWorker} JVM.
+ * <p>
+ * Every band's rows are piped to its worker's standard input, and the worker replies on its standard
+ * output with the labels of its edge rows and the sizes of the components touching them. The
+ * coordinator joins the labels of neighbouring edge rows with a union-find to find the start point's
+ * component, and tells every worker which of its components and surrounding cells are joined to it.
+ * The workers then count their painted cells in parallel, and finally, in band order, spread the counted
+ * cells of the band above into their own, since a painted cell can count because of the cells above it.
+ * The total matches {@link AreaEstimator#runAlgorithm()}.
+ * <p>
+ * Each message after the rows is O(width), as described in {@link ShardWorker}, so the coordinator
+ * handles O(shards * width) numbers besides the rows it forwards, however large the bands are.
+ * <p>
+ * Usage: {@code java Main --sharded <file.pbm> --start x,y [--shards n]}
+ */
+class ShardedEstimator {
+    /**
+     * Reads the painted cells of one row into words, where bit {@code x & 63} of word {@code x >>> 6}
+     * holds column {@code x}.
+     */
+    private interface RowSource {
+        void readRow(int y, long[] words) throws IOException;
+    }
+
+    private final int shards;
+    /**
+     * Extra options for every worker JVM, e.g. {@code -Xmx}.
+     */
+    private final List<String> workerOptions;
+
+    public ShardedEstimator(int shards) {
+        this(shards, List.of());
+    }
+
+    /**
+     * @param shards The number of bands, and so worker processes, to split the grid into.
+     * @param workerOptions Extra options for every worker JVM.
+     */
+    public ShardedEstimator(int shards, List<String> workerOptions) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive, got " + shards);
+        }
+        this.shards = shards;
+        this.workerOptions = List.copyOf(workerOptions);
+    }
+
+    /**
+     * Entry point for sharded mode.
+     *
+     * @param args Command line args, starting with {@code --sharded}.
+     */
+    public static void main(String[] args) throws Exception {
+        Path bitmap = null;
+        int[] start = null;
+        int shards = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sharded" -> bitmap = Paths.get(BatchEstimator.requireValue(args, ++i));
+                case "--start" -> start = BatchEstimator.parseStart(BatchEstimator.requireValue(args, ++i).replace(',', ' '));
+                case "--shards" -> shards = Integer.parseInt(BatchEstimator.requireValue(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (bitmap == null || start == null) {
+            throw new IllegalArgumentException("Usage: --sharded <file.pbm> --start x,y [--shards n]");
+        }
+        long area = new ShardedEstimator(shards).estimateArea(bitmap, start[0], start[1]);
+        System.out.println("Area: " + area + " units^2");
+    }
+
+    /**
+     * Estimates the area of a {@link GridModel}.
+     *
+     * @param model {@link GridModel} object with a start point set.
+     * @return The number of cells counted, including the start point.
+     * @throws IOException If a worker cannot be started or fails.
+     */
+    public long estimateArea(GridModel model) throws IOException {
+        int startPoint = model.getStartPoint();
+        if (startPoint < 0) {
+            throw new IllegalArgumentException("Grid has no start point");
+        }
+        int width = model.getWidth();
+        return estimateArea(width, model.getHeight(), startPoint % width, startPoint / width, (y, words) -> {
+            Arrays.fill(words, 0);
+            for (int x = 0; x < width; x++) {
+                if (model.getState(model.index(x, y)) == CellStates.PAINTED) {
+                    words[x >>> 6] |= 1L << x;
+                }
+            }
+        });
+    }
+
+    /**
+     * Estimates the area of a P4 bitmap file, streaming its rows straight to the workers.
+     *
+     * @param bitmap Path to a P4 bitmap.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     * @return The number of cells counted, including the start point.
+     * @throws IOException If the bitmap cannot be read, or a worker cannot be started or fails.
+     */
+    public long estimateArea(Path bitmap, int startX, int startY) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(bitmap), 1 << 16)) {
+            PbmFormat.Header header = PbmFormat.readHeader(in);
+            if (startX < 0 || startX >= header.width || startY < 0 || startY >= header.height) {
+                throw new IOException("Start point (" + startX + ", " + startY + ") is outside the "
+                        + header.width + "x" + header.height + " bitmap");
+            }
+            DataInputStream data = new DataInputStream(in);
+            byte[] bytes = new byte[header.rowBytes()];
+            // Bands are sent in order, so the rows are requested in order too
+            return estimateArea(header.width, header.height, startX, startY, (y, words) -> {
+                PbmFormat.readRow(data, bytes, y, header.height);
+                PbmFormat.unpackRow(bytes, words, header.width);
+            });
+        }
+    }
+
+    private long estimateArea(int width, int height, int startX, int startY, RowSource rows) throws IOException {
+        int bandCount = Math.min(shards, height);
+        List<ProcessShard> workers = new ArrayList<>();
+        try {
+            // Start every worker first, so they all label their bands while later bands are still being sent
+            for (int i = 0; i < bandCount; i++) {
+                workers.add(new ProcessShard(startWorker(), i));
+            }
+            long[] words = new long[(width + 63) >>> 6];
+            for (int i = 0; i < bandCount; i++) {
+                int top = bandStart(i, bandCount, height);
+                int bottom = bandStart(i + 1, bandCount, height);
+                boolean hasStart = startY >= top && startY < bottom;
+                DataOutputStream out = workers.get(i).out;
+                out.writeInt(width);
+                out.writeInt(bottom - top);
+                out.writeInt(hasStart ? startX : -1);
+                out.writeInt(hasStart ? startY - top : -1);
+                for (int y = top; y < bottom; y++) {
+                    rows.readRow(y, words);
+                    for (long word : words) {
+                        out.writeLong(word);
+                    }
+                }
+                out.flush();
+            }
+            long total = merge(workers);
+            for (ProcessShard worker : workers) {
+                worker.awaitExit();
+            }
+            return total;
+        } finally {
+            for (ProcessShard worker : workers) {
+                worker.process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Estimates the area of a {@link GridModel} with every band's {@link ShardWorker} in this JVM,
+     * exchanging the same messages as worker processes would.
+     *
+     * @param model {@link GridModel} object with a start point set.
+     * @param shards The number of bands to split the grid into.
+     * @return The number of cells counted, including the start point.
+     */
+    static long estimateInProcess(GridModel model, int shards) {
+        int width = model.getWidth();
+        int height = model.getHeight();
+        int startPoint = model.getStartPoint();
+        if (startPoint < 0) {
+            throw new IllegalArgumentException("Grid has no start point");
+        }
+        int bandCount = Math.min(shards, height);
+        int words = (width + 63) >>> 6;
+        List<LocalShard> workers = new ArrayList<>();
+        for (int i = 0; i < bandCount; i++) {
+            int top = bandStart(i, bandCount, height);
+            int bottom = bandStart(i + 1, bandCount, height);
+            long[] painted = new long[words * (bottom - top)];
+            for (int y = top; y < bottom; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (model.getState(model.index(x, y)) == CellStates.PAINTED) {
+                        painted[(y - top) * words + (x >>> 6)] |= 1L << x;
+                    }
+                }
+            }
+            boolean hasStart = startPoint / width >= top && startPoint / width < bottom;
+            workers.add(new LocalShard(new ShardWorker(width, bottom - top, painted,
+                    hasStart ? startPoint % width : -1, hasStart ? startPoint / width - top : -1)));
+        }
+        try {
+            return merge(workers);
+        } catch (IOException e) {
+            throw new IllegalStateException("In-process shards never fail to communicate", e);
+        }
+    }
+
+    /**
+     * @return The first row of the given band, or the grid's height for the band past the last.
+     */
+    private static int bandStart(int band, int bandCount, int height) {
+        return (int) ((long) band * height / bandCount);
+    }
+
+    private Process startWorker() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(workerOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    /**
+     * Runs the coordinator's side of every round with the bands' workers.
+     *
+     * @return The number of cells counted, including the start point.
+     */
+    private static long merge(List<? extends Shard> workers) throws IOException {
+        ShardWorker.Labels[] bands = new ShardWorker.Labels[workers.size()];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = workers.get(i).labels();
+        }
+        Merge merge = new Merge(bands);
+        long total = merge.openCells();
+
+        // Every band counts its painted cells at once, as if nothing above it counted
+        for (int i = 0; i < bands.length; i++) {
+            workers.get(i).send(merge.resolve(i));
+        }
+        long[][] bottomCounted = new long[bands.length][];
+        for (int i = 0; i < bands.length; i++) {
+            ShardWorker.Counts counts = workers.get(i).counts();
+            total += counts.cells;
+            bottomCounted[i] = counts.bottomCounted;
+        }
+        // Counted cells only spread downwards, so each band is final once the band above has spread into it
+        for (int i = 1; i < bands.length; i++) {
+            workers.get(i).sendCountedAbove(bottomCounted[i - 1]);
+            ShardWorker.Counts counts = workers.get(i).counts();
+            total += counts.cells;
+            bottomCounted[i] = counts.bottomCounted;
+        }
+        return total;
+    }
+
+    /**
+     * The coordinator's view of one band's worker.
+     */
+    private interface Shard {
+        ShardWorker.Labels labels() throws IOException;
+
+        void send(ShardWorker.Resolution resolution) throws IOException;
+
+        void sendCountedAbove(long[] countedAbove) throws IOException;
+
+        /**
+         * @return The reply to the last request sent.
+         */
+        ShardWorker.Counts counts() throws IOException;
+    }
+
+    /**
+     * A worker process, talked to over its standard input and output.
+     */
+    private static final class ProcessShard implements Shard {
+        final Process process;
+        final int band;
+        final DataOutputStream out;
+        final DataInputStream in;
+        /**
+         * The first reply, read as soon as the worker sends it so it never blocks on a full pipe.
+         */
+        final FutureTask<ShardWorker.Labels> labels;
+        int width;
+
+        ProcessShard(Process process, int band) {
+            this.process = process;
+            this.band = band;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 1 << 16));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream(), 1 << 16));
+            this.labels = new FutureTask<>(() -> ShardWorker.Labels.read(in));
+            Thread reader = new Thread(labels, "shard-reader-" + band);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        @Override
+        public ShardWorker.Labels labels() throws IOException {
+            try {
+                ShardWorker.Labels result = labels.get();
+                width = result.width;
+                return result;
+            } catch (ExecutionException e) {
+                throw new IOException("Shard worker " + band + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for shard worker " + band, e);
+            }
+        }
+
+        @Override
+        public void send(ShardWorker.Resolution resolution) throws IOException {
+            resolution.write(out);
+            if (resolution.countedAboveFollows) {
+                out.flush();
+            } else {
+                out.close();
+            }
+        }
+
+        @Override
+        public void sendCountedAbove(long[] countedAbove) throws IOException {
+            ShardWorker.writeBits(out, countedAbove);
+            out.close();
+        }
+
+        @Override
+        public ShardWorker.Counts counts() throws IOException {
+            try {
+                return ShardWorker.Counts.read(in, width);
+            } catch (IOException e) {
+                throw new IOException("Shard worker " + band + " failed", e);
+            }
+        }
+
+        void awaitExit() throws IOException {
+            try {
+                int exitCode = process.waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("Shard worker " + band + " exited with code " + exitCode);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for shard worker " + band, e);
+            }
+        }
+    }
+
+    /**
+     * A {@link ShardWorker} in this JVM.
+     */
+    private static final class LocalShard implements Shard {
+        final ShardWorker worker;
+        ShardWorker.Resolution resolution;
+        long[] countedAbove;
+
+        LocalShard(ShardWorker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public ShardWorker.Labels labels() {
+            return worker.getLabels();
+        }
+
+        @Override
+        public void send(ShardWorker.Resolution resolution) {
+            this.resolution = resolution;
+        }
+
+        @Override
+        public void sendCountedAbove(long[] countedAbove) {
+            this.countedAbove = countedAbove;
+        }
+
+        @Override
+        public ShardWorker.Counts counts() {
+            if (countedAbove != null) {
+                return worker.countFromAbove(countedAbove);
+            }
+            return worker.count(resolution);
+        }
+    }
+
+    /**
+     * Joins the bands' components across their edge rows to find the start point's component.
+     */
+    private static final class Merge {
+        private final ShardWorker.Labels[] bands;
+        private final int width;
+        /**
+         * The first global label of each band.
+         */
+        private final int[] offsets;
+        private final int[] parent;
+        private final int startRoot;
+
+        Merge(ShardWorker.Labels[] bands) {
+            this.bands = bands;
+            this.width = bands[0].width;
+            this.offsets = new int[bands.length + 1];
+            for (int i = 0; i < bands.length; i++) {
+                offsets[i + 1] = offsets[i] + bands[i].labelCount();
+            }
+            this.parent = new int[offsets[bands.length]];
+            for (int label = 0; label < parent.length; label++) {
+                parent[label] = label;
+            }
+            // Open cells on either side of a band edge are in the same component
+            for (int i = 1; i < bands.length; i++) {
+                for (int x = 0; x < width; x++) {
+                    int above = bands[i - 1].bottom[x];
+                    int below = bands[i].top[x];
+                    if (above >= 0 && below >= 0) {
+                        union(offsets[i - 1] + above, offsets[i] + below);
+                    }
+                }
+            }
+            int root = -1;
+            for (int i = 0; i < bands.length; i++) {
+                if (bands[i].startLabel >= 0) {
+                    root = find(offsets[i] + bands[i].startLabel);
+                }
+            }
+            if (root < 0) {
+                throw new IllegalStateException("No band holds the start point");
+            }
+            this.startRoot = root;
+        }
+
+        /**
+         * @return The number of open cells joined to the start point, including it.
+         */
+        long openCells() {
+            long total = 0;
+            for (int i = 0; i < bands.length; i++) {
+                for (int label = 0; label < bands[i].labelCount(); label++) {
+                    if (isJoinedToStart(i, label)) {
+                        total += bands[i].cells[label];
+                    }
+                }
+            }
+            return total;
+        }
+
+        /**
+         * @return What a band needs to know to count its painted cells.
+         */
+        ShardWorker.Resolution resolve(int band) {
+            ShardWorker.Resolution resolution = new ShardWorker.Resolution();
+            resolution.joined = new long[(bands[band].labelCount() + 63) >>> 6];
+            for (int label = 0; label < bands[band].labelCount(); label++) {
+                if (isJoinedToStart(band, label)) {
+                    resolution.joined[label >>> 6] |= 1L << label;
+                }
+            }
+            int words = (width + 63) >>> 6;
+            resolution.joinedAbove = new long[words];
+            resolution.joinedBelow = new long[words];
+            resolution.boundaryBelow = new long[words];
+            for (int x = 0; x < width; x++) {
+                if (band > 0 && isJoinedToStart(band - 1, bands[band - 1].bottom[x])) {
+                    resolution.joinedAbove[x >>> 6] |= 1L << x;
+                }
+                if (band < bands.length - 1 && isJoinedToStart(band + 1, bands[band + 1].top[x])) {
+                    resolution.joinedBelow[x >>> 6] |= 1L << x;
+                }
+                if (band < bands.length - 1 && isTopBoundary(band + 1, x)) {
+                    resolution.boundaryBelow[x >>> 6] |= 1L << x;
+                }
+            }
+            resolution.countedAboveFollows = band > 0;
+            return resolution;
+        }
+
+        /**
+         * @return Whether a cell of a band's top row is painted and borders the start point's component.
+         */
+        private boolean isTopBoundary(int band, int x) {
+            ShardWorker.Labels labels = bands[band];
+            if (labels.top[x] >= 0) {
+                return false;
+            }
+            boolean below = labels.rows > 1 ? isJoinedToStart(band, labels.belowTop[x])
+                    : band < bands.length - 1 && isJoinedToStart(band + 1, bands[band + 1].top[x]);
+            return below
+                    || (x > 0 && isJoinedToStart(band, labels.top[x - 1]))
+                    || (x < width - 1 && isJoinedToStart(band, labels.top[x + 1]))
+                    || (band > 0 && isJoinedToStart(band - 1, bands[band - 1].bottom[x]));
+        }
+
+        private boolean isJoinedToStart(int band, int label) {
+            return label >= 0 && find(offsets[band] + label) == startRoot;
+        }
+
+        private void union(int labelA, int labelB) {
+            int rootA = find(labelA);
+            int rootB = find(labelB);
+            if (rootA != rootB) {
+                parent[rootB] = rootA;
+            }
+        }
+
+        private int find(int label) {
+            while (parent[label] != label) {
+                // Path halving
+                parent[label] = parent[parent[label]];
+                label = parent[label];
+            }
+            return label;
+        }
+    }
+}
@@ -0,0 +1,743 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Single-pass area estimation over a stream of rows, without holding the whole grid.
+ * <p>
+ * Each row's open cells are labelled against the previous row's labels and merged with a union-find,
+ * while per-component areas are accumulated. Components that no longer touch the latest row are
+ * closed. Once the start point's component closes its area is final.
+ * <p>
+ * Whether a {@link CellStates#PAINTED} cell counts as a boundary or corner cell depends on which
+ * components end up joined to the start point, which may not be known until many rows later. Painted
+ * cells are therefore tallied in groups, each standing for a set of still-open components any of which
+ * would make its cells count. A group only records the components it adds to the groups it was built
+ * from, the cell to its left and the cell above, and a cell reuses the group of its neighbours whenever
+ * it adds nothing new, so a stretch of cells waiting on the same components costs one group. Cells that
+ * are not built on a neighbour's group share one group per set of components they wait on, wherever
+ * they are. When a component joins the start point's, its groups and every group built from them are
+ * counted; when it closes, groups left with nothing that could still count them are dropped. The final
+ * total matches {@link AreaEstimator#runAlgorithm()}.
+ * <p>
+ * Work is O(1) per cell apart from the union-find and the shared group lookup. Memory is O(width) for
+ * the last three rows, plus one group for each distinct way the undecided painted cells depend on the
+ * open components. Combs and diagonal stripes, whose open components stay open for the whole grid, need
+ * O(width) groups. The bound is not O(width) in general, though: a shape whose painted cells extend their
+ * neighbours' groups with a different mix of components on every row keeps a group per such cell until
+ * its components close, so the worst case is O(width &times; height).
+ */
+class StreamingAreaEstimator {
+    /**
+     * The group of a cell that is known to count.
+     */
+    private static final Group ALWAYS = new Group(null, null, new Component[0]);
+
+    static {
+        ALWAYS.counted = true;
+    }
+
+    private final int width;
+    private final int height;
+    private final int startX;
+    private final int startY;
+    /**
+     * The number of rows accepted so far.
+     */
+    private int row;
+
+    // Components of the previous and current rows' cells, or null for painted cells
+    private Component[] previousLabels;
+    private Component[] currentLabels;
+    // Painted cells of the two previous rows and the current row
+    private long[] paintedOlder;
+    private long[] paintedPrevious;
+    private long[] paintedCurrent;
+
+    /**
+     * Component of the start point once its row has been seen, or {@code null}.
+     */
+    private Component start;
+    private boolean startClosed;
+    private long startArea;
+
+    // Components bordering the painted cells of the last three rows, in four slots per cell for the
+    // component above, to the left, to the right and below; the newest row's slots below are still empty
+    private Component[] boundaryOlder;
+    private Component[] boundaryPrevious;
+    private Component[] boundaryCurrent;
+    // Groups of the painted cells in the last row whose corners have been checked, and the row being checked
+    private Group[] countedAbove;
+    private Group[] countedCurrent;
+    /**
+     * Painted cells known to be counted.
+     */
+    private long countedCells;
+
+    /**
+     * Components a cell adds to its group, at most one per boundary slot it reads.
+     */
+    private final Component[] added = new Component[12];
+    /**
+     * Groups waiting to be counted or released.
+     */
+    private Group[] stack = new Group[16];
+    /**
+     * Undecided groups that only add components, by the components they add, so that cells waiting on
+     * the same components share a group however far apart they are.
+     */
+    private final HashMap<GroupKey, Group> shared = new HashMap<>();
+    /**
+     * The number of components created so far, which numbers the next one.
+     */
+    private long components;
+
+    /**
+     * Initialises an estimator for a stream of rows.
+     *
+     * @param width The number of cells in each row.
+     * @param height The number of rows that will be streamed.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     */
+    public StreamingAreaEstimator(int width, int height, int startX, int startY) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive, got " + width + "x" + height);
+        }
+        if (startX < 0 || startX >= width || startY < 0 || startY >= height) {
+            throw new IllegalArgumentException("Start point (" + startX + ", " + startY + ") is outside the grid");
+        }
+        this.width = width;
+        this.height = height;
+        this.startX = startX;
+        this.startY = startY;
+        this.previousLabels = new Component[width];
+        this.currentLabels = new Component[width];
+        int words = (width + 63) >>> 6;
+        this.paintedOlder = new long[words];
+        this.paintedPrevious = new long[words];
+        this.paintedCurrent = new long[words];
+        this.boundaryOlder = new Component[4 * width];
+        this.boundaryPrevious = new Component[4 * width];
+        this.boundaryCurrent = new Component[4 * width];
+        this.countedAbove = new Group[width];
+        this.countedCurrent = new Group[width];
+    }
+
+    /**
+     * Estimates the area of a {@link GridModel} by streaming its rows.
+     *
+     * @param model {@link GridModel} object with a start point set.
+     * @return The number of cells counted, including the start point.
+     */
+    public static long estimateArea(GridModel model) {
+        int width = model.getWidth();
+        int startPoint = model.getStartPoint();
+        StreamingAreaEstimator estimator = new StreamingAreaEstimator(width, model.getHeight(),
+                startPoint % width, startPoint / width);
+        long[] painted = new long[(width + 63) >>> 6];
+        for (int y = 0; y < model.getHeight(); y++) {
+            Arrays.fill(painted, 0);
+            for (int x = 0; x < width; x++) {
+                if (model.getState(model.index(x, y)) == CellStates.PAINTED) {
+                    painted[x >>> 6] |= 1L << x;
+                }
+            }
+            estimator.acceptRow(painted);
+        }
+        return estimator.finish();
+    }
+
+    /**
+     * Estimates the area of a P4 bitmap read from a stream, one row at a time.
+     *
+     * @param in Stream positioned at the start of the bitmap.
+     * @param startX Column of the start point.
+     * @param startY Row of the start point.
+     * @return The number of cells counted, including the start point.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static long estimateArea(InputStream in, int startX, int startY) throws IOException {
+        PbmFormat.Header header = PbmFormat.readHeader(in);
+        StreamingAreaEstimator estimator = new StreamingAreaEstimator(header.width, header.height, startX, startY);
+        DataInputStream data = new DataInputStream(in);
+        byte[] bytes = new byte[header.rowBytes()];
+        long[] painted = new long[(header.width + 63) >>> 6];
+        for (int y = 0; y < header.height; y++) {
+            PbmFormat.readRow(data, bytes, y, header.height);
+            PbmFormat.unpackRow(bytes, painted, header.width);
+            estimator.acceptRow(painted);
+        }
+        return estimator.finish();
+    }
+
+    /**
+     * Consumes the next row of the stream.
+     *
+     * @param painted The row's {@link CellStates#PAINTED} cells, where bit {@code x & 63} of word
+     *                {@code x >>> 6} holds column {@code x}. Not retained.
+     */
+    public void acceptRow(long[] painted) {
+        if (row == height) {
+            throw new IllegalStateException("All " + height + " rows have already been accepted");
+        }
+        System.arraycopy(painted, 0, paintedCurrent, 0, paintedCurrent.length);
+        if (row == startY) {
+            // The start point is never painted, and joins the components around it
+            paintedCurrent[startX >>> 6] &= ~(1L << startX);
+        }
+        labelRow();
+        closeComponents();
+        collectBoundaries();
+        if (row >= 2) {
+            countRow(boundaryOlder, boundaryPrevious, paintedOlder);
+        }
+
+        // Shift every window down by one row
+        Component[] labels = previousLabels;
+        previousLabels = currentLabels;
+        currentLabels = labels;
+        long[] swap = paintedOlder;
+        paintedOlder = paintedPrevious;
+        paintedPrevious = paintedCurrent;
+        paintedCurrent = swap;
+        Component[] boundary = boundaryOlder;
+        boundaryOlder = boundaryPrevious;
+        boundaryPrevious = boundaryCurrent;
+        boundaryCurrent = boundary;
+        Arrays.fill(boundaryCurrent, null);
+        row++;
+    }
+
+    /**
+     * Ends the stream and resolves the area.
+     *
+     * @return The number of cells counted, including the start point.
+     */
+    public long finish() {
+        if (row != height) {
+            throw new IllegalStateException("Only " + row + " of " + height + " rows have been accepted");
+        }
+        // The last two rows' corners can now be checked, with nothing below the last row
+        if (height >= 2) {
+            countRow(boundaryOlder, boundaryPrevious, paintedOlder);
+        }
+        countRow(boundaryPrevious, boundaryCurrent, paintedPrevious);
+        if (!startClosed) {
+            startArea = find(start).area;
+        }
+        // Start on one to account for the starting point
+        return 1 + startArea + countedCells;
+    }
+
+    /**
+     * Labels the open cells of the current row, merging with the previous row.
+     */
+    private void labelRow() {
+        for (int x = 0; x < width; x++) {
+            if (isPainted(paintedCurrent, x)) {
+                currentLabels[x] = null;
+                continue;
+            }
+            Component label = x > 0 ? currentLabels[x - 1] : null;
+            Component above = previousLabels[x];
+            if (above != null) {
+                if (label == null) {
+                    label = above;
+                } else {
+                    union(label, above);
+                }
+            }
+            if (label == null) {
+                label = new Component(components++);
+            }
+            currentLabels[x] = label;
+            if (row == startY && x == startX) {
+                start = label;
+                // Everything waiting on the component now counts
+                resolve(find(label));
+            } else {
+                find(label).area++;
+            }
+        }
+    }
+
+    /**
+     * Closes every component of the previous row that no longer touches the current row.
+     */
+    private void closeComponents() {
+        for (int x = 0; x < width; x++) {
+            if (currentLabels[x] != null) {
+                find(currentLabels[x]).seenRow = row;
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            if (previousLabels[x] == null) {
+                continue;
+            }
+            Component root = find(previousLabels[x]);
+            if (root.seenRow == row || root.closed) {
+                continue;
+            }
+            root.closed = true;
+            if (root == startRoot()) {
+                // The start point's component can't grow any further
+                startArea = root.area;
+                startClosed = true;
+            } else {
+                // Nothing waiting on the component alone can count any more
+                for (int i = 0; i < root.groupCount; i++) {
+                    release(root.groups[i]);
+                }
+                root.groups = null;
+                root.groupCount = 0;
+                root.single = null;
+            }
+        }
+    }
+
+    /**
+     * Completes the boundaries of the previous row with the components below them, and starts the
+     * current row's boundaries with the components above and beside them.
+     */
+    private void collectBoundaries() {
+        for (int x = 0; x < width; x++) {
+            if (isPainted(paintedPrevious, x)) {
+                boundaryPrevious[4 * x + 3] = currentLabels[x];
+            }
+            if (isPainted(paintedCurrent, x)) {
+                boundaryCurrent[4 * x] = previousLabels[x];
+                boundaryCurrent[4 * x + 1] = x > 0 ? currentLabels[x - 1] : null;
+                boundaryCurrent[4 * x + 2] = x < width - 1 ? currentLabels[x + 1] : null;
+            }
+        }
+    }
+
+    /**
+     * Replays {@link AreaEstimator}'s corner check over one row, whose boundaries and the row below's
+     * are complete, leaving the groups of its painted cells in {@link StreamingAreaEstimator#countedAbove}.
+     */
+    private void countRow(Component[] boundary, Component[] boundaryBelow, long[] painted) {
+        Group left = null;
+        for (int x = 0; x < width; x++) {
+            if (!isPainted(painted, x)) {
+                countedCurrent[x] = null;
+                left = null;
+                continue;
+            }
+            Group group = join(left, countedAbove[x]);
+            if (group != ALWAYS) {
+                // The cell also counts if any component bordering it, its right neighbour or the cell below does
+                int count = collect(boundary, x, group, 0);
+                if (x < width - 1) {
+                    count = collect(boundary, x + 1, group, count);
+                }
+                count = collect(boundaryBelow, x, group, count);
+                if (count < 0) {
+                    group = ALWAYS;
+                } else if (count > 0) {
+                    group = extend(group, count);
+                }
+            }
+            countedCurrent[x] = group;
+            left = group;
+            if (group == ALWAYS) {
+                countedCells++;
+            } else if (group != null) {
+                group.cells++;
+            }
+        }
+        Group[] swap = countedAbove;
+        countedAbove = countedCurrent;
+        countedCurrent = swap;
+    }
+
+    /**
+     * Adds the components bordering a cell that are not already in a group to
+     * {@link StreamingAreaEstimator#added}.
+     *
+     * @return The number of components added so far, or -1 if one is the start point's.
+     */
+    private int collect(Component[] boundary, int x, Group group, int count) {
+        if (count < 0) {
+            return count;
+        }
+        for (int slot = 4 * x; slot < 4 * x + 4; slot++) {
+            if (boundary[slot] == null) {
+                continue;
+            }
+            Component root = find(boundary[slot]);
+            if (root == startRoot()) {
+                return -1;
+            }
+            // Once the start point's component is closed no other component can join it
+            if (root.closed || startClosed || contains(group, root)) {
+                continue;
+            }
+            boolean seen = false;
+            for (int i = 0; i < count && !seen; i++) {
+                seen = added[i] == root;
+            }
+            if (!seen) {
+                added[count++] = root;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Whether a group, or one it was built from, was created for a component.
+     */
+    private boolean contains(Group group, Component root) {
+        return group != null && (group.adds(root) || group.parentA != null && group.parentA.adds(root)
+                || group.parentB != null && group.parentB.adds(root));
+    }
+
+    /**
+     * @return The group of a cell whose left neighbour and the cell above are in the given groups.
+     */
+    private Group join(Group left, Group above) {
+        left = current(left);
+        above = current(above);
+        if (left == ALWAYS || above == ALWAYS) {
+            return ALWAYS;
+        }
+        if (above == null || above == left) {
+            return left;
+        }
+        if (left == null || above.parentA == left || above.parentB == left) {
+            return above;
+        }
+        if (left.parentA == above || left.parentB == above) {
+            return left;
+        }
+        return newGroup(left, above, new Component[0]);
+    }
+
+    /**
+     * @return A group adding the first {@code count} components of {@link StreamingAreaEstimator#added} to
+     *         another, which may be {@code null}.
+     */
+    private Group extend(Group group, int count) {
+        if (group != null) {
+            return newGroup(group, null, Arrays.copyOf(added, count));
+        }
+        if (count == 1) {
+            // Cells waiting on a single component share one group
+            Component root = added[0];
+            if (root.single == null || current(root.single) != root.single) {
+                root.single = newGroup(null, null, new Component[]{root});
+            }
+            return root.single;
+        }
+        // As do cells waiting on the same few components
+        GroupKey key = new GroupKey(added, count);
+        Group existing = shared.get(key);
+        if (existing != null && current(existing) == existing) {
+            return existing;
+        }
+        Group created = newGroup(null, null, Arrays.copyOf(added, count));
+        created.key = key;
+        shared.put(key, created);
+        return created;
+    }
+
+    /**
+     * @return The group, {@link StreamingAreaEstimator#ALWAYS} if it has been counted, or {@code null} if it
+     *         was dropped.
+     */
+    private static Group current(Group group) {
+        if (group == null || group.released) {
+            return null;
+        }
+        return group.counted ? ALWAYS : group;
+    }
+
+    private Group newGroup(Group parentA, Group parentB, Component[] components) {
+        Group group = new Group(parentA, parentB, components);
+        if (parentA != null) {
+            parentA.addChild(group);
+        }
+        if (parentB != null) {
+            parentB.addChild(group);
+        }
+        for (Component component : components) {
+            component.addGroup(group);
+        }
+        return group;
+    }
+
+    /**
+     * Counts every group waiting on a component that has joined the start point's, and every group
+     * built from them.
+     */
+    private void resolve(Component root) {
+        int size = 0;
+        for (int i = 0; i < root.groupCount; i++) {
+            size = push(root.groups[i], size);
+        }
+        root.groups = null;
+        root.groupCount = 0;
+        root.single = null;
+        while (size > 0) {
+            Group group = stack[--size];
+            if (group.counted || group.released) {
+                continue;
+            }
+            group.counted = true;
+            countedCells += group.cells;
+            for (int i = 0; i < group.childCount; i++) {
+                size = push(group.children[i], size);
+            }
+            forget(group);
+        }
+    }
+
+    /**
+     * Drops one of the components or groups a group waits on, dropping the group and then the groups
+     * built from it once nothing is left that could count it.
+     */
+    private void release(Group released) {
+        int size = push(released, 0);
+        while (size > 0) {
+            Group group = stack[--size];
+            if (group.counted || group.released || --group.waiting > 0) {
+                continue;
+            }
+            group.released = true;
+            for (int i = 0; i < group.childCount; i++) {
+                size = push(group.children[i], size);
+            }
+            forget(group);
+        }
+    }
+
+    /**
+     * Lets go of a group once it has been counted or released.
+     */
+    private void forget(Group group) {
+        if (group.key != null) {
+            shared.remove(group.key, group);
+        }
+        group.forget();
+    }
+
+    private int push(Group group, int size) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size] = group;
+        return size + 1;
+    }
+
+    private void union(Component a, Component b) {
+        Component rootA = find(a);
+        Component rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        Component startRoot = startRoot();
+        // Merge the smaller group list into the larger
+        if (rootA.groupCount < rootB.groupCount) {
+            Component swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        rootB.parent = rootA;
+        rootA.area += rootB.area;
+        for (int i = 0; i < rootB.groupCount; i++) {
+            rootA.addGroup(rootB.groups[i]);
+        }
+        if (rootA.single == null) {
+            rootA.single = rootB.single;
+        }
+        rootB.groups = null;
+        rootB.groupCount = 0;
+        rootB.single = null;
+        if (startRoot == rootA || startRoot == rootB) {
+            resolve(rootA);
+        }
+    }
+
+    private Component startRoot() {
+        return start == null ? null : find(start);
+    }
+
+    private static Component find(Component label) {
+        while (label.parent != label) {
+            // Path halving
+            label.parent = label.parent.parent;
+            label = label.parent;
+        }
+        return label;
+    }
+
+    private static boolean isPainted(long[] row, int x) {
+        return (row[x >>> 6] & (1L << x)) != 0;
+    }
+
+    /**
+     * A union-find node for a component of open cells.
+     */
+    private static final class Component {
+        /**
+         * Numbers components in the order they were created.
+         */
+        final long id;
+        Component parent = this;
+        /**
+         * The number of open cells in the component, excluding the start point; kept on the root.
+         */
+        long area;
+        /**
+         * The last row the component was seen in; kept on the root.
+         */
+        int seenRow = -1;
+        boolean closed;
+        /**
+         * The groups created for the component, some of which may since have been counted or dropped;
+         * kept on the root.
+         */
+        Group[] groups;
+        int groupCount;
+        /**
+         * The group waiting on the component alone, if any; kept on the root.
+         */
+        Group single;
+
+        Component(long id) {
+            this.id = id;
+        }
+
+        void addGroup(Group group) {
+            if (groups == null) {
+                groups = new Group[4];
+            } else if (groupCount == groups.length) {
+                groupCount = Group.compact(groups, groupCount);
+                if (groupCount > groups.length / 2) {
+                    groups = Arrays.copyOf(groups, groups.length * 2);
+                }
+            }
+            groups[groupCount++] = group;
+        }
+    }
+
+    /**
+     * Painted cells that count if any component of a set joins the start point's, where the set is the
+     * union of the groups it was built from and the components it adds.
+     */
+    private static final class Group {
+        Group parentA;
+        Group parentB;
+        Component[] components;
+        /**
+         * The groups built from this one, some of which may since have been counted or dropped.
+         */
+        Group[] children;
+        int childCount;
+        /**
+         * The number of cells in the group, until it is counted.
+         */
+        long cells;
+        /**
+         * The number of components and groups the group waits on that are still undecided.
+         */
+        int waiting;
+        boolean counted;
+        boolean released;
+        /**
+         * The key the group is shared under, if it only adds components.
+         */
+        GroupKey key;
+
+        Group(Group parentA, Group parentB, Component[] components) {
+            this.parentA = parentA;
+            this.parentB = parentB;
+            this.components = components;
+            this.waiting = components.length + (parentA != null ? 1 : 0) + (parentB != null ? 1 : 0);
+        }
+
+        /**
+         * @return Whether the group itself adds a component, given as a root.
+         */
+        boolean adds(Component root) {
+            if (components == null) {
+                return false;
+            }
+            for (Component component : components) {
+                if (find(component) == root) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void addChild(Group child) {
+            if (children == null) {
+                children = new Group[2];
+            } else if (childCount == children.length) {
+                childCount = compact(children, childCount);
+                if (childCount > children.length / 2) {
+                    children = Arrays.copyOf(children, children.length * 2);
+                }
+            }
+            children[childCount++] = child;
+        }
+
+        /**
+         * Lets go of everything a decided group refers to.
+         */
+        void forget() {
+            parentA = null;
+            parentB = null;
+            components = null;
+            children = null;
+            childCount = 0;
+        }
+
+        /**
+         * Moves the undecided groups of an array to its front.
+         *
+         * @return The number of undecided groups.
+         */
+        static int compact(Group[] groups, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!groups[i].counted && !groups[i].released) {
+                    groups[kept++] = groups[i];
+                }
+            }
+            Arrays.fill(groups, kept, count, null);
+            return kept;
+        }
+    }
+
+    /**
+     * The components a group adds, as the sorted IDs of their roots when it was created.
+     */
+    private static final class GroupKey {
+        final long[] ids;
+        final int hash;
+
+        GroupKey(Component[] roots, int count) {
+            ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = roots[i].id;
+            }
+            Arrays.sort(ids);
+            hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof GroupKey && Arrays.equals(ids, ((GroupKey) other).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link AreaCache}'s eviction order and counters, and restoring a run from its counted flags.
+ */
+class AreaCacheTest {
+    @Test
+    void countsHitsAndMisses() {
+        AreaCache cache = new AreaCache(4);
+        assertEquals(-1, cache.get(1));
+        cache.put(1, 10);
+        assertEquals(10, cache.get(1));
+        assertEquals(10, cache.get(1));
+        assertEquals(-1, cache.get(2));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        AreaCache cache = new AreaCache(3);
+        cache.put(1, 10);
+        cache.put(2, 20);
+        cache.put(3, 30);
+        // Reading the oldest entry makes the second the least recently used
+        assertEquals(10, cache.get(1));
+        cache.put(4, 40);
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(-1, cache.get(2));
+        assertEquals(10, cache.get(1));
+        assertEquals(30, cache.get(3));
+        assertEquals(40, cache.get(4));
+        // Replacing an entry does not evict anything
+        cache.put(3, 31);
+        assertEquals(31, cache.get(3));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void countedFlagsAreKeptWithTheArea() {
+        AreaCache cache = new AreaCache(2);
+        long[] counted = {0b1011L};
+        cache.put(1, 3, counted);
+        cache.put(2, 5);
+        assertArrayEquals(counted, cache.getCounted(1));
+        assertNull(cache.getCounted(2));
+        assertNull(cache.getCounted(3));
+        // Looking up the flags is not a lookup of the area
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    void cachedFlagsRestoreTheRun() {
+        GridModel model = new GridModel(70, 9);
+        for (int x = 0; x < 70; x++) {
+            model.setState(model.index(x, 4), CellStates.PAINTED);
+        }
+        model.setStartPoint(model.index(3, 2));
+        model.setState(model.getStartPoint(), CellStates.START_POINT);
+        GridModel run = model.copy();
+        AreaEstimator estimator = new AreaEstimator(run);
+        estimator.runAlgorithm();
+        GridModel restored = model.copy();
+        restored.copyCounted(run.getCounted());
+        for (int id = 0; id < model.size(); id++) {
+            assertEquals(run.getState(id), restored.getState(id), "cell " + id);
+            assertEquals(run.hasBeenCounted(id), restored.hasBeenCounted(id), "cell " + id);
+        }
+    }
+}
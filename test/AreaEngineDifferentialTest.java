@@ -0,0 +1,390 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks every area engine against {@link RecursiveBaseline}, the frozen copy of the original recursive
+ * algorithm, on the benchmark shapes, random grids and a few edge cases.
+ */
+class AreaEngineDifferentialTest {
+    /**
+     * Stack size for the baseline, which recurses once per open cell.
+     */
+    private static final long BASELINE_STACK_BYTES = 1L << 28;
+
+    private static List<Case> cases;
+
+    /**
+     * A grid with its start point, and what the baseline counts for it.
+     */
+    private static final class Case {
+        final String name;
+        final GridModel model;
+        final long area;
+        final long perimeter;
+
+        Case(String name, GridModel model) {
+            this.name = name;
+            this.model = model;
+            GridModel counted = model.copy();
+            this.area = baseline(counted);
+            this.perimeter = perimeter(counted);
+        }
+
+        int startX() {
+            return model.getStartPoint() % model.getWidth();
+        }
+
+        int startY() {
+            return model.getStartPoint() / model.getWidth();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @BeforeAll
+    static void runBaseline() {
+        // Not in a static initialiser, as the baseline runs on a thread of its own
+        cases = generateCases();
+    }
+
+    @Test
+    void scanlineFillAndContourTracerMatchBaseline() {
+        for (Case c : cases) {
+            AreaEstimator estimator = new AreaEstimator(c.model.copy());
+            estimator.runAlgorithm();
+            assertEquals(c.area, estimator.getTotalCountedCells(), c.name);
+            assertEquals(c.perimeter, estimator.getPerimeter(), c.name);
+        }
+    }
+
+    @Test
+    void areaIndexMatchesBaseline() {
+        for (Case c : cases) {
+            AreaEstimator estimator = new AreaEstimator(c.model.copy());
+            estimator.setIndexArea(true);
+            estimator.runAlgorithm();
+            assertEquals(c.area, estimator.getAreaIndex().getTotal(), c.name);
+        }
+    }
+
+    @Test
+    void parallelFillMatchesBaseline() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            // Small tiles so that most grids span several
+            assertEngine(model -> new ParallelFill(pool, 16).estimateArea(model));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void bitboardFillMatchesBaseline() {
+        assertEngine(model -> new BitboardFill().estimateArea(model));
+    }
+
+    @Test
+    void mappedAreaEstimatorMatchesBaseline(@TempDir Path directory) throws IOException {
+        Path bitmap = directory.resolve("grid.pbm");
+        for (Case c : cases) {
+            PbmFormat.write(c.model, bitmap);
+            // Small bands so that most grids span several
+            assertEquals(c.area, new MappedAreaEstimator(32).estimateArea(bitmap, c.startX(), c.startY()), c.name);
+        }
+    }
+
+    @Test
+    void streamingAreaEstimatorMatchesBaseline() throws IOException {
+        for (Case c : cases) {
+            assertEquals(c.area, StreamingAreaEstimator.estimateArea(c.model.copy()), c.name);
+            ByteArrayOutputStream bitmap = new ByteArrayOutputStream();
+            PbmFormat.write(c.model, bitmap);
+            assertEquals(c.area, StreamingAreaEstimator.estimateArea(
+                    new ByteArrayInputStream(bitmap.toByteArray()), c.startX(), c.startY()), c.name);
+        }
+    }
+
+    @Test
+    void quadtreeGridMatchesBaseline() {
+        assertEngine(model -> QuadtreeGrid.of(model).estimateArea());
+    }
+
+    @Test
+    void regionLabellerMatchesBaseline() {
+        for (Case c : cases) {
+            // The labeller measures every region, so the start point is just another open cell
+            GridModel model = new GridModel(c.model.getWidth(), c.model.getHeight());
+            for (int id = 0; id < model.size(); id++) {
+                if (c.model.getState(id) == CellStates.PAINTED) {
+                    model.setState(id, CellStates.PAINTED);
+                }
+            }
+            RegionLabeller labeller = new RegionLabeller(model);
+            int label = labeller.getLabel(c.model.getStartPoint());
+            RegionLabeller.Region region = labeller.getRegions().stream()
+                    .filter(r -> r.id == label)
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(c.area, region.getArea(), c.name);
+        }
+    }
+
+    @Test
+    void paddedGridMatchesBaseline() {
+        assertEngine(model -> PaddedGrid.of(model).estimateArea());
+    }
+
+    @Test
+    void runLengthGridMatchesBaseline(@TempDir Path directory) throws IOException {
+        assertEngine(model -> RunLengthGrid.of(model).estimateArea());
+        Path file = directory.resolve("grid.arle");
+        for (Case c : cases) {
+            RleFormat.write(c.model, file);
+            assertEquals(c.area, RunLengthGrid.of(RleFormat.read(file)).estimateArea(), c.name);
+        }
+    }
+
+    @Test
+    void shardedEstimatorMatchesBaseline() {
+        for (int i = 0; i < cases.size(); i++) {
+            Case c = cases.get(i);
+            // Up to one band per row, including bands of a single row
+            int shards = 1 + i % Math.min(c.model.getHeight(), 6);
+            assertEquals(c.area, ShardedEstimator.estimateInProcess(c.model.copy(), shards), c.name);
+        }
+    }
+
+    @Test
+    void shardedEstimatorWorkerProcessesMatchBaseline() throws IOException {
+        // Each band is a separate JVM, so only a few grids are run this way
+        for (Case c : List.of(cases.get(0), cases.get(cases.size() / 2), cases.get(cases.size() - 1))) {
+            assertEquals(c.area, new ShardedEstimator(3).estimateArea(c.model.copy()), c.name);
+        }
+    }
+
+    @Test
+    void incrementalAreaEstimatorFollowsEdits() {
+        Random random = new Random(11);
+        for (Case c : cases) {
+            GridModel model = c.model.copy();
+            IncrementalAreaEstimator estimator = new IncrementalAreaEstimator(model);
+            assertEquals(c.area, estimator.getArea(), c.name);
+            for (int edit = 0; edit < 8; edit++) {
+                int id = random.nextInt(model.size());
+                if (random.nextInt(8) == 0) {
+                    // Move the start point
+                    int oldStart = model.getStartPoint();
+                    model.setStartPoint(id);
+                    model.setState(oldStart, CellStates.DEFAULT);
+                    model.setState(id, CellStates.START_POINT);
+                } else if (id != model.getStartPoint()) {
+                    model.setState(id, model.getState(id) == CellStates.PAINTED ? CellStates.DEFAULT : CellStates.PAINTED);
+                }
+                assertEquals(baseline(model.copy()), estimator.getArea(), c.name + " after edit " + edit);
+            }
+        }
+    }
+
+    @Test
+    void frameSequenceEstimatorMatchesBaselineOnEveryFrame() {
+        Random random = new Random(12);
+        for (Case c : cases) {
+            int width = c.model.getWidth();
+            int height = c.model.getHeight();
+            FrameSequenceEstimator sequence = new FrameSequenceEstimator(width, height, c.startX(), c.startY());
+            GridModel model = c.model.copy();
+            for (int frame = 0; frame < 6; frame++) {
+                // Small edits are replayed, and large ones rebuilt
+                int edits = frame == 3 ? model.size() / 4 : random.nextInt(4);
+                for (int edit = 0; edit < edits; edit++) {
+                    int id = random.nextInt(model.size());
+                    if (id != model.getStartPoint()) {
+                        model.setState(id, random.nextBoolean() ? CellStates.PAINTED : CellStates.DEFAULT);
+                    }
+                }
+                assertEquals(baseline(model.copy()), sequence.acceptFrame(PackedGrid.of(model)),
+                        c.name + " frame " + frame);
+            }
+        }
+    }
+
+    @Test
+    void gridHashFollowsEdits() {
+        Random random = new Random(13);
+        for (Case c : cases) {
+            GridModel model = c.model.copy();
+            GridHash hash = new GridHash(model);
+            for (int edit = 0; edit < 16; edit++) {
+                int id = random.nextInt(model.size());
+                if (id != model.getStartPoint()) {
+                    model.setState(id, CellStates.values()[random.nextInt(2)]);
+                }
+            }
+            assertEquals(new GridHash(model).getHash(), hash.getHash(), c.name);
+            assertEquals(GridHash.of(PackedGrid.of(model), c.startX(), c.startY()), hash.getHash(), c.name);
+        }
+    }
+
+    /**
+     * Checks a headless engine on a copy of every case.
+     */
+    private static void assertEngine(ToLongFunction<GridModel> engine) {
+        for (Case c : cases) {
+            assertEquals(c.area, engine.applyAsLong(c.model.copy()), c.name);
+        }
+    }
+
+    private static List<Case> generateCases() {
+        List<Case> list = new ArrayList<>();
+        Random random = new Random(42);
+        for (String shape : new String[]{"circle", "spiral", "maze", "blob"}) {
+            // One size a multiple of the word size and one not
+            for (int size : new int[]{64, 101}) {
+                ShapeGenerator.Shape generated = ShapeGenerator.generate(shape, size);
+                list.add(new Case(shape + " " + size, generated.toModel()));
+                for (int i = 0; i < 2; i++) {
+                    GridModel model = generated.toModel();
+                    int start = randomOpenCell(model, random);
+                    list.add(new Case(shape + " " + size + " from " + start, withStart(model, start)));
+                }
+            }
+        }
+        for (int i = 0; i < 60; i++) {
+            int width = 1 + random.nextInt(90);
+            int height = 1 + random.nextInt(90);
+            double density = random.nextDouble() * 0.6;
+            GridModel model = new GridModel(width, height);
+            for (int id = 0; id < model.size(); id++) {
+                if (random.nextDouble() < density) {
+                    model.setState(id, CellStates.PAINTED);
+                }
+            }
+            int start = random.nextInt(model.size());
+            list.add(new Case("random " + width + "x" + height + " #" + i, withStart(model, start)));
+        }
+        for (int i = 0; i < 10; i++) {
+            // Combs, whose teeth stay open for many rows beside long painted runs
+            int width = 2 + random.nextInt(120);
+            int height = 2 + random.nextInt(40);
+            int spacing = 2 + random.nextInt(3);
+            GridModel model = new GridModel(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (y == height / 2 || x % spacing == 0) {
+                        model.setState(model.index(x, y), CellStates.PAINTED);
+                    }
+                }
+            }
+            int start = random.nextInt(model.size());
+            list.add(new Case("comb " + width + "x" + height + " #" + i, withStart(model, start)));
+        }
+        for (int i = 0; i < 6; i++) {
+            // Diagonal stripes, whose painted cells wait on the same few open components in every row
+            int width = 2 + random.nextInt(120);
+            int height = 2 + random.nextInt(60);
+            int period = 3 + random.nextInt(3);
+            int thickness = 1 + random.nextInt(period - 2);
+            GridModel model = new GridModel(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if ((x + (i % 2 == 0 ? y : height - y)) % period < thickness) {
+                        model.setState(model.index(x, y), CellStates.PAINTED);
+                    }
+                }
+            }
+            int start = random.nextInt(model.size());
+            list.add(new Case("stripes " + width + "x" + height + " #" + i, withStart(model, start)));
+        }
+        list.add(new Case("single cell", withStart(new GridModel(1, 1), 0)));
+        list.add(new Case("single row", withStart(new GridModel(70, 1), 33)));
+        list.add(new Case("single column", withStart(new GridModel(1, 70), 33)));
+        GridModel boxed = new GridModel(9, 9);
+        boxed.setState(boxed.index(4, 3), CellStates.PAINTED);
+        boxed.setState(boxed.index(3, 4), CellStates.PAINTED);
+        boxed.setState(boxed.index(5, 4), CellStates.PAINTED);
+        boxed.setState(boxed.index(4, 5), CellStates.PAINTED);
+        list.add(new Case("boxed in", withStart(boxed, boxed.index(4, 4))));
+        return list;
+    }
+
+    private static int randomOpenCell(GridModel model, Random random) {
+        int id;
+        do {
+            id = random.nextInt(model.size());
+        } while (model.getState(id) == CellStates.PAINTED);
+        return id;
+    }
+
+    /**
+     * Moves a model's start point, clearing any old one.
+     */
+    private static GridModel withStart(GridModel model, int start) {
+        if (model.getStartPoint() >= 0) {
+            model.setState(model.getStartPoint(), CellStates.DEFAULT);
+        }
+        model.setStartPoint(start);
+        model.setState(start, CellStates.START_POINT);
+        return model;
+    }
+
+    /**
+     * Runs the baseline on a model, leaving its counted cells marked.
+     */
+    private static long baseline(GridModel model) {
+        long[] area = new long[1];
+        Thread thread = new Thread(null, () -> area[0] = new RecursiveBaseline(model).run(), "baseline",
+                BASELINE_STACK_BYTES);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return area[0];
+    }
+
+    /**
+     * @return The number of cell edges between the cells the baseline counted and the cells or grid
+     *         edges around them, as {@link ContourTracer} measures it.
+     */
+    private static long perimeter(GridModel counted) {
+        int width = counted.getWidth();
+        int height = counted.getHeight();
+        long perimeter = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!isInShape(counted, x, y)) {
+                    continue;
+                }
+                perimeter += (isInShape(counted, x - 1, y) ? 0 : 1) + (isInShape(counted, x + 1, y) ? 0 : 1)
+                        + (isInShape(counted, x, y - 1) ? 0 : 1) + (isInShape(counted, x, y + 1) ? 0 : 1);
+            }
+        }
+        return perimeter;
+    }
+
+    private static boolean isInShape(GridModel counted, int x, int y) {
+        if (x < 0 || y < 0 || x >= counted.getWidth() || y >= counted.getHeight()) {
+            return false;
+        }
+        int id = counted.index(x, y);
+        return id == counted.getStartPoint() || (counted.getState(id) != CellStates.DEFAULT && counted.hasBeenCounted(id));
+    }
+}
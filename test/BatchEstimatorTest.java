@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs {@link BatchEstimator} over a small directory of shape files and checks its CSV and JSON lines.
+ */
+class BatchEstimatorTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * The area of the box shape from its sidecar start point.
+     */
+    private long boxArea;
+    /**
+     * The area of the run-length encoded shape from its stored start point.
+     */
+    private long runsArea;
+
+    @BeforeEach
+    void writeShapes() throws IOException {
+        GridModel box = box(12, 9);
+        PbmFormat.write(box, directory.resolve("box.pbm"));
+        Files.writeString(directory.resolve("box.pbm.start"), "4 4\n");
+        // The same shape again, which is answered from the cache
+        PbmFormat.write(box, directory.resolve("a,copy.pbm"));
+        Files.writeString(directory.resolve("a,copy.pbm.start"), "4 4");
+        // No sidecar and no default start point
+        PbmFormat.write(box, directory.resolve("unstarted.pbm"));
+        GridModel runs = box(20, 7);
+        setStart(runs, runs.index(0, 0));
+        RleFormat.write(runs, directory.resolve("runs.rle"));
+        setStart(box, box.index(4, 4));
+        boxArea = area(box);
+        runsArea = area(runs);
+    }
+
+    @Test
+    void writesOneCsvRowPerFile() throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        assertEquals(1, new BatchEstimator(directory, 2, null).run(out, false));
+        List<String> lines = Arrays.asList(out.toString().split("\n"));
+        assertEquals("file,width,height,start_x,start_y,area,millis,error", lines.get(0));
+        assertEquals(List.of(
+                "\"a,copy.pbm\",12,9,4,4," + boxArea + ",,",
+                "box.pbm,12,9,4,4," + boxArea + ",,",
+                "runs.rle,20,7,0,0," + runsArea + ",,",
+                "unstarted.pbm,12,9,-1,-1,-1,,No start point given"
+        ), withoutTimings(lines.subList(1, lines.size()), ",[0-9]+\\.[0-9]{3},", ",,"));
+    }
+
+    @Test
+    void writesOneJsonLinePerFile() throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        assertEquals(1, new BatchEstimator(directory, 3, null).run(out, true));
+        assertEquals(List.of(
+                "{\"file\":\"a,copy.pbm\",\"width\":12,\"height\":9,\"startX\":4,\"startY\":4,\"area\":" + boxArea
+                        + ",\"millis\":0,\"error\":null}",
+                "{\"file\":\"box.pbm\",\"width\":12,\"height\":9,\"startX\":4,\"startY\":4,\"area\":" + boxArea
+                        + ",\"millis\":0,\"error\":null}",
+                "{\"file\":\"runs.rle\",\"width\":20,\"height\":7,\"startX\":0,\"startY\":0,\"area\":" + runsArea
+                        + ",\"millis\":0,\"error\":null}",
+                "{\"file\":\"unstarted.pbm\",\"width\":12,\"height\":9,\"startX\":-1,\"startY\":-1,\"area\":-1"
+                        + ",\"millis\":0,\"error\":\"No start point given\"}"
+        ), withoutTimings(Arrays.asList(out.toString().split("\n")), "\"millis\":[0-9]+\\.[0-9]{3}", "\"millis\":0"));
+    }
+
+    @Test
+    void defaultStartAppliesToFilesWithoutSidecar() throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        assertEquals(0, new BatchEstimator(directory, 1, new int[]{4, 4}).run(out, false));
+        assertEquals("unstarted.pbm,12,9,4,4," + boxArea + ",,", withoutTimings(
+                Arrays.stream(out.toString().split("\n")).filter(line -> line.startsWith("unstarted"))
+                        .collect(Collectors.toList()), ",[0-9]+\\.[0-9]{3},", ",,").get(0));
+    }
+
+    /**
+     * Replaces the timings, which differ between runs, and sorts the rows, which arrive as files finish.
+     */
+    private static List<String> withoutTimings(List<String> lines, String timing, String replacement) {
+        return lines.stream().map(line -> line.replaceFirst(timing, replacement)).sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * A grid with a painted rectangle outline, one cell in from the top left and two from the bottom right.
+     */
+    private static GridModel box(int width, int height) {
+        GridModel model = new GridModel(width, height);
+        for (int y = 1; y < height - 2; y++) {
+            for (int x = 1; x < width - 2; x++) {
+                if (y == 1 || y == height - 3 || x == 1 || x == width - 3) {
+                    model.setState(model.index(x, y), CellStates.PAINTED);
+                }
+            }
+        }
+        return model;
+    }
+
+    private static void setStart(GridModel model, int id) {
+        model.setStartPoint(id);
+        model.setState(id, CellStates.START_POINT);
+    }
+
+    private static long area(GridModel model) {
+        AreaEstimator estimator = new AreaEstimator(model.copy());
+        estimator.runAlgorithm();
+        return estimator.getTotalCountedCells();
+    }
+}
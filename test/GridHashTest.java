@@ -0,0 +1,80 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link GridHash} follows edits to its model, and only edits that change the shape.
+ */
+class GridHashTest {
+    @Test
+    void paintingAndErasingRestoresTheHash() {
+        GridModel model = new GridModel(10, 10);
+        GridHash hash = new GridHash(model);
+        long empty = hash.getHash();
+        model.setState(model.index(3, 4), CellStates.PAINTED);
+        long painted = hash.getHash();
+        assertNotEquals(empty, painted);
+        assertEquals(new GridHash(model).getHash(), painted);
+        model.setState(model.index(3, 4), CellStates.DEFAULT);
+        assertEquals(empty, hash.getHash());
+    }
+
+    @Test
+    void areaCellsDoNotChangeTheHash() {
+        GridModel model = new GridModel(8, 8);
+        model.setState(model.index(2, 2), CellStates.PAINTED);
+        model.setStartPoint(model.index(5, 5));
+        model.setState(model.getStartPoint(), CellStates.START_POINT);
+        GridHash hash = new GridHash(model);
+        long before = hash.getHash();
+        model.setState(model.index(6, 6), CellStates.AREA);
+        GridModel run = model.copy();
+        new AreaEstimator(run).runAlgorithm();
+        model.copyRun(run);
+        assertEquals(before, hash.getHash());
+    }
+
+    @Test
+    void startPointAndDimensionsChangeTheHash() {
+        GridModel model = new GridModel(8, 4);
+        GridHash hash = new GridHash(model);
+        long unstarted = hash.getHash();
+        model.setStartPoint(model.index(1, 1));
+        long started = hash.getHash();
+        assertNotEquals(unstarted, started);
+        model.setStartPoint(model.index(2, 1));
+        assertNotEquals(started, hash.getHash());
+        assertNotEquals(unstarted, new GridHash(new GridModel(4, 8)).getHash());
+    }
+
+    @Test
+    void bulkChangesRehash() {
+        GridModel model = new GridModel(12, 12);
+        GridHash hash = new GridHash(model);
+        long empty = hash.getHash();
+        model.setState(model.index(7, 7), CellStates.PAINTED);
+        model.clear();
+        assertEquals(empty, hash.getHash());
+    }
+
+    @Test
+    void detachedHashStopsFollowing() {
+        GridModel model = new GridModel(6, 6);
+        GridHash hash = new GridHash(model);
+        long empty = hash.getHash();
+        hash.detach();
+        model.setState(model.index(1, 1), CellStates.PAINTED);
+        assertEquals(empty, hash.getHash());
+    }
+
+    @Test
+    void packedGridHashesLikeTheModel() {
+        GridModel model = new GridModel(70, 3);
+        model.setState(model.index(65, 1), CellStates.PAINTED);
+        model.setState(model.index(0, 2), CellStates.PAINTED);
+        model.setStartPoint(model.index(4, 0));
+        model.setState(model.getStartPoint(), CellStates.START_POINT);
+        assertEquals(new GridHash(model).getHash(), GridHash.of(PackedGrid.of(model), 4, 0));
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that passes reading each row with its neighbours map every band once, and that the mapped
+ * estimate is unchanged across bands.
+ */
+class MappedBitmapTest {
+    private static final int HEIGHT = 100;
+    private static final int BAND_ROWS = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sweepsMapEachBandOnce() throws IOException {
+        Path file = directory.resolve("rows.bits");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // One word per row
+            channel.write(ByteBuffer.allocate(8 * HEIGHT), 0);
+            MappedBitmap bitmap = new MappedBitmap(channel, FileChannel.MapMode.READ_WRITE, 0, 64, HEIGHT,
+                    8 * BAND_ROWS);
+            long[] row = new long[1];
+            for (int y = 0; y < HEIGHT; y++) {
+                readWithNeighbours(bitmap, y, row);
+                row[0] = y;
+                bitmap.writeRow(y, row);
+            }
+            // Each band after the first keeps one row of the band before
+            int down = bitmap.getBandsMapped();
+            assertEquals((HEIGHT - 2) / (BAND_ROWS - 1) + 1, down);
+
+            for (int y = HEIGHT - 1; y >= 0; y--) {
+                readWithNeighbours(bitmap, y, row);
+                assertArrayEquals(new long[]{y}, row);
+                bitmap.writeRow(y, row);
+            }
+            // Going up, each band keeps the two rows below the one asked for
+            assertTrue(bitmap.getBandsMapped() - down <= (HEIGHT + BAND_ROWS - 3) / (BAND_ROWS - 2),
+                    "mapped " + (bitmap.getBandsMapped() - down) + " bands going up");
+        }
+    }
+
+    @Test
+    void estimateAcrossBandsMatchesEstimator() throws IOException {
+        Random random = new Random(5);
+        int width = 70;
+        int height = 90;
+        GridModel model = new GridModel(width, height);
+        for (int id = 0; id < model.size(); id++) {
+            if (random.nextInt(100) < 35) {
+                model.setState(id, CellStates.PAINTED);
+            }
+        }
+        int start = model.index(width / 2, height / 2);
+        model.setState(start, CellStates.DEFAULT);
+        Path file = directory.resolve("random.pbm");
+        PbmFormat.write(model, file);
+
+        model.setStartPoint(start);
+        model.setState(start, CellStates.START_POINT);
+        AreaEstimator estimator = new AreaEstimator(model);
+        estimator.runAlgorithm();
+        // Bands of a few rows each, so the fill crosses many band boundaries
+        for (int bandBytes : new int[]{16, 40, 1 << 20}) {
+            assertEquals(estimator.getTotalCountedCells(),
+                    new MappedAreaEstimator(bandBytes).estimateArea(file, width / 2, height / 2),
+                    "band bytes " + bandBytes);
+        }
+    }
+
+    private static void readWithNeighbours(MappedBitmap bitmap, int y, long[] row) throws IOException {
+        long[] neighbour = new long[1];
+        bitmap.readRow(y, row);
+        if (y > 0) {
+            bitmap.readRow(y - 1, neighbour);
+        }
+        if (y < HEIGHT - 1) {
+            bitmap.readRow(y + 1, neighbour);
+        }
+    }
+}
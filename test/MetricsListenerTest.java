@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the {@link RunMetrics} an {@link AreaEstimator} reports to its {@link MetricsListener}.
+ */
+class MetricsListenerTest {
+    @Test
+    void reportsEveryRunOnce() {
+        GridModel model = box(30, 20);
+        AreaEstimator estimator = new AreaEstimator(model);
+        List<RunMetrics> runs = new ArrayList<>();
+        estimator.setMetricsListener(runs::add);
+        estimator.runAlgorithm();
+        estimator.runAlgorithm();
+        assertEquals(2, runs.size());
+
+        for (RunMetrics metrics : runs) {
+            assertEquals(estimator.getTotalCountedCells(), metrics.countedCells);
+            // Every counted cell but the start point was visited, as were the painted cells around them
+            assertTrue(metrics.cellsVisited >= metrics.countedCells, metrics.toString());
+            assertTrue(metrics.neighbourLookups >= metrics.cellsVisited, metrics.toString());
+            assertTrue(metrics.maxStackSize > 0, metrics.toString());
+            assertTrue(metrics.fillNanos > 0 && metrics.cornerNanos >= 0, metrics.toString());
+            assertFalse(metrics.animated);
+        }
+        assertEquals(runs.get(0).cellsVisited, runs.get(1).cellsVisited);
+    }
+
+    @Test
+    void stopsReportingOnceRemoved() {
+        AreaEstimator estimator = new AreaEstimator(box(12, 12));
+        List<RunMetrics> runs = new ArrayList<>();
+        estimator.setMetricsListener(runs::add);
+        estimator.runAlgorithm();
+        estimator.setMetricsListener(null);
+        estimator.runAlgorithm();
+        assertEquals(1, runs.size());
+    }
+
+    /**
+     * A grid with a painted rectangle outline one cell in from the edges, started inside it.
+     */
+    private static GridModel box(int width, int height) {
+        GridModel model = new GridModel(width, height);
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                if (y == 1 || y == height - 2 || x == 1 || x == width - 2) {
+                    model.setState(model.index(x, y), CellStates.PAINTED);
+                }
+            }
+        }
+        int start = model.index(width / 2, height / 2);
+        model.setStartPoint(start);
+        model.setState(start, CellStates.START_POINT);
+        return model;
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link MonteCarloEstimator}'s interval against the exact area and its stopping rules.
+ */
+class MonteCarloEstimatorTest {
+    // A single thread pools its batches in a fixed order, so every run with a seed is the same
+    private final ForkJoinPool pool = new ForkJoinPool(1);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void intervalContainsExactArea() {
+        Random random = new Random(14);
+        for (int i = 0; i < 6; i++) {
+            GridModel model = new GridModel(60, 50);
+            for (int id = 0; id < model.size(); id++) {
+                if (random.nextInt(100) < 15 + 5 * i) {
+                    model.setState(id, CellStates.PAINTED);
+                }
+            }
+            setStart(model, model.index(30, 25));
+            long exact = exactArea(model);
+            double maxHalfWidth = 0.02 * model.size();
+            MonteCarloEstimator.Estimate estimate = new MonteCarloEstimator(pool, i)
+                    .estimate(model, 0.999, maxHalfWidth, 1_000_000);
+            String name = "grid " + i + ": " + estimate + ", exact " + exact;
+            assertTrue(estimate.lowerBound <= exact && exact <= estimate.upperBound, name);
+            assertTrue(estimate.lowerBound <= estimate.area && estimate.area <= estimate.upperBound, name);
+            assertTrue((estimate.upperBound - estimate.lowerBound) / 2 <= maxHalfWidth, name);
+        }
+    }
+
+    @Test
+    void openGridCountsEverySample() {
+        GridModel model = new GridModel(40, 30);
+        setStart(model, model.index(3, 3));
+        MonteCarloEstimator.Estimate estimate = new MonteCarloEstimator(pool, 1).estimate(model, 0.95, 5, 1_000_000);
+        assertEquals(model.size(), estimate.area);
+        assertEquals(model.size(), estimate.upperBound, 1e-9);
+        assertTrue(estimate.lowerBound < model.size());
+    }
+
+    @Test
+    void sampleLimitStopsBeforeIntervalIsReached() {
+        GridModel model = new GridModel(40, 30);
+        for (int x = 0; x < 40; x++) {
+            model.setState(model.index(x, 15), CellStates.PAINTED);
+        }
+        setStart(model, model.index(3, 3));
+        MonteCarloEstimator.Estimate estimate = new MonteCarloEstimator(pool, 2).estimate(model, 0.95, 0, 5000);
+        assertTrue(estimate.samples >= 5000 && estimate.samples < 5000 + MonteCarloEstimator.BATCH_SIZE,
+                estimate.toString());
+        assertTrue(estimate.upperBound > estimate.lowerBound, estimate.toString());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        MonteCarloEstimator estimator = new MonteCarloEstimator(pool, 3);
+        GridModel unstarted = new GridModel(10, 10);
+        assertThrows(IllegalStateException.class, () -> estimator.estimate(unstarted, 0.95, 1, 1000));
+        GridModel model = new GridModel(10, 10);
+        setStart(model, 0);
+        assertThrows(IllegalArgumentException.class, () -> estimator.estimate(model, 1, 1, 1000));
+        assertThrows(IllegalArgumentException.class, () -> estimator.estimate(model, 0.95, 1, 0));
+    }
+
+    private static void setStart(GridModel model, int id) {
+        model.setState(id, CellStates.START_POINT);
+        model.setStartPoint(id);
+    }
+
+    private static long exactArea(GridModel model) {
+        AreaEstimator estimator = new AreaEstimator(model.copy());
+        estimator.runAlgorithm();
+        return estimator.getTotalCountedCells();
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reads bitmaps whose headers are longer than a single read.
+ */
+class PbmFormatTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsHeaderAfterLongComments() throws IOException {
+        GridModel model = new GridModel(12, 9);
+        for (int x = 0; x < 12; x++) {
+            model.setState(model.index(x, 4), CellStates.PAINTED);
+        }
+        String header = "P4\n# " + "x".repeat(2000) + "\n12 # the height follows\n#" + "y".repeat(700) + "\n9\n";
+        Path file = withHeader(model, header);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            PbmFormat.Header parsed = PbmFormat.readHeader(channel);
+            assertEquals(12, parsed.width);
+            assertEquals(9, parsed.height);
+            assertEquals(header.length(), parsed.dataOffset);
+        }
+        GridModel read = PbmFormat.read(file, 0, 0);
+        for (int id = 1; id < model.size(); id++) {
+            assertEquals(model.getState(id), read.getState(id), "cell " + id);
+        }
+    }
+
+    /**
+     * Writes a model's rows after the given header.
+     */
+    private Path withHeader(GridModel model, String header) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PbmFormat.write(model, out);
+        byte[] written = out.toByteArray();
+        String plain = "P4\n" + model.getWidth() + " " + model.getHeight() + "\n";
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(header.getBytes());
+        file.write(written, plain.length(), written.length - plain.length());
+        Path path = directory.resolve("commented.pbm");
+        Files.write(path, file.toByteArray());
+        return path;
+    }
+}
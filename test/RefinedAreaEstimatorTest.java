@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link RefinedAreaEstimator} against discs of known area.
+ */
+class RefinedAreaEstimatorTest {
+    private static final double RADIUS = 15;
+
+    @Test
+    void thinOutlineMatchesDiscArea() {
+        RefinedAreaEstimator.Estimate estimate = new RefinedAreaEstimator(ring(RADIUS, 0.5)).estimate(0.1);
+        assertEquals(Math.PI * RADIUS * RADIUS, estimate.area, 0.03 * Math.PI * RADIUS * RADIUS);
+    }
+
+    @Test
+    void thickOutlineMatchesDiscArea() {
+        RefinedAreaEstimator.Estimate estimate = new RefinedAreaEstimator(ring(RADIUS, 1)).estimate(0.1);
+        assertEquals(Math.PI * RADIUS * RADIUS, estimate.area, 0.01 * Math.PI * RADIUS * RADIUS);
+    }
+
+    @Test
+    void boundShrinksWithMaxError() {
+        for (double halfWidth : new double[]{0.5, 1, 1.5}) {
+            RefinedAreaEstimator estimator = new RefinedAreaEstimator(ring(RADIUS, halfWidth));
+            RefinedAreaEstimator.Estimate finest = estimator.estimate(0.01);
+            double previousBound = Double.MAX_VALUE;
+            long previousSquares = 0;
+            for (double maxError : new double[]{10, 2, 0.5, 0.1}) {
+                RefinedAreaEstimator.Estimate estimate = estimator.estimate(maxError);
+                String name = "half width " + halfWidth + ", max error " + maxError;
+                assertTrue(estimate.errorBound <= maxError, name);
+                assertTrue(estimate.errorBound > 0 && estimate.errorBound < previousBound, name);
+                assertTrue(estimate.squaresRefined > previousSquares, name);
+                // The reconstructed shape's area lies within the bound of every estimate
+                assertEquals(finest.area, estimate.area, estimate.errorBound + finest.errorBound, name);
+                previousBound = estimate.errorBound;
+                previousSquares = estimate.squaresRefined;
+            }
+        }
+    }
+
+    @Test
+    void rejectsNegativeMaxError() {
+        RefinedAreaEstimator estimator = new RefinedAreaEstimator(ring(4, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> estimator.estimate(-1));
+    }
+
+    /**
+     * Paints the cells whose centres lie within a distance of a circle, and starts inside it.
+     */
+    private static GridModel ring(double radius, double halfWidth) {
+        int size = (int) (2 * (radius + halfWidth)) + 6;
+        double centre = (size - 1) / 2.0;
+        GridModel model = new GridModel(size, size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (Math.abs(Math.hypot(x - centre, y - centre) - radius) < halfWidth) {
+                    model.setState(model.index(x, y), CellStates.PAINTED);
+                }
+            }
+        }
+        int start = model.index(size / 2, size / 2);
+        model.setStartPoint(start);
+        model.setState(start, CellStates.START_POINT);
+        return model;
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks every region {@link RegionLabeller} measures against {@link AreaEstimator} started inside it.
+ */
+class RegionLabellerTest {
+    @Test
+    void hangingTeethMatchEstimator() {
+        // Open teeth above a wall, and painted teeth hanging below it, so each tooth below is reached
+        // by every region to its left and the regions are gathered into groups
+        int size = 48;
+        GridModel model = new GridModel(size, size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (x % 2 == 0 || y == 2) {
+                    model.setState(model.index(x, y), CellStates.PAINTED);
+                }
+            }
+        }
+        assertRegionsMatchEstimator(model, "hanging teeth");
+    }
+
+    @Test
+    void randomTeethMatchEstimator() {
+        Random random = new Random(16);
+        for (int i = 0; i < 40; i++) {
+            int width = 8 + random.nextInt(40);
+            int height = 8 + random.nextInt(40);
+            GridModel model = new GridModel(width, height);
+            // Walls and teeth of random lengths, with scattered cells between them
+            for (int y = 0; y < height; y++) {
+                boolean wall = random.nextInt(6) == 0;
+                for (int x = 0; x < width; x++) {
+                    if (wall && random.nextInt(8) != 0 || x % 2 == 0 && random.nextInt(4) != 0
+                            || random.nextInt(10) == 0) {
+                        model.setState(model.index(x, y), CellStates.PAINTED);
+                    }
+                }
+            }
+            assertRegionsMatchEstimator(model, "random teeth " + i);
+        }
+    }
+
+    /**
+     * Runs the estimator from the first cell of every region and compares its area and the bounding
+     * box of the cells it counted.
+     */
+    private static void assertRegionsMatchEstimator(GridModel model, String name) {
+        RegionLabeller labeller = new RegionLabeller(model);
+        boolean[] seen = new boolean[labeller.getRegions().size()];
+        for (int id = 0; id < model.size(); id++) {
+            int label = labeller.getLabel(id);
+            if (label < 0 || seen[label]) {
+                continue;
+            }
+            seen[label] = true;
+            GridModel started = model.copy();
+            started.setStartPoint(id);
+            started.setState(id, CellStates.START_POINT);
+            AreaEstimator estimator = new AreaEstimator(started);
+            estimator.runAlgorithm();
+            RegionLabeller.Region region = labeller.getRegions().get(label);
+            String regionName = name + ", region " + label;
+            assertEquals(estimator.getTotalCountedCells(), region.getArea(), regionName);
+
+            long[] counted = started.getCounted();
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxX = -1;
+            int maxY = -1;
+            for (int cell = 0; cell < started.size(); cell++) {
+                if ((counted[cell >>> 6] & 1L << cell) != 0) {
+                    int x = cell % started.getWidth();
+                    int y = cell / started.getWidth();
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+            assertEquals(minX + "," + minY + "-" + maxX + "," + maxY,
+                    region.minX + "," + region.minY + "-" + region.maxX + "," + region.maxY, regionName);
+        }
+    }
+}